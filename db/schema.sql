@@ -1,3 +1,5 @@
+-- Reference schema with demo seed data. Existing databases are upgraded by the versioned
+-- migrations in src/database/Migrations.java, which run on startup; add new changes there.
 CREATE DATABASE IF NOT EXISTS food_delivery_db;
 USE food_delivery_db;
 
@@ -14,6 +16,8 @@ CREATE TABLE IF NOT EXISTS organizations (
     name VARCHAR(100) NOT NULL,
     type VARCHAR(50) NOT NULL,
     enterprise_id INT,
+    lat DOUBLE NULL, -- Location, when known
+    lng DOUBLE NULL,
     FOREIGN KEY (enterprise_id) REFERENCES enterprises(id) ON DELETE CASCADE
 );
 
@@ -27,6 +31,9 @@ CREATE TABLE IF NOT EXISTS users (
     phone VARCHAR(20),
     email VARCHAR(100),
     organization_id INT,
+    -- Login and duplicate checks look users up by this column (see UserDAO.normalizeUsername)
+    username_normalized VARCHAR(50) GENERATED ALWAYS AS (LOWER(TRIM(username))) STORED,
+    UNIQUE KEY uq_users_username_normalized (username_normalized),
     FOREIGN KEY (organization_id) REFERENCES organizations(id) ON DELETE SET NULL
 );
 
@@ -51,11 +58,88 @@ CREATE TABLE IF NOT EXISTS orders (
     order_date DATETIME DEFAULT CURRENT_TIMESTAMP,
     delivery_address TEXT,
     comment TEXT,
+    version INT NOT NULL DEFAULT 0, -- Bumped on every status change
+    claimed_by INT NULL, -- Driver holding a delivery claim (users.id), until claim_expires_at
+    claim_expires_at DATETIME(3) NULL,
+    delivery_lat DOUBLE NULL, -- Delivery address resolved through the gazetteer, when found
+    delivery_lng DOUBLE NULL,
+    trip_id INT NULL, -- Set while the order is bundled into a multi-stop trip
     FOREIGN KEY (customer_id) REFERENCES users(id),
     FOREIGN KEY (restaurant_id) REFERENCES organizations(id),
     FOREIGN KEY (delivery_man_id) REFERENCES users(id)
 );
 
+-- Keyset pagination indexes: each order list is read newest first per owner
+CREATE INDEX idx_orders_customer_date ON orders (customer_id, order_date, id);
+CREATE INDEX idx_orders_restaurant_date ON orders (restaurant_id, order_date, id);
+CREATE INDEX idx_orders_delivery_man_date ON orders (delivery_man_id, order_date, id);
+-- Delivery queue: unassigned ready orders oldest first, lease expiry, a driver's claims
+CREATE INDEX idx_orders_ready_queue ON orders (status, delivery_man_id, order_date);
+CREATE INDEX idx_orders_claim_expiry ON orders (status, claim_expires_at);
+CREATE INDEX idx_orders_claimed_by ON orders (claimed_by);
+CREATE INDEX idx_orders_trip ON orders (trip_id);
+
+-- Gazetteer: stands in for a geocoder, normalized place name or postcode -> coordinates
+CREATE TABLE IF NOT EXISTS gazetteer (
+    place_key VARCHAR(191) PRIMARY KEY,
+    lat DOUBLE NOT NULL,
+    lng DOUBLE NOT NULL
+);
+
+-- Multi-stop delivery trips: Planned -> Assigned -> Completed, or Dissolved if nobody takes them
+CREATE TABLE IF NOT EXISTS trips (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    restaurant_id INT NOT NULL, -- Restaurant of the first pickup
+    driver_id INT NULL,
+    status VARCHAR(20) NOT NULL,
+    created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    version INT NOT NULL DEFAULT 0,
+    KEY idx_trips_status_created (status, created_at),
+    KEY idx_trips_driver_status (driver_id, status)
+);
+
+CREATE TABLE IF NOT EXISTS trip_stops (
+    trip_id INT NOT NULL,
+    seq INT NOT NULL,
+    order_id INT NOT NULL,
+    stop_type VARCHAR(10) NOT NULL, -- 'Pickup' or 'Dropoff'
+    lat DOUBLE NULL,
+    lng DOUBLE NULL,
+    PRIMARY KEY (trip_id, seq),
+    FOREIGN KEY (trip_id) REFERENCES trips(id) ON DELETE CASCADE
+);
+
+-- Every status an order has been in and when; the ETA service warm-starts from it
+CREATE TABLE IF NOT EXISTS order_status_history (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id INT NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    changed_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    KEY idx_status_history_order (order_id, changed_at),
+    KEY idx_status_history_changed (changed_at)
+);
+
+-- Last reported position per driver, written behind in batches by the location ingestor
+CREATE TABLE IF NOT EXISTS driver_locations (
+    driver_id INT PRIMARY KEY,
+    lat DOUBLE NOT NULL,
+    lng DOUBLE NOT NULL,
+    reported_at DATETIME(3) NOT NULL,
+    KEY idx_driver_locations_reported (reported_at)
+);
+
+-- One row per committed order, work request or menu change; other app nodes poll it
+CREATE TABLE IF NOT EXISTS change_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity VARCHAR(32) NOT NULL,
+    entity_id INT NOT NULL,
+    version INT NOT NULL DEFAULT 0,
+    op VARCHAR(8) NOT NULL,
+    changed_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    KEY idx_change_log_entity (entity, entity_id, id),
+    KEY idx_change_log_changed (changed_at)
+);
+
 -- Order Items
 CREATE TABLE IF NOT EXISTS order_items (
     id INT AUTO_INCREMENT PRIMARY KEY,
@@ -0,0 +1,187 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import database.MySQLConnection;
+import model.ChangeRecord;
+
+/**
+ * The change_log: an append-only feed of committed changes to orders, work requests and
+ * menus, for app nodes sharing the database to refresh just what changed. The DAOs write an
+ * entry on the connection of the change, inside its transaction, so an entry exists exactly
+ * when the change was committed; they write it last, so its time is close to the commit.
+ *
+ * <p>Entry ids come from AUTO_INCREMENT and a transaction can commit after a later one, so
+ * an entry may become visible behind a cursor that already moved past it.
+ * {@link #getChangesSince} therefore holds back entries younger than the safety lag; a
+ * change whose transaction takes longer than the lag to commit after writing its entry can
+ * still be missed, which is why the entry is written last.
+ */
+public class ChangeLogDAO {
+    private static final Logger LOGGER = Logger.getLogger(ChangeLogDAO.class.getName());
+    private static final String MAINTENANCE_LOCK = "food_delivery_db.change_log_maintenance";
+    // Column order is what map reads by index; keep the two in step
+    static final String COLUMNS = "id, entity, entity_id, version, op, changed_at";
+
+    private final long safetyLagMillis;
+
+    public ChangeLogDAO(long safetyLagMillis) {
+        if (safetyLagMillis < 0) throw new IllegalArgumentException("Safety lag cannot be negative");
+        this.safetyLagMillis = safetyLagMillis;
+    }
+
+    static void record(Connection conn, String entity, int entityId, int version, String op) throws SQLException {
+        String query = "INSERT INTO change_log (entity, entity_id, version, op) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, entity);
+            stmt.setInt(2, entityId);
+            stmt.setInt(3, version);
+            stmt.setString(4, op);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Logs an update of every order matching the condition, at its current version; run it
+    // after the update, with the condition still selecting the updated rows
+    static void recordOrders(Connection conn, String condition, Object... params) throws SQLException {
+        String query = "INSERT INTO change_log (entity, entity_id, version, op)"
+                + " SELECT ?, id, version, ? FROM orders WHERE " + condition;
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, ChangeRecord.ORDER);
+            stmt.setString(2, ChangeRecord.UPDATE);
+            for (int i = 0; i < params.length; i++) stmt.setObject(i + 3, params[i]);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Logs a change to the menu holding the item; run it before a delete, after anything else
+    static void recordMenuOf(Connection conn, int menuItemId, String op) throws SQLException {
+        String query = "INSERT INTO change_log (entity, entity_id, version, op)"
+                + " SELECT ?, restaurant_id, 0, ? FROM menu_items WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, ChangeRecord.MENU);
+            stmt.setString(2, op);
+            stmt.setInt(3, menuItemId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Up to max changes logged after cursor, oldest first; pass the cursor of the last one
+     * to continue. Entries younger than the safety lag are left for a later call. Throws so a
+     * poller never mistakes a failure for a quiet log.
+     */
+    public List<ChangeRecord> getChangesSince(long cursor, int max) throws SQLException {
+        String query = "SELECT " + COLUMNS + " FROM change_log"
+                + " WHERE id > ? AND changed_at <= NOW(3) - INTERVAL ? MICROSECOND ORDER BY id LIMIT ?";
+        List<ChangeRecord> changes = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setLong(1, cursor);
+            stmt.setLong(2, safetyLagMillis * 1_000L);
+            stmt.setInt(3, max);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) changes.add(map(rs));
+            }
+        }
+        return changes;
+    }
+
+    // Cursor of the newest entry, or 0 for an empty log: where a node that needs no history starts
+    public long getLatestCursor() throws SQLException {
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM change_log");
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Cursor of the newest entry older than ageSeconds, or 0 if there is none
+    public long getCursorBefore(int ageSeconds) throws SQLException {
+        String query = "SELECT COALESCE(MAX(id), 0) FROM change_log WHERE changed_at < NOW(3) - INTERVAL ? SECOND";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, ageSeconds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Compaction: deletes the entries with cursors in (fromCursor, toCursor] that a later
+     * entry for the same row supersedes. A reader behind them still sees the later entry, and
+     * with it the row's latest version, which is all a refresh needs. Returns how many went.
+     */
+    public int deleteSuperseded(long fromCursor, long toCursor) throws SQLException {
+        String query = "DELETE c FROM change_log c JOIN change_log n"
+                + " ON n.entity = c.entity AND n.entity_id = c.entity_id AND n.id > c.id"
+                + " WHERE c.id > ? AND c.id <= ?";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setLong(1, fromCursor);
+            stmt.setLong(2, toCursor);
+            return stmt.executeUpdate();
+        }
+    }
+
+    // Retention: deletes up to max entries older than ageSeconds, oldest first; returns how many
+    public int deleteOlderThan(int ageSeconds, int max) throws SQLException {
+        String query = "DELETE FROM change_log WHERE changed_at < NOW(3) - INTERVAL ? SECOND ORDER BY id LIMIT ?";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, ageSeconds);
+            stmt.setInt(2, max);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /** Work done while holding the maintenance lock. */
+    @FunctionalInterface
+    public interface Maintenance {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Runs the maintenance while holding a named database lock (GET_LOCK, as the schema
+     * migrator does), so nodes never compact or expire entries at the same time. Returns false
+     * without running it when another node holds the lock; it is not waited for.
+     */
+    public boolean maintainExclusively(Maintenance maintenance) throws SQLException {
+        // The lock belongs to the connection, which is held for the whole run
+        try (Connection conn = MySQLConnection.getDataSource().getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                stmt.setString(1, MAINTENANCE_LOCK);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) != 1) return false;
+                }
+            }
+            try {
+                maintenance.run();
+                return true;
+            } finally {
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    stmt.setString(1, MAINTENANCE_LOCK);
+                    stmt.executeQuery().close();
+                } catch (SQLException e) {
+                    LOGGER.log(Level.WARNING, "Failed to release change log maintenance lock", e);
+                }
+            }
+        }
+    }
+
+    // Reads a row selected with COLUMNS by position
+    static ChangeRecord map(ResultSet rs) throws SQLException {
+        return new ChangeRecord(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getInt(4), rs.getString(5),
+                rs.getTimestamp(6).getTime());
+    }
+}
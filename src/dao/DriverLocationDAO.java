@@ -0,0 +1,59 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import database.MySQLConnection;
+import model.DriverPosition;
+
+public class DriverLocationDAO {
+
+    /**
+     * Writes the first count positions of the parallel arrays in one batch, one row per
+     * driver. A position older than the stored one (from another node) is ignored. Throws so
+     * the caller can keep the positions and retry.
+     */
+    public void upsertPositions(int[] driverIds, double[] latitudes, double[] longitudes, long[] reportedAt, int count)
+            throws SQLException {
+        if (count == 0) return;
+        // Assignments run left to right: lat and lng compare against the old reported_at
+        String query = "INSERT INTO driver_locations (driver_id, lat, lng, reported_at) VALUES (?, ?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE"
+                + " lat = IF(VALUES(reported_at) >= reported_at, VALUES(lat), lat),"
+                + " lng = IF(VALUES(reported_at) >= reported_at, VALUES(lng), lng),"
+                + " reported_at = GREATEST(reported_at, VALUES(reported_at))";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < count; i++) {
+                stmt.setInt(1, driverIds[i]);
+                stmt.setDouble(2, latitudes[i]);
+                stmt.setDouble(3, longitudes[i]);
+                stmt.setTimestamp(4, new Timestamp(reportedAt[i]));
+                stmt.addBatch();
+            }
+            // Sent as one multi-row INSERT with rewriteBatchedStatements
+            stmt.executeBatch();
+        }
+    }
+
+    // Positions reported since the given time; throws so a warm start never mistakes a failure for no drivers
+    public List<DriverPosition> loadPositionsSince(long sinceMillis) throws SQLException {
+        String query = "SELECT driver_id, lat, lng, reported_at FROM driver_locations WHERE reported_at >= ?";
+        List<DriverPosition> positions = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setTimestamp(1, new Timestamp(sinceMillis));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    positions.add(new DriverPosition(rs.getInt(1), GeoColumns.read(rs, 2), rs.getTimestamp(4).getTime()));
+                }
+            }
+        }
+        return positions;
+    }
+}
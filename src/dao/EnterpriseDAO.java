@@ -15,6 +15,8 @@ import model.Enterprise;
 
 public class EnterpriseDAO {
     private static final Logger LOGGER = Logger.getLogger(EnterpriseDAO.class.getName());
+    // Column order is what map reads by index; keep the two in step
+    static final String COLUMNS = "id, name, type";
 
     public void createEnterprise(Enterprise enterprise) {
         String query = "INSERT INTO enterprises (name, type) VALUES (?, ?)";
@@ -29,19 +31,24 @@ public class EnterpriseDAO {
     }
 
     public List<Enterprise> getAllEnterprises() {
+        try {
+            return loadAllEnterprises();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to fetch enterprises", e);
+        }
+        return new ArrayList<>();
+    }
+
+    // Like getAllEnterprises, but reports failure instead of returning an empty list
+    public List<Enterprise> loadAllEnterprises() throws SQLException {
         List<Enterprise> enterprises = new ArrayList<>();
-        String query = "SELECT * FROM enterprises";
-        try (Connection conn = MySQLConnection.getConnection();
+        String query = "SELECT " + COLUMNS + " FROM enterprises";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
-                enterprises.add(new Enterprise(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("type")));
+                enterprises.add(map(rs));
             }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to fetch enterprises", e);
         }
         return enterprises;
     }
@@ -69,4 +76,9 @@ public class EnterpriseDAO {
             LOGGER.log(java.util.logging.Level.SEVERE, "Failed to update enterprise", e);
         }
     }
+
+    // Reads a row selected with COLUMNS by position
+    static Enterprise map(ResultSet rs) throws SQLException {
+        return new Enterprise(rs.getInt(1), rs.getString(2), rs.getString(3));
+    }
 }
@@ -0,0 +1,47 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import database.MySQLConnection;
+import model.GeoPoint;
+
+public class GazetteerDAO {
+    private static final Logger LOGGER = Logger.getLogger(GazetteerDAO.class.getName());
+
+    // Every known place by normalized key; throws so a cache never mistakes a failure for an empty table
+    public Map<String, GeoPoint> loadAllPlaces() throws SQLException {
+        Map<String, GeoPoint> places = new HashMap<>();
+        String query = "SELECT place_key, lat, lng FROM gazetteer";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                places.put(rs.getString(1), GeoColumns.read(rs, 2));
+            }
+        }
+        return places;
+    }
+
+    public boolean savePlace(String placeKey, GeoPoint point) {
+        String query = "INSERT INTO gazetteer (place_key, lat, lng) VALUES (?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE lat = VALUES(lat), lng = VALUES(lng)";
+        try (Connection conn = MySQLConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, placeKey);
+            GeoColumns.set(stmt, 2, point);
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to save gazetteer place", e);
+        }
+        return false;
+    }
+}
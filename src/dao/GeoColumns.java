@@ -0,0 +1,32 @@
+package dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import model.GeoPoint;
+
+// Reads and writes a nullable GeoPoint stored as adjacent lat/lng DOUBLE columns
+final class GeoColumns {
+    private GeoColumns() {
+    }
+
+    static GeoPoint read(ResultSet rs, int latColumn) throws SQLException {
+        double lat = rs.getDouble(latColumn);
+        if (rs.wasNull()) return null;
+        double lng = rs.getDouble(latColumn + 1);
+        if (rs.wasNull()) return null;
+        return new GeoPoint(lat, lng);
+    }
+
+    static void set(PreparedStatement stmt, int latIndex, GeoPoint point) throws SQLException {
+        if (point == null) {
+            stmt.setNull(latIndex, Types.DOUBLE);
+            stmt.setNull(latIndex + 1, Types.DOUBLE);
+        } else {
+            stmt.setDouble(latIndex, point.getLatitude());
+            stmt.setDouble(latIndex + 1, point.getLongitude());
+        }
+    }
+}
@@ -10,69 +10,116 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import database.MySQLConnection;
+import model.ChangeRecord;
 import model.MenuItem;
 
 public class MenuItemDAO {
     private static final Logger LOGGER = Logger.getLogger(MenuItemDAO.class.getName());
+    // Column order is what map reads by index; keep the two in step
+    static final String COLUMNS = "id, restaurant_id, name, price, description";
 
+    // Each change is logged to the change_log, against the restaurant's menu, in its transaction
     public void createMenuItem(MenuItem item) {
         String query = "INSERT INTO menu_items (restaurant_id, name, price, description) VALUES (?, ?, ?, ?)";
-        try (Connection conn = MySQLConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, item.getRestaurantId());
-            stmt.setString(2, item.getName());
-            stmt.setBigDecimal(3, item.getPrice());
-            stmt.setString(4, item.getDescription());
-            stmt.executeUpdate();
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, item.getRestaurantId());
+                stmt.setString(2, item.getName());
+                stmt.setBigDecimal(3, item.getPrice());
+                stmt.setString(4, item.getDescription());
+                stmt.executeUpdate();
+                ChangeLogDAO.record(conn, ChangeRecord.MENU, item.getRestaurantId(), 0, ChangeRecord.INSERT);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to create menu item", e);
         }
     }
 
     public List<MenuItem> getMenuItemsByRestaurant(int restaurantId) {
+        try {
+            return loadMenuItemsByRestaurant(restaurantId);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to fetch menu items", e);
+        }
+        return new ArrayList<>();
+    }
+
+    // Like getMenuItemsByRestaurant, but reports failure instead of returning an empty menu
+    public List<MenuItem> loadMenuItemsByRestaurant(int restaurantId) throws SQLException {
         List<MenuItem> items = new ArrayList<>();
-        String query = "SELECT * FROM menu_items WHERE restaurant_id = ?";
-        try (Connection conn = MySQLConnection.getConnection();
+        String query = "SELECT " + COLUMNS + " FROM menu_items WHERE restaurant_id = ? ORDER BY id";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
                 PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, restaurantId);
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                items.add(new MenuItem(
-                        rs.getInt("id"),
-                        rs.getInt("restaurant_id"),
-                        rs.getString("name"),
-                        rs.getBigDecimal("price"),
-                        rs.getString("description")));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(map(rs));
+                }
             }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to fetch menu items", e);
         }
         return items;
     }
 
     public void deleteMenuItem(int id) {
         String query = "DELETE FROM menu_items WHERE id = ?";
-        try (Connection conn = MySQLConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                // Logged first: the restaurant is read from the row about to go
+                ChangeLogDAO.recordMenuOf(conn, id, ChangeRecord.DELETE);
+                stmt.setInt(1, id);
+                stmt.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             LOGGER.log(java.util.logging.Level.SEVERE, "Failed to delete menu item", e);
         }
     }
 
+    // An item moved to another restaurant changes both menus, so both are logged
     public void updateMenuItem(MenuItem item) {
+        String current = "SELECT restaurant_id FROM menu_items WHERE id = ? FOR UPDATE";
         String query = "UPDATE menu_items SET restaurant_id = ?, name = ?, price = ?, description = ? WHERE id = ?";
-        try (Connection conn = MySQLConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, item.getRestaurantId());
-            stmt.setString(2, item.getName());
-            stmt.setBigDecimal(3, item.getPrice());
-            stmt.setString(4, item.getDescription());
-            stmt.setInt(5, item.getId());
-            stmt.executeUpdate();
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(current);
+                    PreparedStatement stmt = conn.prepareStatement(query)) {
+                select.setInt(1, item.getId());
+                int previousRestaurantId = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) previousRestaurantId = rs.getInt(1);
+                }
+                stmt.setInt(1, item.getRestaurantId());
+                stmt.setString(2, item.getName());
+                stmt.setBigDecimal(3, item.getPrice());
+                stmt.setString(4, item.getDescription());
+                stmt.setInt(5, item.getId());
+                if (stmt.executeUpdate() > 0) {
+                    if (previousRestaurantId != item.getRestaurantId()) {
+                        ChangeLogDAO.record(conn, ChangeRecord.MENU, previousRestaurantId, 0, ChangeRecord.UPDATE);
+                    }
+                    ChangeLogDAO.record(conn, ChangeRecord.MENU, item.getRestaurantId(), 0, ChangeRecord.UPDATE);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             LOGGER.log(java.util.logging.Level.SEVERE, "Failed to update menu item", e);
         }
     }
+
+    // Reads a row selected with COLUMNS by position
+    static MenuItem map(ResultSet rs) throws SQLException {
+        return new MenuItem(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getBigDecimal(4), rs.getString(5));
+    }
 }
@@ -1,59 +1,378 @@
 package dao;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Types;
+import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import database.MySQLConnection;
+import model.ChangeRecord;
 import model.Order;
+import model.OrderItem;
+import model.OrderStatus;
+import model.OrderSummary;
+import model.Page;
+import util.IntObjectMap;
 
 public class OrderDAO {
     private static final Logger LOGGER = Logger.getLogger(OrderDAO.class.getName());
+    // Allow only known safe column names
+    private static final Set<String> ALLOWED_FIELDS = Set.of("customer_id", "restaurant_id", "delivery_man_id");
+    private static final int MAX_PAGE_SIZE = 500;
+    // Columns a restaurant's order list may be sorted by: those with a (restaurant_id, [status,] col, id) index
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "order_date");
+    // Column order is what mapOrder reads by index; keep the two in step
+    static final String COLUMNS = "id, customer_id, restaurant_id, delivery_man_id, status, order_date, delivery_address, comment, version, delivery_lat, delivery_lng";
+    // List screens show neither address nor comment, so their pages leave those text columns on the server
+    static final String LIST_COLUMNS = "id, customer_id, restaurant_id, delivery_man_id, status, order_date, version, delivery_lat, delivery_lng";
+    private final OrderItemDAO orderItemDAO = new OrderItemDAO();
 
+    // The order row, its first status history entry and its change_log entry are written in one transaction
     public void createOrder(Order order) {
-        String query = "INSERT INTO orders (customer_id, restaurant_id, status, delivery_address, comment) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = MySQLConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setInt(1, order.getCustomerId());
-            stmt.setInt(2, order.getRestaurantId());
-            stmt.setString(3, order.getStatus());
-            stmt.setString(4, order.getDeliveryAddress());
-            stmt.setString(5, order.getComment());
-            stmt.executeUpdate();
+        String query = "INSERT INTO orders (customer_id, restaurant_id, status, delivery_address, comment, delivery_lat, delivery_lng) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, order.getCustomerId());
+                stmt.setInt(2, order.getRestaurantId());
+                stmt.setString(3, order.getStatus());
+                stmt.setString(4, order.getDeliveryAddress());
+                stmt.setString(5, order.getComment());
+                GeoColumns.set(stmt, 6, order.getDeliveryLocation());
+                stmt.executeUpdate();
 
-            ResultSet generatedKeys = stmt.getGeneratedKeys();
-            if (generatedKeys.next()) {
-                order.setId(generatedKeys.getInt(1));
+                ResultSet generatedKeys = stmt.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    order.setId(generatedKeys.getInt(1));
+                    recordStatus(conn, order.getId(), order.getStatus());
+                    ChangeLogDAO.record(conn, ChangeRecord.ORDER, order.getId(), 0, ChangeRecord.INSERT);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                order.setId(0);
+                throw e;
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to create order", e);
         }
     }
 
-    public void updateOrderStatus(int orderId, String status, int deliveryManId) {
-        String query = "UPDATE orders SET status = ?, delivery_man_id = ? WHERE id = ?";
+    // Writes the order row and all of its items in one transaction: either everything is
+    // stored or nothing is. Returns false (with the order id reset) when the write fails.
+    public boolean createOrderWithItems(Order order, List<OrderItem> items) {
+        String query = "INSERT INTO orders (customer_id, restaurant_id, status, delivery_address, comment, delivery_lat, delivery_lng) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, order.getCustomerId());
+                stmt.setInt(2, order.getRestaurantId());
+                stmt.setString(3, order.getStatus());
+                stmt.setString(4, order.getDeliveryAddress());
+                stmt.setString(5, order.getComment());
+                GeoColumns.set(stmt, 6, order.getDeliveryLocation());
+                stmt.executeUpdate();
+
+                ResultSet generatedKeys = stmt.getGeneratedKeys();
+                if (!generatedKeys.next()) {
+                    throw new SQLException("No id generated for new order");
+                }
+                order.setId(generatedKeys.getInt(1));
+                for (OrderItem item : items) {
+                    item.setOrderId(order.getId());
+                }
+                orderItemDAO.createOrderItems(conn, items);
+                recordStatus(conn, order.getId(), order.getStatus());
+                ChangeLogDAO.record(conn, ChangeRecord.ORDER, order.getId(), 0, ChangeRecord.INSERT);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                order.setId(0);
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to create order with items", e);
+        }
+        return false;
+    }
+
+    /**
+     * Moves the order to {@code newStatus} only if it is still in {@code expectedStatus} at
+     * {@code expectedVersion}, bumping the version in the same statement. Returns false when
+     * another change got there first (or the order is gone); the caller should reload and
+     * decide again. A deliveryManId of 0 or less leaves the assigned driver unchanged. A real
+     * status change is added to order_status_history in the same transaction, as is every
+     * applied update to the change_log.
+     */
+    public boolean updateOrderStatus(int orderId, String expectedStatus, int expectedVersion, String newStatus, int deliveryManId) {
+        boolean assignDriver = deliveryManId > 0;
+        // Any status change ends a delivery claim on the order
+        String query = "UPDATE orders SET status = ?, version = version + 1, claimed_by = NULL, claim_expires_at = NULL"
+                + (assignDriver ? ", delivery_man_id = ?" : "")
+                + " WHERE id = ? AND status = ? AND version = ?";
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    int i = 1;
+                    stmt.setString(i++, newStatus);
+                    if (assignDriver) stmt.setInt(i++, deliveryManId);
+                    stmt.setInt(i++, orderId);
+                    stmt.setString(i++, expectedStatus);
+                    stmt.setInt(i, expectedVersion);
+                    if (stmt.executeUpdate() != 1) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                if (!newStatus.equals(expectedStatus)) recordStatus(conn, orderId, newStatus);
+                ChangeLogDAO.record(conn, ChangeRecord.ORDER, orderId, expectedVersion + 1, ChangeRecord.UPDATE);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to update order status", e);
+        }
+        return false;
+    }
+
+    // Appends to the status history on the caller's connection, timestamped by the database
+    private static void recordStatus(Connection conn, int orderId, String status) throws SQLException {
+        String query = "INSERT INTO order_status_history (order_id, status) VALUES (?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, orderId);
+            stmt.setString(2, status);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Claims up to {@code max} of the oldest ReadyForPickup orders that have no driver, no
+     * live claim and no trip, for {@code driverId} until the lease runs out. The rows are read
+     * with FOR UPDATE SKIP LOCKED: rows another driver is claiming right now are skipped
+     * instead of waited on, so concurrent claims never queue behind each other or get the same
+     * order.
+     * restaurantEnterpriseId limits the pool to one enterprise's restaurants (null for all).
+     * Returns the claimed orders with their new version, or null if the claim failed.
+     */
+    public List<Order> claimReadyOrders(int driverId, Integer restaurantEnterpriseId, int max, int leaseSeconds) {
+        String select = "SELECT " + qualified(COLUMNS) + " FROM orders o"
+                + (restaurantEnterpriseId == null ? "" : " JOIN organizations org ON org.id = o.restaurant_id")
+                + " WHERE o.status = ? AND o.delivery_man_id IS NULL AND o.trip_id IS NULL"
+                + " AND (o.claim_expires_at IS NULL OR o.claim_expires_at < NOW(3))"
+                + (restaurantEnterpriseId == null ? "" : " AND org.enterprise_id = ?")
+                + " ORDER BY o.order_date, o.id LIMIT ?"
+                // Lock only the order rows; the organization rows are shared by every claimer
+                + " FOR UPDATE OF o SKIP LOCKED";
+        List<Order> claimed = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                    int i = 1;
+                    stmt.setString(i++, OrderStatus.READY_FOR_PICKUP.getLabel());
+                    if (restaurantEnterpriseId != null) stmt.setInt(i++, restaurantEnterpriseId);
+                    stmt.setInt(i, max);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) claimed.add(mapOrder(rs));
+                    }
+                }
+                if (!claimed.isEmpty()) {
+                    String update = "UPDATE orders SET claimed_by = ?, claim_expires_at = NOW(3) + INTERVAL ? SECOND,"
+                            + " version = version + 1 WHERE id IN (" + "?, ".repeat(claimed.size() - 1) + "?)";
+                    try (PreparedStatement stmt = conn.prepareStatement(update)) {
+                        int i = 1;
+                        stmt.setInt(i++, driverId);
+                        stmt.setInt(i++, leaseSeconds);
+                        for (Order order : claimed) stmt.setInt(i++, order.getId());
+                        stmt.executeUpdate();
+                    }
+                    for (Order order : claimed) {
+                        ChangeLogDAO.record(conn, ChangeRecord.ORDER, order.getId(), order.getVersion() + 1, ChangeRecord.UPDATE);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            for (Order order : claimed) order.setVersion(order.getVersion() + 1);
+            return claimed;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to claim ready orders", e);
+        }
+        return null;
+    }
+
+    // Orders whose claim by this driver is still live, oldest first
+    public List<Order> getClaimedOrders(int driverId) {
+        String query = "SELECT " + COLUMNS + " FROM orders WHERE claimed_by = ? AND claim_expires_at >= NOW(3)"
+                + " AND status = ? ORDER BY order_date, id";
+        List<Order> orders = new ArrayList<>();
         try (Connection conn = MySQLConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, status);
-            if (deliveryManId > 0) {
-                stmt.setInt(2, deliveryManId);
-            } else {
-                stmt.setNull(2, Types.INTEGER);
+            stmt.setInt(1, driverId);
+            stmt.setString(2, OrderStatus.READY_FOR_PICKUP.getLabel());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) orders.add(mapOrder(rs));
             }
-            stmt.setInt(3, orderId);
-            stmt.executeUpdate();
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to update order status", e);
+            LOGGER.log(Level.SEVERE, "Failed to fetch claimed orders", e);
+        }
+        return orders;
+    }
+
+    // Gives a claim back to the queue early; only the claiming driver can release it
+    public boolean releaseClaim(int orderId, int driverId) {
+        String query = "UPDATE orders SET claimed_by = NULL, claim_expires_at = NULL, version = version + 1"
+                + " WHERE id = ? AND claimed_by = ?";
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setInt(1, orderId);
+                    stmt.setInt(2, driverId);
+                    if (stmt.executeUpdate() != 1) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                ChangeLogDAO.recordOrders(conn, "id = ?", orderId);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to release order claim", e);
+        }
+        return false;
+    }
+
+    // Clears claims whose lease ran out; returns how many, or -1 on failure. Expired claims
+    // are already claimable again, this only keeps the claim columns honest for readers.
+    public int releaseExpiredClaims() {
+        // The expired rows are picked first so exactly the released ones are logged
+        String select = "SELECT id FROM orders WHERE status = ? AND claim_expires_at < NOW(3) FOR UPDATE SKIP LOCKED";
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Integer> ids = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                    stmt.setString(1, OrderStatus.READY_FOR_PICKUP.getLabel());
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) ids.add(rs.getInt(1));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    conn.commit();
+                    return 0;
+                }
+                String in = " IN (" + "?, ".repeat(ids.size() - 1) + "?)";
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE orders SET claimed_by = NULL, claim_expires_at = NULL, version = version + 1 WHERE id" + in)) {
+                    int i = 1;
+                    for (int id : ids) stmt.setInt(i++, id);
+                    stmt.executeUpdate();
+                }
+                ChangeLogDAO.recordOrders(conn, "id" + in, ids.toArray());
+                conn.commit();
+                return ids.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to release expired order claims", e);
+        }
+        return -1;
+    }
+
+    // Ready orders with no driver, no live claim and no trip, oldest first (list projection)
+    public List<Order> getUnassignedReadyOrders(int limit) {
+        String query = "SELECT " + LIST_COLUMNS + " FROM orders WHERE status = ? AND delivery_man_id IS NULL AND trip_id IS NULL"
+                + " AND (claim_expires_at IS NULL OR claim_expires_at < NOW(3)) ORDER BY order_date, id LIMIT ?";
+        List<Order> orders = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, OrderStatus.READY_FOR_PICKUP.getLabel());
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) orders.add(mapOrderListRow(rs));
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to fetch unassigned ready orders", e);
+        }
+        return orders;
+    }
+
+    // Driver id -> orders assigned but not yet delivered; drivers without any have no entry.
+    // Returns null if the query failed.
+    public IntObjectMap<Integer> getActiveOrderCountsByDriver() {
+        String query = "SELECT delivery_man_id, COUNT(*) FROM orders"
+                + " WHERE delivery_man_id IS NOT NULL AND status IN (?, ?) GROUP BY delivery_man_id";
+        IntObjectMap<Integer> counts = new IntObjectMap<>();
+        try (Connection conn = MySQLConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, OrderStatus.READY_FOR_PICKUP.getLabel());
+            stmt.setString(2, OrderStatus.OUT_FOR_DELIVERY.getLabel());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) counts.put(rs.getInt(1), rs.getInt(2));
+            }
+            return counts;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to count active orders by driver", e);
+        }
+        return null;
+    }
+
+    private static String qualified(String columns) {
+        return "o." + columns.replace(", ", ", o.");
+    }
+
+    // Null when the order does not exist or cannot be read
+    public Order getOrderById(int orderId) {
+        String query = "SELECT " + COLUMNS + " FROM orders WHERE id = ?";
+        try (Connection conn = MySQLConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, orderId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) return mapOrder(rs);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to fetch order by id", e);
         }
+        return null;
+    }
+
+    // The orders with these ids that still exist, in one query; throws instead of returning fewer
+    public List<Order> loadOrdersByIds(int[] orderIds) throws SQLException {
+        List<Order> orders = new ArrayList<>(orderIds.length);
+        if (orderIds.length == 0) return orders;
+        String query = "SELECT " + COLUMNS + " FROM orders WHERE id IN (" + "?, ".repeat(orderIds.length - 1) + "?)";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < orderIds.length; i++) stmt.setInt(i + 1, orderIds[i]);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) orders.add(mapOrder(rs));
+            }
+        }
+        return orders;
     }
 
     public List<Order> getOrdersByCustomer(int customerId) {
@@ -68,21 +387,199 @@ public class OrderDAO {
         return getOrdersByField("delivery_man_id", deliveryManId);
     }
 
+    // Keyset-paginated variants: newest first, ordered by (order_date, id) so each page
+    // is a bounded index range scan no matter how much history sits behind it. Customer and
+    // restaurant pages use the list projection (delivery address and comment are null);
+    // delivery pages keep the address the driver needs.
+    public Page<Order> getOrdersByCustomer(int customerId, String pageToken, int pageSize) {
+        return getOrderPageByField("customer_id", customerId, pageToken, pageSize, false);
+    }
+
+    public Page<Order> getOrdersByRestaurant(int restaurantId, String pageToken, int pageSize) {
+        return getOrderPageByField("restaurant_id", restaurantId, pageToken, pageSize, false);
+    }
+
+    public Page<Order> getOrdersByDeliveryMan(int deliveryManId, String pageToken, int pageSize) {
+        return getOrderPageByField("delivery_man_id", deliveryManId, pageToken, pageSize, true);
+    }
+
+    // Newest orders placed with any organization of the enterprise, in one joined query;
+    // status may be null for all statuses
+    public List<OrderSummary> getOrderSummariesByEnterprise(int enterpriseId, String status, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String query = "SELECT o.id, o.restaurant_id, o.status, o.order_date FROM orders o"
+                + " JOIN organizations org ON org.id = o.restaurant_id"
+                + " WHERE org.enterprise_id = ?"
+                + (status == null ? "" : " AND o.status = ?")
+                + " ORDER BY o.order_date DESC, o.id DESC LIMIT ?";
+        List<OrderSummary> summaries = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            int i = 1;
+            stmt.setInt(i++, enterpriseId);
+            if (status != null) stmt.setString(i++, status);
+            stmt.setInt(i, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(new OrderSummary(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getTimestamp(4)));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to fetch orders for enterprise", e);
+        }
+        return summaries;
+    }
+
+    // Orders of the restaurant, only those in status unless it is null
+    public int loadOrderCountByRestaurant(int restaurantId, String status) throws SQLException {
+        String query = "SELECT COUNT(*) FROM orders WHERE restaurant_id = ?" + (status == null ? "" : " AND status = ?");
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, restaurantId);
+            if (status != null) stmt.setString(2, status);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Rows offset to offset + limit of the restaurant's orders (list projection), sorted by
+     * sortField, or newest first when it is null; ties fall back to the id so pages never
+     * overlap. For random access into a long list, where the keyset pages above only go
+     * forward; the database skips offset rows to get there.
+     */
+    public List<Order> loadOrdersPageByRestaurant(int restaurantId, String status, int offset, int limit,
+            String sortField, boolean ascending) throws SQLException {
+        return loadOrdersPageByRestaurant(restaurantId, status, null, true, offset, limit, sortField, ascending);
+    }
+
+    /**
+     * The limit orders that come after anchor in the same sort, or before it when forward is
+     * false, once the skip nearest to it are passed over; returned in sort order either way.
+     * The database seeks to the anchor through the index, so reading on from a row already
+     * shown costs the same however far down the list it is. A null anchor counts from the top.
+     */
+    public List<Order> loadOrdersPageByRestaurant(int restaurantId, String status, Order anchor, boolean forward,
+            int skip, int limit, String sortField, boolean ascending) throws SQLException {
+        if (sortField != null && !SORTABLE_FIELDS.contains(sortField)) {
+            throw new IllegalArgumentException("Invalid sort field: " + sortField);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        boolean byId = "id".equals(sortField);
+        if (anchor != null && !byId && anchor.getOrderDate() == null) {
+            throw new IllegalArgumentException("Anchor order has no order date");
+        }
+        // Going backwards reads the same sort reversed and flips the rows afterwards
+        boolean descending = (sortField == null || !ascending) == forward;
+        String direction = descending ? " DESC" : " ASC";
+        String past = descending ? " < ?" : " > ?";
+        String order = byId ? "id" + direction : "order_date" + direction + ", id" + direction;
+        String seek = anchor == null ? "" : byId ? " AND id" + past
+                : " AND (order_date" + past + " OR (order_date = ? AND id" + past + "))";
+        String query = "SELECT " + LIST_COLUMNS + " FROM orders WHERE restaurant_id = ?"
+                + (status == null ? "" : " AND status = ?") + seek + " ORDER BY " + order + " LIMIT ? OFFSET ?";
+        List<Order> orders = new ArrayList<>(limit);
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            int i = 1;
+            stmt.setInt(i++, restaurantId);
+            if (status != null) stmt.setString(i++, status);
+            if (anchor != null && !byId) {
+                Timestamp date = new Timestamp(anchor.getOrderDate().getTime());
+                stmt.setTimestamp(i++, date);
+                stmt.setTimestamp(i++, date);
+            }
+            if (anchor != null) stmt.setInt(i++, anchor.getId());
+            stmt.setInt(i++, limit);
+            stmt.setInt(i, skip);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) orders.add(mapOrderListRow(rs));
+            }
+        }
+        if (!forward) Collections.reverse(orders);
+        return orders;
+    }
+
+    private Page<Order> getOrderPageByField(String field, int value, String pageToken, int pageSize, boolean fullRows) {
+        if (!ALLOWED_FIELDS.contains(field)) {
+            throw new IllegalArgumentException("Invalid field name: " + field);
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        long[] cursor = pageToken == null ? null : decodePageToken(pageToken);
+
+        String query = "SELECT " + (fullRows ? COLUMNS : LIST_COLUMNS) + " FROM orders WHERE " + field + " = ?"
+                + (cursor == null ? "" : " AND (order_date < ? OR (order_date = ? AND id < ?))")
+                + " ORDER BY order_date DESC, id DESC LIMIT ?";
+        List<Order> orders = new ArrayList<>();
+        boolean hasMore = false;
+        try (Connection conn = MySQLConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            int i = 1;
+            stmt.setInt(i++, value);
+            if (cursor != null) {
+                Timestamp after = new Timestamp(cursor[0]);
+                stmt.setTimestamp(i++, after);
+                stmt.setTimestamp(i++, after);
+                stmt.setInt(i++, (int) cursor[1]);
+            }
+            // One extra row tells us whether another page exists without a COUNT query
+            stmt.setInt(i, pageSize + 1);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                if (orders.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                orders.add(fullRows ? mapOrder(rs) : mapOrderListRow(rs));
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to fetch order page by " + field, e);
+        }
+
+        String nextToken = null;
+        if (hasMore) {
+            Order last = orders.get(orders.size() - 1);
+            nextToken = encodePageToken(last.getOrderDate().getTime(), last.getId());
+        }
+        return new Page<>(orders, nextToken);
+    }
+
+    // Tokens are opaque to callers; they carry the (order_date, id) of the last row served
+    private static String encodePageToken(long orderDateMillis, int id) {
+        String raw = "o1:" + orderDateMillis + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decodePageToken(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 || !"o1".equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+            return new long[] { Long.parseLong(parts[1]), Integer.parseInt(parts[2]) };
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+
     // 🔒 SECURE VERSION OF getOrdersByField
     private List<Order> getOrdersByField(String field, int value) {
 
-        // Allow only known safe column names
-        Set<String> allowedFields = new HashSet<>();
-        allowedFields.add("customer_id");
-        allowedFields.add("restaurant_id");
-        allowedFields.add("delivery_man_id");
-
-        if (!allowedFields.contains(field)) {
+        if (!ALLOWED_FIELDS.contains(field)) {
             throw new IllegalArgumentException("Invalid field name: " + field);
         }
 
         List<Order> orders = new ArrayList<>();
-        String query = "SELECT * FROM orders WHERE " + field + " = ?";
+        String query = "SELECT " + COLUMNS + " FROM orders WHERE " + field + " = ?";
 
         try (Connection conn = MySQLConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -91,7 +588,7 @@ public class OrderDAO {
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                orders.add(extractOrderFromResultSet(rs));
+                orders.add(mapOrder(rs));
             }
 
         } catch (SQLException e) {
@@ -101,15 +598,35 @@ public class OrderDAO {
         return orders;
     }
 
-    private Order extractOrderFromResultSet(ResultSet rs) throws SQLException {
-        return new Order(
-                rs.getInt("id"),
-                rs.getInt("customer_id"),
-                rs.getInt("restaurant_id"),
-                rs.getInt("delivery_man_id"),
-                rs.getString("status"),
-                rs.getTimestamp("order_date"),
-                rs.getString("delivery_address"),
-                rs.getString("comment"));
+    // Reads a row selected with COLUMNS by position, skipping the per-row label lookup
+    static Order mapOrder(ResultSet rs) throws SQLException {
+        Order order = new Order(
+                rs.getInt(1),
+                rs.getInt(2),
+                rs.getInt(3),
+                rs.getInt(4),
+                rs.getString(5),
+                rs.getTimestamp(6),
+                rs.getString(7),
+                rs.getString(8));
+        order.setVersion(rs.getInt(9));
+        order.setDeliveryLocation(GeoColumns.read(rs, 10));
+        return order;
+    }
+
+    // Reads a row selected with LIST_COLUMNS
+    static Order mapOrderListRow(ResultSet rs) throws SQLException {
+        Order order = new Order(
+                rs.getInt(1),
+                rs.getInt(2),
+                rs.getInt(3),
+                rs.getInt(4),
+                rs.getString(5),
+                rs.getTimestamp(6),
+                null,
+                null);
+        order.setVersion(rs.getInt(7));
+        order.setDeliveryLocation(GeoColumns.read(rs, 8));
+        return order;
     }
 }
@@ -0,0 +1,37 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.function.Consumer;
+
+import database.MySQLConnection;
+import model.StatusChange;
+
+public class OrderHistoryDAO {
+
+    /**
+     * Feeds every status change since the given time to the sink, oldest first. Rows are
+     * streamed rather than collected, so a long history is never held in memory at once.
+     * Throws so a warm start never mistakes a failure for an empty history.
+     */
+    public void forEachChangeSince(long sinceMillis, Consumer<StatusChange> sink) throws SQLException {
+        String query = "SELECT h.order_id, o.restaurant_id, o.delivery_lat, o.delivery_lng, h.status, h.changed_at"
+                + " FROM order_status_history h JOIN orders o ON o.id = h.order_id"
+                + " WHERE h.changed_at >= ? ORDER BY h.changed_at, h.id";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setTimestamp(1, new Timestamp(sinceMillis));
+            // Connector/J streams the result row by row with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(new StatusChange(rs.getInt(1), rs.getInt(2), GeoColumns.read(rs, 3),
+                            rs.getString(5), rs.getTimestamp(6).getTime()));
+                }
+            }
+        }
+    }
+}
@@ -11,9 +11,13 @@ import java.util.logging.Logger;
 
 import database.MySQLConnection;
 import model.OrderItem;
+import util.IntObjectMap;
 
 public class OrderItemDAO {
     private static final Logger LOGGER = Logger.getLogger(OrderItemDAO.class.getName());
+    private static final int MAX_IN_LIST = 512;
+    // Column order is what map reads by index; keep the two in step
+    static final String COLUMNS = "id, order_id, menu_item_name, price, quantity";
 
     public void createOrderItem(OrderItem item) {
         String query = "INSERT INTO order_items (order_id, menu_item_name, price, quantity) VALUES (?, ?, ?, ?)";
@@ -29,15 +33,32 @@ public class OrderItemDAO {
         }
     }
 
+    // Inserts all items on the caller's connection as one JDBC batch; the driver rewrites
+    // it into a multi-row INSERT when rewriteBatchedStatements is enabled
+    void createOrderItems(Connection conn, List<OrderItem> items) throws SQLException {
+        if (items.isEmpty()) return;
+        String query = "INSERT INTO order_items (order_id, menu_item_name, price, quantity) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (OrderItem item : items) {
+                stmt.setInt(1, item.getOrderId());
+                stmt.setString(2, item.getMenuItemName());
+                stmt.setBigDecimal(3, item.getPrice());
+                stmt.setInt(4, item.getQuantity());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     public List<OrderItem> getOrderItemsByOrderId(int orderId) {
         List<OrderItem> items = new ArrayList<>();
-        String query = "SELECT * FROM order_items WHERE order_id = ?";
+        String query = "SELECT " + COLUMNS + " FROM order_items WHERE order_id = ? ORDER BY id";
         try (Connection conn = MySQLConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, orderId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                items.add(new OrderItem(rs.getInt("id"), rs.getInt("order_id"), rs.getString("menu_item_name"), rs.getBigDecimal("price"), rs.getInt("quantity")));
+                items.add(map(rs));
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to fetch order items", e);
@@ -45,6 +66,46 @@ public class OrderItemDAO {
         return items;
     }
 
+    /**
+     * Loads the items of many orders at once, grouped by order id; orders without items have
+     * no entry. Ids are sent in IN lists of up to {@link #MAX_IN_LIST} (one query for any page
+     * size the order screens use), padded to a power of two so only a handful of distinct
+     * statements reach the statement cache. Returns null if the query failed.
+     */
+    public IntObjectMap<List<OrderItem>> getOrderItemsForOrders(int[] orderIds) {
+        IntObjectMap<List<OrderItem>> byOrder = new IntObjectMap<>(orderIds.length);
+        if (orderIds.length == 0) return byOrder;
+        try (Connection conn = MySQLConnection.getDataSource().getConnection()) {
+            for (int from = 0; from < orderIds.length; from += MAX_IN_LIST) {
+                int count = Math.min(MAX_IN_LIST, orderIds.length - from);
+                int slots = count == 1 ? 1 : Math.min(MAX_IN_LIST, Integer.highestOneBit(count - 1) << 1);
+                String query = "SELECT " + COLUMNS + " FROM order_items WHERE order_id IN ("
+                        + "?, ".repeat(slots - 1) + "?) ORDER BY order_id, id";
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    for (int i = 0; i < slots; i++) {
+                        // Padding repeats the last id, which the IN list ignores
+                        stmt.setInt(i + 1, orderIds[from + Math.min(i, count - 1)]);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            OrderItem item = map(rs);
+                            List<OrderItem> items = byOrder.get(item.getOrderId());
+                            if (items == null) {
+                                items = new ArrayList<>();
+                                byOrder.put(item.getOrderId(), items);
+                            }
+                            items.add(item);
+                        }
+                    }
+                }
+            }
+            return byOrder;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to fetch order items for orders", e);
+        }
+        return null;
+    }
+
     public void deleteOrderItem(int id) {
         String query = "DELETE FROM order_items WHERE id = ?";
         try (Connection conn = MySQLConnection.getConnection();
@@ -69,4 +130,9 @@ public class OrderItemDAO {
             LOGGER.log(Level.SEVERE, "Failed to update order item", e);
         }
     }
+
+    // Reads a row selected with COLUMNS by position
+    static OrderItem map(ResultSet rs) throws SQLException {
+        return new OrderItem(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getBigDecimal(4), rs.getInt(5));
+    }
 }
@@ -11,10 +11,13 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import database.MySQLConnection;
+import model.GeoPoint;
 import model.Organization;
 
 public class OrganizationDAO {
     private static final Logger LOGGER = Logger.getLogger(OrganizationDAO.class.getName());
+    // Column order is what map reads by index; keep the two in step
+    static final String COLUMNS = "id, name, type, enterprise_id, lat, lng";
 
     public void createOrganization(Organization org) {
         String query = "INSERT INTO organizations (name, type, enterprise_id) VALUES (?, ?, ?)";
@@ -31,17 +34,13 @@ public class OrganizationDAO {
 
     public List<Organization> getOrganizationsByEnterpriseId(int enterpriseId) {
         List<Organization> orgs = new ArrayList<>();
-        String query = "SELECT * FROM organizations WHERE enterprise_id = ?";
+        String query = "SELECT " + COLUMNS + " FROM organizations WHERE enterprise_id = ?";
         try (Connection conn = MySQLConnection.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, enterpriseId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                orgs.add(new Organization(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("type"),
-                        rs.getInt("enterprise_id")));
+                orgs.add(map(rs));
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to fetch organizations", e);
@@ -50,35 +49,35 @@ public class OrganizationDAO {
     }
 
     public List<Organization> getAllOrganizations() {
+        try {
+            return loadAllOrganizations();
+        } catch (SQLException e) {
+            LOGGER.log(java.util.logging.Level.SEVERE, "Failed to fetch all organizations", e);
+        }
+        return new ArrayList<>();
+    }
+
+    // Like getAllOrganizations, but reports failure instead of returning an empty list
+    public List<Organization> loadAllOrganizations() throws SQLException {
         List<Organization> orgs = new ArrayList<>();
-        String query = "SELECT * FROM organizations";
-        try (Connection conn = MySQLConnection.getConnection();
+        String query = "SELECT " + COLUMNS + " FROM organizations";
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
-                orgs.add(new Organization(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("type"),
-                        rs.getInt("enterprise_id")));
+                orgs.add(map(rs));
             }
-        } catch (SQLException e) {
-            LOGGER.log(java.util.logging.Level.SEVERE, "Failed to fetch all organizations", e);
         }
         return orgs;
     }
 
     public Organization getOrganizationById(int id) {
-        String query = "SELECT * FROM organizations WHERE id = ?";
+        String query = "SELECT " + COLUMNS + " FROM organizations WHERE id = ?";
         try (Connection conn = MySQLConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return new Organization(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("type"),
-                        rs.getInt("enterprise_id"));
+                return map(rs);
             }
         } catch (SQLException e) {
             LOGGER.log(java.util.logging.Level.SEVERE, "Failed to fetch organization by id", e);
@@ -86,6 +85,20 @@ public class OrganizationDAO {
         return null;
     }
 
+    // A null location clears it
+    public boolean updateLocation(int id, GeoPoint location) {
+        String query = "UPDATE organizations SET lat = ?, lng = ? WHERE id = ?";
+        try (Connection conn = MySQLConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            GeoColumns.set(stmt, 1, location);
+            stmt.setInt(3, id);
+            return stmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to update organization location", e);
+        }
+        return false;
+    }
+
     public void deleteOrganization(int id) {
         String query = "DELETE FROM organizations WHERE id = ?";
         try (Connection conn = MySQLConnection.getConnection();
@@ -110,4 +123,11 @@ public class OrganizationDAO {
             LOGGER.log(java.util.logging.Level.SEVERE, "Failed to update organization", e);
         }
     }
+
+    // Reads a row selected with COLUMNS by position
+    static Organization map(ResultSet rs) throws SQLException {
+        Organization org = new Organization(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4));
+        org.setLocation(GeoColumns.read(rs, 5));
+        return org;
+    }
 }
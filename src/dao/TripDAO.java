@@ -0,0 +1,298 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import database.MySQLConnection;
+import model.ChangeRecord;
+import model.Order;
+import model.OrderStatus;
+import model.Trip;
+import model.TripStop;
+import util.IntObjectMap;
+
+public class TripDAO {
+    private static final Logger LOGGER = Logger.getLogger(TripDAO.class.getName());
+    private static final String READY = OrderStatus.READY_FOR_PICKUP.getLabel();
+    // Column orders are what map and mapStop read by index; keep them in step
+    static final String COLUMNS = "id, restaurant_id, driver_id, status, created_at, version";
+    static final String STOP_COLUMNS = "trip_id, seq, order_id, stop_type, lat, lng";
+
+    /**
+     * Stores a planned trip and bundles its orders into it, in one transaction. Each order is
+     * taken only if it is still the version the planner read and still ready, unassigned,
+     * unclaimed and outside any trip; if any order fails that check nothing is written.
+     * On success the trip gets its id and the orders their new version.
+     */
+    public boolean createTrip(Trip trip, List<Order> orders) {
+        String insertTrip = "INSERT INTO trips (restaurant_id, status) VALUES (?, ?)";
+        String insertStop = "INSERT INTO trip_stops (" + STOP_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)";
+        String takeOrder = "UPDATE orders SET trip_id = ?, version = version + 1"
+                + " WHERE id = ? AND version = ? AND status = ? AND delivery_man_id IS NULL AND trip_id IS NULL"
+                + " AND (claim_expires_at IS NULL OR claim_expires_at < NOW(3))";
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int tripId;
+                try (PreparedStatement stmt = conn.prepareStatement(insertTrip, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setInt(1, trip.getRestaurantId());
+                    stmt.setString(2, Trip.PLANNED);
+                    stmt.executeUpdate();
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        if (!keys.next()) throw new SQLException("No id generated for trip");
+                        tripId = keys.getInt(1);
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(insertStop)) {
+                    for (TripStop stop : trip.getStops()) {
+                        stmt.setInt(1, tripId);
+                        stmt.setInt(2, stop.getSequence());
+                        stmt.setInt(3, stop.getOrderId());
+                        stmt.setString(4, stop.getType());
+                        GeoColumns.set(stmt, 5, stop.getLocation());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(takeOrder)) {
+                    for (Order order : orders) {
+                        stmt.setInt(1, tripId);
+                        stmt.setInt(2, order.getId());
+                        stmt.setInt(3, order.getVersion());
+                        stmt.setString(4, READY);
+                        stmt.addBatch();
+                    }
+                    for (int count : stmt.executeBatch()) {
+                        if (count != 1) {
+                            conn.rollback();
+                            return false;
+                        }
+                    }
+                }
+                for (Order order : orders) {
+                    ChangeLogDAO.record(conn, ChangeRecord.ORDER, order.getId(), order.getVersion() + 1, ChangeRecord.UPDATE);
+                }
+                conn.commit();
+                trip.setId(tripId);
+                trip.setStatus(Trip.PLANNED);
+                for (Order order : orders) order.setVersion(order.getVersion() + 1);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to create trip", e);
+        }
+        return false;
+    }
+
+    // Trips waiting for a driver, oldest first, with their stops
+    public List<Trip> getPlannedTrips(int limit) {
+        String query = "SELECT " + COLUMNS + " FROM trips WHERE status = ? ORDER BY created_at, id LIMIT ?";
+        List<Trip> trips = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, Trip.PLANNED);
+                stmt.setInt(2, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) trips.add(map(rs));
+                }
+            }
+            loadStops(conn, trips);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to fetch planned trips", e);
+        }
+        return trips;
+    }
+
+    // The driver's trips that still have orders to deliver, oldest first, with their stops
+    public List<Trip> getActiveTripsForDriver(int driverId) {
+        String query = "SELECT " + COLUMNS + " FROM trips WHERE driver_id = ? AND status = ? ORDER BY created_at, id";
+        List<Trip> trips = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, driverId);
+                stmt.setString(2, Trip.ASSIGNED);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) trips.add(map(rs));
+                }
+            }
+            loadStops(conn, trips);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to fetch trips for driver", e);
+        }
+        return trips;
+    }
+
+    // Fills in the stops of all the trips with one query
+    private static void loadStops(Connection conn, List<Trip> trips) throws SQLException {
+        if (trips.isEmpty()) return;
+        IntObjectMap<Trip> byId = new IntObjectMap<>(trips.size());
+        for (Trip trip : trips) byId.put(trip.getId(), trip);
+        String query = "SELECT " + STOP_COLUMNS + " FROM trip_stops WHERE trip_id IN ("
+                + "?, ".repeat(trips.size() - 1) + "?) ORDER BY trip_id, seq";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int i = 1;
+            for (Trip trip : trips) stmt.setInt(i++, trip.getId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) byId.get(rs.getInt(1)).getStops().add(mapStop(rs));
+            }
+        }
+    }
+
+    /**
+     * Gives a planned trip to a driver: the trip row is compare-and-set on its version, then
+     * every order on it is assigned to the driver, in one transaction. Returns false, changing
+     * nothing, when the trip was assigned or dissolved meanwhile, or when any of its orders is no
+     * longer free (a manager assigned it by hand); such a trip stays Planned until the reaper
+     * dissolves it.
+     */
+    public boolean assignTrip(int tripId, int expectedVersion, int driverId) {
+        String updateTrip = "UPDATE trips SET driver_id = ?, status = ?, version = version + 1"
+                + " WHERE id = ? AND status = ? AND version = ?";
+        String updateOrders = "UPDATE orders SET delivery_man_id = ?, version = version + 1"
+                + " WHERE trip_id = ? AND status = ? AND delivery_man_id IS NULL";
+        String countOrders = "SELECT COUNT(DISTINCT order_id) FROM trip_stops WHERE trip_id = ?";
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(updateTrip)) {
+                    stmt.setInt(1, driverId);
+                    stmt.setString(2, Trip.ASSIGNED);
+                    stmt.setInt(3, tripId);
+                    stmt.setString(4, Trip.PLANNED);
+                    stmt.setInt(5, expectedVersion);
+                    if (stmt.executeUpdate() != 1) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                int tripOrders;
+                try (PreparedStatement stmt = conn.prepareStatement(countOrders)) {
+                    stmt.setInt(1, tripId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        tripOrders = rs.next() ? rs.getInt(1) : 0;
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(updateOrders)) {
+                    stmt.setInt(1, driverId);
+                    stmt.setInt(2, tripId);
+                    stmt.setString(3, READY);
+                    // The driver would otherwise see stops for orders someone else now holds
+                    if (stmt.executeUpdate() != tripOrders) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                ChangeLogDAO.recordOrders(conn, "trip_id = ? AND delivery_man_id = ?", tripId, driverId);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to assign trip", e);
+        }
+        return false;
+    }
+
+    // Marks the order's trip Completed once none of its orders is left undelivered
+    public void completeTripOfOrder(int orderId) {
+        String query = "UPDATE trips t SET t.status = ?, t.version = t.version + 1"
+                + " WHERE t.id = (SELECT o.trip_id FROM orders o WHERE o.id = ?) AND t.status = ?"
+                + " AND NOT EXISTS (SELECT 1 FROM orders r WHERE r.trip_id = t.id AND r.status <> ?)";
+        try (Connection conn = MySQLConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, Trip.COMPLETED);
+            stmt.setInt(2, orderId);
+            stmt.setString(3, Trip.ASSIGNED);
+            stmt.setString(4, OrderStatus.DELIVERED.getLabel());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to complete trip", e);
+        }
+    }
+
+    /**
+     * Dissolves up to {@code max} trips that have been Planned for longer than ttlSeconds and
+     * releases their orders for one-by-one dispatch and the claim queue. Returns how many
+     * trips were dissolved, or -1 on failure.
+     */
+    public int dissolveStalePlannedTrips(int ttlSeconds, int max) {
+        String select = "SELECT id FROM trips WHERE status = ? AND created_at < NOW(3) - INTERVAL ? SECOND"
+                + " ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED";
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Integer> ids = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                    stmt.setString(1, Trip.PLANNED);
+                    stmt.setInt(2, ttlSeconds);
+                    stmt.setInt(3, max);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) ids.add(rs.getInt(1));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    conn.commit();
+                    return 0;
+                }
+                String in = " IN (" + "?, ".repeat(ids.size() - 1) + "?)";
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE trips SET status = ?, version = version + 1 WHERE id" + in)) {
+                    int i = 1;
+                    stmt.setString(i++, Trip.DISSOLVED);
+                    for (int id : ids) stmt.setInt(i++, id);
+                    stmt.executeUpdate();
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE orders SET trip_id = NULL, version = version + 1 WHERE delivery_man_id IS NULL AND trip_id" + in)) {
+                    int i = 1;
+                    for (int id : ids) stmt.setInt(i++, id);
+                    stmt.executeUpdate();
+                }
+                // The released orders no longer point at the trip; find them through its stops
+                List<Object> params = new ArrayList<>(ids.size() + 1);
+                params.add(TripStop.PICKUP);
+                params.addAll(ids);
+                ChangeLogDAO.recordOrders(conn, "trip_id IS NULL AND delivery_man_id IS NULL"
+                        + " AND id IN (SELECT order_id FROM trip_stops WHERE stop_type = ? AND trip_id" + in + ")",
+                        params.toArray());
+                conn.commit();
+                return ids.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to dissolve stale trips", e);
+        }
+        return -1;
+    }
+
+    // Reads a row selected with COLUMNS by position; no driver reads as 0
+    static Trip map(ResultSet rs) throws SQLException {
+        Trip trip = new Trip();
+        trip.setId(rs.getInt(1));
+        trip.setRestaurantId(rs.getInt(2));
+        trip.setDriverId(rs.getInt(3));
+        trip.setStatus(rs.getString(4));
+        trip.setCreatedAt(rs.getTimestamp(5));
+        trip.setVersion(rs.getInt(6));
+        return trip;
+    }
+
+    // Reads a row selected with STOP_COLUMNS
+    static TripStop mapStop(ResultSet rs) throws SQLException {
+        return new TripStop(rs.getInt(2), rs.getInt(3), rs.getString(4), GeoColumns.read(rs, 5));
+    }
+}
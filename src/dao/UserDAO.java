@@ -8,67 +8,127 @@ import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.mindrot.jbcrypt.BCrypt;
-
 import database.MySQLConnection;
 import model.User;
+import util.PasswordHasher;
 
 public class UserDAO {
     private static final Logger LOGGER = Logger.getLogger(UserDAO.class.getName());
+    // Column order is what mapUser reads by index; keep the two in step
+    static final String COLUMNS = "id, username, password, role, name, phone, email, organization_id";
+    // Everything but the password hash, for lookups and lists that never check credentials
+    static final String PUBLIC_COLUMNS = "id, username, role, name, phone, email, organization_id";
+    // Columns a user list may be sorted by
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "username", "name", "role", "phone", "email", "organization_id");
+    private static final String SEARCH_CONDITION = "(username LIKE ? OR name LIKE ? OR email LIKE ?)";
+
+    // Same rule as the users.username_normalized generated column: LOWER(TRIM(username))
+    public static String normalizeUsername(String username) {
+        String trimmed = trimUsername(username);
+        return trimmed == null || trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    // Strips leading and trailing spaces only, as MySQL's TRIM does; String.trim would also
+    // strip tabs and newlines and so disagree with the generated column
+    public static String trimUsername(String username) {
+        if (username == null) return null;
+        int start = 0;
+        int end = username.length();
+        while (start < end && username.charAt(start) == ' ') start++;
+        while (end > start && username.charAt(end - 1) == ' ') end--;
+        return username.substring(start, end);
+    }
 
     public User authenticate(String username, String password) {
-        // Use case-insensitive username lookup; password check done in Java for hashed passwords
-        String query = "SELECT * FROM users WHERE LOWER(username) = LOWER(?)";
+        try {
+            return authenticateAsync(username, password).join();
+        } catch (CompletionException e) {
+            // Surface PasswordHasher.BusyException as is so callers can tell "busy" from "wrong password"
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /**
+     * Looks the user up on the calling thread (one indexed query, connection released before
+     * hashing starts) and verifies the password on the {@link PasswordHasher} pool. Completes
+     * with null for unknown users or wrong passwords, and exceptionally with
+     * {@link PasswordHasher.BusyException} when the hashing queue is full. Plain-text and
+     * under-cost passwords are rehashed in the background after a successful check.
+     */
+    public CompletableFuture<User> authenticateAsync(String username, String password) {
+        // Normalizing trims the username; trim the password too to be tolerant of leading/trailing whitespace
+        String trimmedPassword = (password == null) ? null : password.trim();
+        if (normalizeUsername(username) == null || trimmedPassword == null || trimmedPassword.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        User found = getUserByUsername(username);
+        if (found == null || found.getPassword() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String storedPw = found.getPassword();
+        PasswordHasher hasher = PasswordHasher.getInstance();
+        CompletableFuture<Boolean> check = PasswordHasher.isHash(storedPw)
+                ? hasher.verifyAsync(trimmedPassword, storedPw)
+                // Old plain-text stored password: a plain comparison, no hashing needed to log in
+                : CompletableFuture.completedFuture(trimmedPassword.equals(storedPw));
+        return check.thenApply(ok -> {
+            if (!ok) return null;
+            if (hasher.needsRehash(storedPw)) {
+                rehashInBackground(found.getId(), storedPw, trimmedPassword);
+            }
+            return found;
+        });
+    }
+
+    private void rehashInBackground(int userId, String oldStored, String password) {
+        PasswordHasher.getInstance().hashAsync(password)
+                .thenAccept(hashed -> replacePassword(userId, oldStored, hashed))
+                .exceptionally(e -> {
+                    // Busy or failed: the next successful login tries again
+                    LOGGER.log(Level.FINE, "Skipped password rehash for user " + userId, e);
+                    return null;
+                });
+    }
+
+    // Compare-and-set so a password changed meanwhile is never overwritten with the old one
+    public boolean replacePassword(int userId, String expectedStored, String newStored) {
+        String query = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
         try (Connection conn = MySQLConnection.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(query)) {
-            // Trim username and password to be tolerant of leading/trailing whitespace
-            String trimmedUsername = (username == null) ? null : username.trim();
-            String trimmedPassword = (password == null) ? null : password.trim();
-            // Early return for empty/invalid credentials
-            if (trimmedUsername == null || trimmedUsername.isEmpty() || trimmedPassword == null || trimmedPassword.isEmpty()) {
-                return null;
-            }
-            stmt.setString(1, trimmedUsername);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                User found = extractUserFromResultSet(rs);
-                String storedPw = found.getPassword();
-                if (storedPw == null) return null;
-                boolean ok = false;
-                // If password appears to be a bcrypt hash, verify using BCrypt
-                if (storedPw.startsWith("$2a$") || storedPw.startsWith("$2b$") || storedPw.startsWith("$2y$")) {
-                    ok = BCrypt.checkpw(trimmedPassword, storedPw);
-                } else {
-                    // Old plain-text stored password — compare, and on success, migrate to bcrypt hash
-                    if (trimmedPassword.equals(storedPw)) {
-                        ok = true;
-                        // Migrate stored password to bcrypt hash for safety
-                        String hashed = BCrypt.hashpw(trimmedPassword, BCrypt.gensalt(12));
-                        found.setPassword(hashed);
-                        updateUser(found);
-                    }
-                }
-                return ok ? found : null;
-            }
+            stmt.setString(1, newStored);
+            stmt.setInt(2, userId);
+            stmt.setString(3, expectedStored);
+            return stmt.executeUpdate() == 1;
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to authenticate user", e);
+            LOGGER.log(Level.SEVERE, "Failed to replace password", e);
         }
-        return null;
+        return false;
+    }
+
+    // Hashes on the PasswordHasher pool unless the value is already a bcrypt hash
+    private static String hashIfPlain(String password) {
+        String trimmed = password == null ? null : password.trim();
+        if (trimmed == null || PasswordHasher.isHash(trimmed)) return trimmed;
+        return PasswordHasher.getInstance().hash(trimmed);
     }
 
-    public void createUser(User user) {
+    // Returns false when the insert failed, e.g. on a duplicate username
+    public boolean createUser(User user) {
         String query = "INSERT INTO users (username, password, role, name, phone, email, organization_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        // Hash before borrowing a connection so it is not held idle while BCrypt runs
+        String password = hashIfPlain(user.getPassword());
         try (Connection conn = MySQLConnection.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(query)) {
-            String username = user.getUsername() == null ? null : user.getUsername().trim();
-            String password = user.getPassword() == null ? null : user.getPassword().trim();
-            // If password is not already a bcrypt hash, hash it before storing
-            if (password != null && !password.startsWith("$2a$") && !password.startsWith("$2b$") && !password.startsWith("$2y$")) {
-                password = BCrypt.hashpw(password, BCrypt.gensalt(12));
-            }
+            String username = trimUsername(user.getUsername());
             stmt.setString(1, username);
             stmt.setString(2, password);
             stmt.setString(3, user.getRole());
@@ -80,20 +140,22 @@ public class UserDAO {
             } else {
                 stmt.setNull(7, Types.INTEGER);
             }
-            stmt.executeUpdate();
+            return stmt.executeUpdate() == 1;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to create user", e);
         }
+        return false;
     }
 
+    // The returned user carries no password; only the login lookup reads the hash
     public User getUserById(int id) {
-        String query = "SELECT * FROM users WHERE id = ?";
+        String query = "SELECT " + PUBLIC_COLUMNS + " FROM users WHERE id = ?";
         try (Connection conn = MySQLConnection.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return extractUserFromResultSet(rs);
+                return mapPublicUser(rs);
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to get user by id", e);
@@ -101,14 +163,131 @@ public class UserDAO {
         return null;
     }
 
+    // Case-insensitive point lookup; returns null when no user has this name
+    public User getUserByUsername(String username) {
+        String normalized = normalizeUsername(username);
+        if (normalized == null) return null;
+        String query = "SELECT " + COLUMNS + " FROM users WHERE username_normalized = ?";
+        try (Connection conn = MySQLConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, normalized);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return mapUser(rs);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to get user by username", e);
+        }
+        return null;
+    }
+
+    // Index-only existence probe on username_normalized, without fetching the row
+    public boolean existsByUsername(String username) {
+        String normalized = normalizeUsername(username);
+        if (normalized == null) return false;
+        String query = "SELECT 1 FROM users WHERE username_normalized = ? LIMIT 1";
+        try (Connection conn = MySQLConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, normalized);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            // The unique index still rejects a duplicate at insert time
+            LOGGER.log(Level.SEVERE, "Failed to check username", e);
+        }
+        return false;
+    }
+
+    public int countUsers() {
+        String query = "SELECT COUNT(*) FROM users";
+        try (Connection conn = MySQLConnection.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
+            if (rs.next()) return rs.getInt(1);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to count users", e);
+        }
+        return 0;
+    }
+
+    // Streams every normalized username without building User objects; returns false if the scan failed
+    public boolean forEachNormalizedUsername(Consumer<String> action) {
+        String query = "SELECT username_normalized FROM users";
+        try (Connection conn = MySQLConnection.getConnection();
+                Statement stmt = conn.createStatement()) {
+            // Connector/J streams the result row by row with this fetch size; any other
+            // value buffers the whole table unless the URL sets useCursorFetch
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    action.accept(rs.getString(1));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to scan usernames", e);
+        }
+        return false;
+    }
+
+    // Users matching search (see loadUsersPage); every user when it is null
+    public int loadUserCount(String search) throws SQLException {
+        String query = "SELECT COUNT(*) FROM users" + (search == null ? "" : " WHERE " + SEARCH_CONDITION);
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            if (search != null) setSearch(stmt, 1, search);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Rows offset to offset + limit of the users whose username, name or email contains
+     * search (null for all), without password hashes, sorted by sortField (by id when null);
+     * ties fall back to the id so pages never overlap.
+     */
+    public List<User> loadUsersPage(String search, int offset, int limit, String sortField, boolean ascending) throws SQLException {
+        if (sortField != null && !SORTABLE_FIELDS.contains(sortField)) {
+            throw new IllegalArgumentException("Invalid sort field: " + sortField);
+        }
+        String direction = ascending ? " ASC" : " DESC";
+        String order = sortField == null || "id".equals(sortField) ? "id" + direction : sortField + direction + ", id" + direction;
+        String query = "SELECT " + PUBLIC_COLUMNS + " FROM users" + (search == null ? "" : " WHERE " + SEARCH_CONDITION)
+                + " ORDER BY " + order + " LIMIT ? OFFSET ?";
+        List<User> users = new ArrayList<>(limit);
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            int i = search == null ? 1 : setSearch(stmt, 1, search);
+            stmt.setInt(i++, limit);
+            stmt.setInt(i, offset);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(mapPublicUser(rs));
+                }
+            }
+        }
+        return users;
+    }
+
+    // Binds the search to the three SEARCH_CONDITION parameters; returns the next index
+    private static int setSearch(PreparedStatement stmt, int index, String search) throws SQLException {
+        String pattern = "%" + search.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        for (int i = 0; i < 3; i++) stmt.setString(index++, pattern);
+        return index;
+    }
+
+    // Users without their password hashes, which no list screen shows
     public List<User> getAllUsers() {
         List<User> users = new ArrayList<>();
-        String query = "SELECT * FROM users";
+        String query = "SELECT " + PUBLIC_COLUMNS + " FROM users";
         try (Connection conn = MySQLConnection.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
-                users.add(extractUserFromResultSet(rs));
+                users.add(mapPublicUser(rs));
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to get all users", e);
@@ -116,6 +295,24 @@ public class UserDAO {
         return users;
     }
 
+    // Users with the given role, without password hashes
+    public List<User> getUsersByRole(String role) {
+        List<User> users = new ArrayList<>();
+        String query = "SELECT " + PUBLIC_COLUMNS + " FROM users WHERE role = ?";
+        try (Connection conn = MySQLConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, role);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(mapPublicUser(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to get users by role", e);
+        }
+        return users;
+    }
+
     public void deleteUser(int id) {
         String query = "DELETE FROM users WHERE id = ?";
         try (Connection conn = MySQLConnection.getConnection();
@@ -127,43 +324,59 @@ public class UserDAO {
         }
     }
 
+    // A null password keeps the stored one, so edits made from password-less reads are safe
     public void updateUser(User user) {
-        String query = "UPDATE users SET username = ?, password = ?, role = ?, name = ?, phone = ?, email = ?, organization_id = ? WHERE id = ?";
+        boolean keepPassword = user.getPassword() == null || user.getPassword().trim().isEmpty();
+        String query = keepPassword
+                ? "UPDATE users SET username = ?, role = ?, name = ?, phone = ?, email = ?, organization_id = ? WHERE id = ?"
+                : "UPDATE users SET username = ?, role = ?, name = ?, phone = ?, email = ?, organization_id = ?, password = ? WHERE id = ?";
+        // Hash before borrowing a connection so it is not held idle while BCrypt runs
+        String password = keepPassword ? null : hashIfPlain(user.getPassword());
         try (Connection conn = MySQLConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
-            String username = user.getUsername() == null ? null : user.getUsername().trim();
-            String password = user.getPassword() == null ? null : user.getPassword().trim();
-            // If password is not already a bcrypt hash, hash it before storing
-            if (password != null && !password.startsWith("$2a$") && !password.startsWith("$2b$") && !password.startsWith("$2y$")) {
-                password = BCrypt.hashpw(password, BCrypt.gensalt(12));
-            }
-            stmt.setString(1, username);
-            stmt.setString(2, password);
-            stmt.setString(3, user.getRole());
-            stmt.setString(4, user.getName());
-            stmt.setString(5, user.getPhone());
-            stmt.setString(6, user.getEmail());
+            String username = trimUsername(user.getUsername());
+            int i = 1;
+            stmt.setString(i++, username);
+            stmt.setString(i++, user.getRole());
+            stmt.setString(i++, user.getName());
+            stmt.setString(i++, user.getPhone());
+            stmt.setString(i++, user.getEmail());
             if (user.getOrganizationId() > 0) {
-                stmt.setInt(7, user.getOrganizationId());
+                stmt.setInt(i++, user.getOrganizationId());
             } else {
-                stmt.setNull(7, java.sql.Types.INTEGER);
+                stmt.setNull(i++, java.sql.Types.INTEGER);
             }
-            stmt.setInt(8, user.getId());
+            if (!keepPassword) stmt.setString(i++, password);
+            stmt.setInt(i, user.getId());
             stmt.executeUpdate();
         } catch (SQLException e) {
             LOGGER.log(java.util.logging.Level.SEVERE, "Failed to update user", e);
         }
     }
 
-    private User extractUserFromResultSet(ResultSet rs) throws SQLException {
+    // Reads a row selected with COLUMNS by position, skipping the per-row label lookup
+    static User mapUser(ResultSet rs) throws SQLException {
+        return new User(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getString(5),
+                rs.getString(6),
+                rs.getString(7),
+                rs.getInt(8));
+    }
+
+    // Reads a row selected with PUBLIC_COLUMNS; the password stays null
+    static User mapPublicUser(ResultSet rs) throws SQLException {
         return new User(
-                rs.getInt("id"),
-                rs.getString("username"),
-                rs.getString("password"),
-                rs.getString("role"),
-                rs.getString("name"),
-                rs.getString("phone"),
-                rs.getString("email"),
-                rs.getInt("organization_id"));
+                rs.getInt(1),
+                rs.getString(2),
+                null,
+                rs.getString(3),
+                rs.getString(4),
+                rs.getString(5),
+                rs.getString(6),
+                rs.getInt(7));
     }
 }
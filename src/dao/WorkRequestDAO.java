@@ -13,29 +13,49 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import database.MySQLConnection;
+import model.ChangeRecord;
 import model.WorkRequest;
 
 public class WorkRequestDAO {
     private static final Logger LOGGER = Logger.getLogger(WorkRequestDAO.class.getName());
+    // Column order is what map reads by index; keep the two in step
+    static final String COLUMNS = "id, type, sender_enterprise_id, receiver_enterprise_id, related_order_id, status, message, created_at";
 
-    public void createWorkRequest(WorkRequest wr) {
+    // Sets the generated id on wr; returns false if the request could not be stored. The
+    // change_log entry is written in the same transaction, as for every change below.
+    public boolean createWorkRequest(WorkRequest wr) {
         String query = "INSERT INTO work_requests (type, sender_enterprise_id, receiver_enterprise_id, related_order_id, status, message) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = MySQLConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, wr.getType());
-            stmt.setInt(2, wr.getSenderEnterpriseId());
-            stmt.setInt(3, wr.getReceiverEnterpriseId());
-            if (wr.getRelatedOrderId() != null) stmt.setInt(4, wr.getRelatedOrderId()); else stmt.setNull(4, Types.INTEGER);
-            stmt.setString(5, wr.getStatus());
-            stmt.setString(6, wr.getMessage());
-            stmt.executeUpdate();
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, wr.getType());
+                stmt.setInt(2, wr.getSenderEnterpriseId());
+                stmt.setInt(3, wr.getReceiverEnterpriseId());
+                if (wr.getRelatedOrderId() != null) stmt.setInt(4, wr.getRelatedOrderId()); else stmt.setNull(4, Types.INTEGER);
+                stmt.setString(5, wr.getStatus());
+                stmt.setString(6, wr.getMessage());
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (!keys.next()) throw new SQLException("No id generated for work request");
+                    wr.setId(keys.getInt(1));
+                }
+                ChangeLogDAO.record(conn, ChangeRecord.WORK_REQUEST, wr.getId(), 0, ChangeRecord.INSERT);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                wr.setId(0);
+                throw e;
+            }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to create work request", e);
         }
+        return false;
     }
 
     public List<WorkRequest> getAllWorkRequests() {
         List<WorkRequest> list = new ArrayList<>();
-        String query = "SELECT * FROM work_requests ORDER BY created_at DESC";
+        String query = "SELECT " + COLUMNS + " FROM work_requests ORDER BY created_at DESC";
         try (Connection conn = MySQLConnection.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
                 list.add(map(rs));
@@ -48,7 +68,7 @@ public class WorkRequestDAO {
 
     public List<WorkRequest> getWorkRequestsByReceiver(int enterpriseId) {
         List<WorkRequest> list = new ArrayList<>();
-        String query = "SELECT * FROM work_requests WHERE receiver_enterprise_id = ? ORDER BY created_at DESC";
+        String query = "SELECT " + COLUMNS + " FROM work_requests WHERE receiver_enterprise_id = ? ORDER BY created_at DESC";
         try (Connection conn = MySQLConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, enterpriseId);
             ResultSet rs = stmt.executeQuery();
@@ -63,7 +83,7 @@ public class WorkRequestDAO {
 
     public List<WorkRequest> getWorkRequestsBySender(int enterpriseId) {
         List<WorkRequest> list = new ArrayList<>();
-        String query = "SELECT * FROM work_requests WHERE sender_enterprise_id = ? ORDER BY created_at DESC";
+        String query = "SELECT " + COLUMNS + " FROM work_requests WHERE sender_enterprise_id = ? ORDER BY created_at DESC";
         try (Connection conn = MySQLConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, enterpriseId);
             ResultSet rs = stmt.executeQuery();
@@ -77,7 +97,7 @@ public class WorkRequestDAO {
     }
 
     public WorkRequest getWorkRequest(int id) {
-        String query = "SELECT * FROM work_requests WHERE id = ?";
+        String query = "SELECT " + COLUMNS + " FROM work_requests WHERE id = ?";
         try (Connection conn = MySQLConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
@@ -88,38 +108,60 @@ public class WorkRequestDAO {
         return null;
     }
 
-    public void updateWorkRequestStatus(int id, String status) {
+    // False when the request does not exist or could not be updated
+    public boolean updateWorkRequestStatus(int id, String status) {
         String query = "UPDATE work_requests SET status = ? WHERE id = ?";
-        try (Connection conn = MySQLConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, status);
-            stmt.setInt(2, id);
-            stmt.executeUpdate();
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, status);
+                stmt.setInt(2, id);
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                ChangeLogDAO.record(conn, ChangeRecord.WORK_REQUEST, id, 0, ChangeRecord.UPDATE);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to update work request status", e);
         }
+        return false;
     }
 
     public void deleteWorkRequest(int id) {
         String query = "DELETE FROM work_requests WHERE id = ?";
-        try (Connection conn = MySQLConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
+        try (Connection conn = MySQLConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, id);
+                if (stmt.executeUpdate() > 0) ChangeLogDAO.record(conn, ChangeRecord.WORK_REQUEST, id, 0, ChangeRecord.DELETE);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to delete work request", e);
         }
     }
 
-    private WorkRequest map(ResultSet rs) throws SQLException {
+    // Reads a row selected with COLUMNS by position
+    static WorkRequest map(ResultSet rs) throws SQLException {
         WorkRequest wr = new WorkRequest();
-        wr.setId(rs.getInt("id"));
-        wr.setType(rs.getString("type"));
-        wr.setSenderEnterpriseId(rs.getInt("sender_enterprise_id"));
-        wr.setReceiverEnterpriseId(rs.getInt("receiver_enterprise_id"));
-        int orderId = rs.getInt("related_order_id");
+        wr.setId(rs.getInt(1));
+        wr.setType(rs.getString(2));
+        wr.setSenderEnterpriseId(rs.getInt(3));
+        wr.setReceiverEnterpriseId(rs.getInt(4));
+        int orderId = rs.getInt(5);
         if (!rs.wasNull()) wr.setRelatedOrderId(orderId);
-        wr.setStatus(rs.getString("status"));
-        wr.setMessage(rs.getString("message"));
-        Timestamp ts = rs.getTimestamp("created_at");
+        wr.setStatus(rs.getString(6));
+        wr.setMessage(rs.getString(7));
+        Timestamp ts = rs.getTimestamp(8);
         if (ts != null) wr.setCreatedAt(ts.toLocalDateTime());
         return wr;
     }
@@ -0,0 +1,338 @@
+package database;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Bounded JDBC connection pool. Borrowers block up to the borrow timeout when all
+ * connections are in use; idle connections beyond the minimum are evicted by a
+ * background housekeeper.
+ */
+public class ConnectionPool implements DataSource {
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+    // Skip the validation round trip for connections that were used this recently
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minIdle;
+    private final int maxSize;
+    private final long borrowTimeoutNanos;
+    private final long idleTimeoutNanos;
+    private final long maxLifetimeNanos;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    // Most recently returned connection first, so the warmest socket is reused
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private int total;
+    private int waiters;
+    private boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final StatementCache.CacheCounters statementCounters = new StatementCache.CacheCounters();
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String user, String password, int minIdle, int maxSize,
+            long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis, int validationTimeoutSeconds,
+            int statementCacheSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Pool max size must be positive");
+        if (minIdle < 0 || minIdle > maxSize) throw new IllegalArgumentException("Pool min idle must be between 0 and max size");
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.borrowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis / 2, 30_000));
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + borrowTimeoutNanos;
+        while (true) {
+            PooledConnection pc;
+            boolean create = false;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) throw new SQLException("Connection pool is closed");
+                    pc = idle.pollFirst();
+                    if (pc != null) break;
+                    if (total < maxSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.increment();
+                        throw new SQLTimeoutException("Timed out after " + TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos)
+                                + "ms waiting for a database connection (" + maxSize + " in use)");
+                    }
+                    waiters++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", ie);
+                    } finally {
+                        waiters--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                pc = createConnection();
+            } else if (!isUsable(pc)) {
+                discard(pc);
+                continue;
+            }
+            recordWait(System.nanoTime() - start);
+            return pc.lease();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool connections always use the configured credentials");
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        try {
+            StatementCache cache = statementCacheSize > 0 ? new StatementCache(statementCacheSize, statementCounters) : null;
+            PooledConnection pc = new PooledConnection(DriverManager.getConnection(url, user, password), this, cache);
+            createdCount.increment();
+            return pc;
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        if (pc.isBroken() || expired(pc, System.nanoTime())) return false;
+        if (System.nanoTime() - pc.getLastUsedAt() < VALIDATION_BYPASS_NANOS) return true;
+        try {
+            return pc.getPhysical().isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean expired(PooledConnection pc, long now) {
+        return maxLifetimeNanos > 0 && now - pc.getCreatedAt() > maxLifetimeNanos;
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    void release(PooledConnection pc) {
+        boolean reusable = !pc.isBroken();
+        if (reusable) {
+            try {
+                pc.reset();
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Discarding connection that could not be reset", e);
+                reusable = false;
+            }
+        }
+        if (!reusable) {
+            discard(pc);
+            return;
+        }
+        pc.touch();
+        boolean closeNow;
+        lock.lock();
+        try {
+            closeNow = closed;
+            if (closeNow) {
+                total--;
+            } else {
+                idle.addFirst(pc);
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (closeNow) pc.closePhysical();
+    }
+
+    private void discard(PooledConnection pc) {
+        pc.closePhysical();
+        evictedCount.increment();
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void housekeep() {
+        try {
+            List<PooledConnection> evicted = new ArrayList<>();
+            long now = System.nanoTime();
+            lock.lock();
+            try {
+                // Oldest idle connections sit at the tail
+                Iterator<PooledConnection> it = idle.descendingIterator();
+                while (it.hasNext()) {
+                    PooledConnection pc = it.next();
+                    boolean idleTooLong = idle.size() > minIdle && now - pc.getLastUsedAt() > idleTimeoutNanos;
+                    if (idleTooLong || expired(pc, now)) {
+                        it.remove();
+                        total--;
+                        evicted.add(pc);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (PooledConnection pc : evicted) {
+                pc.closePhysical();
+                evictedCount.increment();
+            }
+            fillToMinIdle();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Connection pool housekeeping failed", e);
+        }
+    }
+
+    private void fillToMinIdle() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || idle.size() >= minIdle || total >= maxSize) return;
+                total++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                release(createConnection());
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Unable to pre-open pooled connection", e);
+                return;
+            }
+        }
+    }
+
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            int cachedStatements = 0;
+            for (PooledConnection pc : idle) cachedStatements += pc.cachedStatementCount();
+            return new PoolStats(total - idle.size(), idle.size(), total, maxSize, waiters,
+                    borrowCount.sum(), timeoutCount.sum(), createdCount.sum(), evictedCount.sum(),
+                    totalWaitNanos.sum(), maxWaitNanos.get(),
+                    statementCounters.getHits(), statementCounters.getMisses(), cachedStatements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledConnection pc : toClose) pc.closePhysical();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Pool logs through java.util.logging
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
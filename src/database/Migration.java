@@ -0,0 +1,133 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One versioned schema change. MySQL commits DDL implicitly, so a migration cannot be
+ * rolled back half way; every step must be safe to re-run, which the helpers below
+ * ({@link #createIndexIfMissing}, {@link #addColumnIfMissing}) take care of.
+ */
+public abstract class Migration {
+    private final int version;
+    private final String description;
+
+    protected Migration(int version, String description) {
+        if (version <= 0) throw new IllegalArgumentException("Migration version must be positive");
+        this.version = version;
+        this.description = description;
+    }
+
+    public int getVersion() { return version; }
+    public String getDescription() { return description; }
+
+    public abstract void apply(Connection conn) throws SQLException;
+
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    public static Migration sql(int version, String description, String... statements) {
+        return new Migration(version, description) {
+            @Override
+            public void apply(Connection conn) throws SQLException {
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : statements) {
+                        stmt.execute(sql);
+                    }
+                }
+            }
+        };
+    }
+
+    public static Migration java(int version, String description, Step step) {
+        return new Migration(version, description) {
+            @Override
+            public void apply(Connection conn) throws SQLException {
+                step.apply(conn);
+            }
+        };
+    }
+
+    public static boolean tableExists(Connection conn, String table) throws SQLException {
+        String query = "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    public static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        String query = "SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // True when an index with this name exists, or any index already starts with exactly these columns
+    public static boolean indexExists(Connection conn, String table, String indexName, String... columns) throws SQLException {
+        String query = "SELECT INDEX_NAME, COLUMN_NAME FROM information_schema.STATISTICS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY INDEX_NAME, SEQ_IN_INDEX";
+        List<String> currentColumns = new ArrayList<>();
+        String currentIndex = null;
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    if (name.equalsIgnoreCase(indexName)) return true;
+                    if (!name.equals(currentIndex)) {
+                        if (startsWith(currentColumns, columns)) return true;
+                        currentIndex = name;
+                        currentColumns.clear();
+                    }
+                    currentColumns.add(rs.getString(2).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return startsWith(currentColumns, columns);
+    }
+
+    private static boolean startsWith(List<String> indexColumns, String[] columns) {
+        if (columns.length == 0 || indexColumns.size() < columns.length) return false;
+        for (int i = 0; i < columns.length; i++) {
+            if (!indexColumns.get(i).equals(columns[i].toLowerCase(Locale.ROOT))) return false;
+        }
+        return true;
+    }
+
+    public static void createIndexIfMissing(Connection conn, String table, String indexName, String... columns) throws SQLException {
+        if (indexExists(conn, table, indexName, columns)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX " + indexName + " ON " + table + " (" + String.join(", ", columns) + ")");
+        }
+    }
+
+    // Matches on index name only: an existing non-unique index on the same columns does not count
+    public static void createUniqueIndexIfMissing(Connection conn, String table, String indexName, String... columns) throws SQLException {
+        if (indexExists(conn, table, indexName)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE UNIQUE INDEX " + indexName + " ON " + table + " (" + String.join(", ", columns) + ")");
+        }
+    }
+
+    public static void addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+        if (columnExists(conn, table, column)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+}
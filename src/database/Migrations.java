@@ -0,0 +1,222 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Ordered list of every schema migration. Append new entries with the next version
+// number; never edit or renumber one that has shipped.
+public final class Migrations {
+    private Migrations() {}
+
+    public static List<Migration> all() {
+        return List.of(
+            Migration.sql(1, "Baseline schema",
+                "CREATE TABLE IF NOT EXISTS enterprises ("
+                    + " id INT AUTO_INCREMENT PRIMARY KEY,"
+                    + " name VARCHAR(100) NOT NULL,"
+                    + " type VARCHAR(50) NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS organizations ("
+                    + " id INT AUTO_INCREMENT PRIMARY KEY,"
+                    + " name VARCHAR(100) NOT NULL,"
+                    + " type VARCHAR(50) NOT NULL,"
+                    + " enterprise_id INT,"
+                    + " FOREIGN KEY (enterprise_id) REFERENCES enterprises(id) ON DELETE CASCADE)",
+                "CREATE TABLE IF NOT EXISTS users ("
+                    + " id INT AUTO_INCREMENT PRIMARY KEY,"
+                    + " username VARCHAR(50) NOT NULL UNIQUE,"
+                    + " password VARCHAR(100) NOT NULL,"
+                    + " role VARCHAR(50) NOT NULL,"
+                    + " name VARCHAR(100),"
+                    + " phone VARCHAR(20),"
+                    + " email VARCHAR(100),"
+                    + " organization_id INT,"
+                    + " FOREIGN KEY (organization_id) REFERENCES organizations(id) ON DELETE SET NULL)",
+                "CREATE TABLE IF NOT EXISTS menu_items ("
+                    + " id INT AUTO_INCREMENT PRIMARY KEY,"
+                    + " restaurant_id INT NOT NULL,"
+                    + " name VARCHAR(100) NOT NULL,"
+                    + " price DECIMAL(10, 2) NOT NULL,"
+                    + " description TEXT,"
+                    + " FOREIGN KEY (restaurant_id) REFERENCES organizations(id) ON DELETE CASCADE)",
+                "CREATE TABLE IF NOT EXISTS orders ("
+                    + " id INT AUTO_INCREMENT PRIMARY KEY,"
+                    + " customer_id INT NOT NULL,"
+                    + " restaurant_id INT NOT NULL,"
+                    + " delivery_man_id INT,"
+                    + " status VARCHAR(50) NOT NULL,"
+                    + " order_date DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                    + " delivery_address TEXT,"
+                    + " comment TEXT,"
+                    + " FOREIGN KEY (customer_id) REFERENCES users(id),"
+                    + " FOREIGN KEY (restaurant_id) REFERENCES organizations(id),"
+                    + " FOREIGN KEY (delivery_man_id) REFERENCES users(id))",
+                "CREATE TABLE IF NOT EXISTS order_items ("
+                    + " id INT AUTO_INCREMENT PRIMARY KEY,"
+                    + " order_id INT NOT NULL,"
+                    + " menu_item_name VARCHAR(100) NOT NULL,"
+                    + " price DECIMAL(10, 2) NOT NULL,"
+                    + " quantity INT NOT NULL,"
+                    + " FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE)",
+                "CREATE TABLE IF NOT EXISTS work_requests ("
+                    + " id INT AUTO_INCREMENT PRIMARY KEY,"
+                    + " type VARCHAR(50),"
+                    + " sender_enterprise_id INT,"
+                    + " receiver_enterprise_id INT,"
+                    + " related_order_id INT,"
+                    + " status VARCHAR(50),"
+                    + " message TEXT,"
+                    + " created_at DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                    + " FOREIGN KEY (sender_enterprise_id) REFERENCES enterprises(id) ON DELETE SET NULL,"
+                    + " FOREIGN KEY (receiver_enterprise_id) REFERENCES enterprises(id) ON DELETE SET NULL)"),
+
+            Migration.java(2, "Indexes for order, menu and work request queries", conn -> {
+                // OrderDAO keyset pages: WHERE <owner> = ? ORDER BY order_date DESC, id DESC
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_customer_date", "customer_id", "order_date", "id");
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_restaurant_date", "restaurant_id", "order_date", "id");
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_delivery_man_date", "delivery_man_id", "order_date", "id");
+                // Kitchen queues and driver workloads filter by status within an owner
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_restaurant_status_date", "restaurant_id", "status", "order_date");
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_delivery_man_status", "delivery_man_id", "status");
+                // MenuItemDAO.getMenuItemsByRestaurant and OrderItemDAO.getOrderItemsByOrderId
+                Migration.createIndexIfMissing(conn, "menu_items", "idx_menu_items_restaurant", "restaurant_id");
+                Migration.createIndexIfMissing(conn, "order_items", "idx_order_items_order", "order_id");
+                // WorkRequestDAO: WHERE receiver/sender = ? ORDER BY created_at DESC
+                Migration.createIndexIfMissing(conn, "work_requests", "idx_work_requests_receiver_created", "receiver_enterprise_id", "created_at");
+                Migration.createIndexIfMissing(conn, "work_requests", "idx_work_requests_sender_created", "sender_enterprise_id", "created_at");
+            }),
+
+            Migration.java(3, "Normalized, uniquely indexed username for login lookups", conn -> {
+                // The unique index would fail half way through on names that only differ by case or
+                // surrounding whitespace, so refuse up front and name the offenders
+                List<String> collisions = new ArrayList<>();
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT LOWER(TRIM(username)) AS n, COUNT(*) FROM users"
+                             + " GROUP BY n HAVING COUNT(*) > 1")) {
+                    while (rs.next()) collisions.add(rs.getString(1) + " x" + rs.getInt(2));
+                }
+                if (!collisions.isEmpty()) {
+                    throw new SQLException("Usernames collide once normalized, rename them first: " + collisions);
+                }
+                // STORED generated column: the ALTER backfills every existing row and MySQL keeps it in sync
+                Migration.addColumnIfMissing(conn, "users", "username_normalized",
+                        "VARCHAR(50) GENERATED ALWAYS AS (LOWER(TRIM(username))) STORED");
+                Migration.createUniqueIndexIfMissing(conn, "users", "uq_users_username_normalized", "username_normalized");
+            }),
+
+            Migration.java(4, "Order row version for compare-and-set status changes", conn -> {
+                // Bumped by every status change; OrderDAO.updateOrderStatus only writes when it still matches
+                Migration.addColumnIfMissing(conn, "orders", "version", "INT NOT NULL DEFAULT 0");
+            }),
+
+            Migration.java(5, "Delivery claims with lease expiry", conn -> {
+                Migration.addColumnIfMissing(conn, "orders", "claimed_by", "INT NULL");
+                Migration.addColumnIfMissing(conn, "orders", "claim_expires_at", "DATETIME(3) NULL");
+                // DeliveryQueue claims: unassigned ready orders, oldest first
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_ready_queue", "status", "delivery_man_id", "order_date");
+                // Lease reaper and a driver's own claims
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_claim_expiry", "status", "claim_expires_at");
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_claimed_by", "claimed_by");
+            }),
+
+            Migration.java(6, "Coordinates for organizations and deliveries, gazetteer of known places", conn -> {
+                Migration.addColumnIfMissing(conn, "organizations", "lat", "DOUBLE NULL");
+                Migration.addColumnIfMissing(conn, "organizations", "lng", "DOUBLE NULL");
+                Migration.addColumnIfMissing(conn, "orders", "delivery_lat", "DOUBLE NULL");
+                Migration.addColumnIfMissing(conn, "orders", "delivery_lng", "DOUBLE NULL");
+                try (Statement stmt = conn.createStatement()) {
+                    // Stands in for a geocoder: normalized place name or postcode -> coordinates
+                    stmt.execute("CREATE TABLE IF NOT EXISTS gazetteer ("
+                            + " place_key VARCHAR(191) PRIMARY KEY,"
+                            + " lat DOUBLE NOT NULL,"
+                            + " lng DOUBLE NOT NULL)");
+                    stmt.execute("INSERT IGNORE INTO gazetteer (place_key, lat, lng) VALUES"
+                            + " ('boston', 42.3601, -71.0589),"
+                            + " ('cambridge', 42.3736, -71.1097),"
+                            + " ('brookline', 42.3318, -71.1212),"
+                            + " ('somerville', 42.3876, -71.0995),"
+                            + " ('new york', 40.7128, -74.0060),"
+                            + " ('brooklyn', 40.6782, -73.9442),"
+                            + " ('02108', 42.3576, -71.0637),"
+                            + " ('02115', 42.3427, -71.0922),"
+                            + " ('02116', 42.3496, -71.0765),"
+                            + " ('02118', 42.3362, -71.0728),"
+                            + " ('02215', 42.3476, -71.1030),"
+                            + " ('02139', 42.3647, -71.1042),"
+                            + " ('10001', 40.7506, -73.9972),"
+                            + " ('10003', 40.7317, -73.9891)");
+                }
+            }),
+
+            Migration.java(7, "Multi-stop delivery trips", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE TABLE IF NOT EXISTS trips ("
+                            + " id INT AUTO_INCREMENT PRIMARY KEY,"
+                            + " restaurant_id INT NOT NULL,"
+                            + " driver_id INT NULL,"
+                            + " status VARCHAR(20) NOT NULL,"
+                            + " created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),"
+                            + " version INT NOT NULL DEFAULT 0,"
+                            + " KEY idx_trips_status_created (status, created_at),"
+                            + " KEY idx_trips_driver_status (driver_id, status))");
+                    stmt.execute("CREATE TABLE IF NOT EXISTS trip_stops ("
+                            + " trip_id INT NOT NULL,"
+                            + " seq INT NOT NULL,"
+                            + " order_id INT NOT NULL,"
+                            + " stop_type VARCHAR(10) NOT NULL,"
+                            + " lat DOUBLE NULL,"
+                            + " lng DOUBLE NULL,"
+                            + " PRIMARY KEY (trip_id, seq),"
+                            + " FOREIGN KEY (trip_id) REFERENCES trips(id) ON DELETE CASCADE)");
+                }
+                Migration.addColumnIfMissing(conn, "orders", "trip_id", "INT NULL");
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_trip", "trip_id");
+            }),
+
+            Migration.java(8, "Order status history", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE TABLE IF NOT EXISTS order_status_history ("
+                            + " id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                            + " order_id INT NOT NULL,"
+                            + " status VARCHAR(50) NOT NULL,"
+                            + " changed_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),"
+                            + " KEY idx_status_history_order (order_id, changed_at),"
+                            + " KEY idx_status_history_changed (changed_at))");
+                }
+            }),
+
+            Migration.java(9, "Last known driver locations", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE TABLE IF NOT EXISTS driver_locations ("
+                            + " driver_id INT PRIMARY KEY,"
+                            + " lat DOUBLE NOT NULL,"
+                            + " lng DOUBLE NOT NULL,"
+                            + " reported_at DATETIME(3) NOT NULL,"
+                            + " KEY idx_driver_locations_reported (reported_at))");
+                }
+            }),
+
+            Migration.java(10, "Change log", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE TABLE IF NOT EXISTS change_log ("
+                            + " id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                            + " entity VARCHAR(32) NOT NULL,"
+                            + " entity_id INT NOT NULL,"
+                            + " version INT NOT NULL DEFAULT 0,"
+                            + " op VARCHAR(8) NOT NULL,"
+                            + " changed_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),"
+                            + " KEY idx_change_log_entity (entity, entity_id, id),"
+                            + " KEY idx_change_log_changed (changed_at))");
+                }
+            }),
+
+            Migration.java(11, "Indexes for restaurant order lists sorted by id", conn -> {
+                // OrderDAO.loadOrdersPageByRestaurant: WHERE restaurant_id = ? [AND status = ?] ORDER BY id
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_restaurant_id", "restaurant_id", "id");
+                Migration.createIndexIfMissing(conn, "orders", "idx_orders_restaurant_status_id", "restaurant_id", "status", "id");
+            })
+        );
+    }
+}
@@ -0,0 +1,73 @@
+package database;
+
+// Point-in-time snapshot of connection pool counters
+public class PoolStats {
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int maxSize;
+    private final int waiters;
+    private final long borrowCount;
+    private final long timeoutCount;
+    private final long createdCount;
+    private final long evictedCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final int idleCachedStatements;
+
+    public PoolStats(int active, int idle, int total, int maxSize, int waiters, long borrowCount, long timeoutCount,
+            long createdCount, long evictedCount, long totalWaitNanos, long maxWaitNanos,
+            long statementCacheHits, long statementCacheMisses, int idleCachedStatements) {
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.maxSize = maxSize;
+        this.waiters = waiters;
+        this.borrowCount = borrowCount;
+        this.timeoutCount = timeoutCount;
+        this.createdCount = createdCount;
+        this.evictedCount = evictedCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.idleCachedStatements = idleCachedStatements;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getTotal() { return total; }
+    public int getMaxSize() { return maxSize; }
+    public int getWaiters() { return waiters; }
+    public long getBorrowCount() { return borrowCount; }
+    public long getTimeoutCount() { return timeoutCount; }
+    public long getCreatedCount() { return createdCount; }
+    public long getEvictedCount() { return evictedCount; }
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+    // Statements cached on connections currently sitting idle in the pool
+    public int getIdleCachedStatements() { return idleCachedStatements; }
+
+    public double getStatementCacheHitRate() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0.0 : (double) statementCacheHits / lookups;
+    }
+
+    public double getAverageWaitMillis() {
+        return borrowCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolStats[active=%d, idle=%d, total=%d/%d, waiters=%d, borrows=%d, timeouts=%d, created=%d, evicted=%d, avgWait=%.2fms, maxWait=%.2fms, stmtHits=%d, stmtMisses=%d, stmtHitRate=%.1f%%]",
+                active, idle, total, maxSize, waiters, borrowCount, timeoutCount, createdCount, evictedCount,
+                getAverageWaitMillis(), getMaxWaitMillis(), statementCacheHits, statementCacheMisses,
+                getStatementCacheHitRate() * 100);
+    }
+}
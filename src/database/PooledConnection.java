@@ -0,0 +1,111 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// A physical connection owned by the pool. Each borrow hands out a fresh proxy whose
+// close() returns the connection to the pool instead of closing the socket, and whose
+// prepareStatement() is served from this connection's statement cache.
+class PooledConnection {
+    private final Connection physical;
+    private final ConnectionPool pool;
+    private final StatementCache statementCache;
+    private final long createdAt = System.nanoTime();
+    private volatile long lastUsedAt = createdAt;
+    private volatile boolean broken;
+
+    PooledConnection(Connection physical, ConnectionPool pool, StatementCache statementCache) {
+        this.physical = physical;
+        this.pool = pool;
+        this.statementCache = statementCache;
+    }
+
+    Connection getPhysical() { return physical; }
+    long getCreatedAt() { return createdAt; }
+    long getLastUsedAt() { return lastUsedAt; }
+    void touch() { lastUsedAt = System.nanoTime(); }
+    boolean isBroken() { return broken; }
+
+    Connection lease() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new LeaseHandler());
+    }
+
+    // Restore the defaults DAOs expect before the connection is handed to the next borrower
+    void reset() throws SQLException {
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        physical.clearWarnings();
+    }
+
+    int cachedStatementCount() {
+        return statementCache == null ? 0 : statementCache.size();
+    }
+
+    void closePhysical() {
+        if (statementCache != null) statementCache.clear();
+        try {
+            physical.close();
+        } catch (SQLException ignored) {
+            // Connection is being discarded; nothing useful to do with the error
+        }
+    }
+
+    private class LeaseHandler implements InvocationHandler {
+        private boolean returned;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + (returned ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (statementCache != null && "prepareStatement".equals(method.getName())) {
+                Class<?>[] params = method.getParameterTypes();
+                if (params.length == 1) {
+                    return statementCache.prepare(physical, (Connection) proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (params.length == 2 && params[1] == int.class) {
+                    return statementCache.prepare(physical, (Connection) proxy, (String) args[0], (Integer) args[1]);
+                }
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    // SQLState class 08 is a connection exception: never hand this socket out again
+                    if (state != null && state.startsWith("08")) broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+}
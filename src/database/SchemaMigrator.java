@@ -0,0 +1,186 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import util.AppConfig;
+
+/**
+ * Applies pending {@link Migration}s in version order and records each one in the
+ * schema_migrations table. A MySQL named lock serialises concurrent runners, so several
+ * app nodes can start against the same database at once.
+ *
+ * <p>CLI: {@code java -cp "lib/*:out" database.SchemaMigrator [migrate|status]}
+ */
+public class SchemaMigrator {
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+    private static final String LOCK_NAME = "food_delivery_db.schema_migration";
+
+    private final DataSource dataSource;
+    private final List<Migration> migrations;
+    private final int lockTimeoutSeconds;
+
+    public SchemaMigrator(DataSource dataSource, List<Migration> migrations, int lockTimeoutSeconds) {
+        this.dataSource = dataSource;
+        this.migrations = new ArrayList<>(migrations);
+        this.migrations.sort(Comparator.comparingInt(Migration::getVersion));
+        for (int i = 1; i < this.migrations.size(); i++) {
+            if (this.migrations.get(i).getVersion() == this.migrations.get(i - 1).getVersion()) {
+                throw new IllegalArgumentException("Duplicate migration version " + this.migrations.get(i).getVersion());
+            }
+        }
+        this.lockTimeoutSeconds = lockTimeoutSeconds;
+    }
+
+    // Runs the migrations unless disabled with db.migrate.onStartup=false; failures are logged, not thrown
+    public static void migrateOnStartup() {
+        if (!AppConfig.getBoolean("db.migrate.onStartup", true)) return;
+        try {
+            new SchemaMigrator(MySQLConnection.getDataSource(), Migrations.all(),
+                    AppConfig.getInt("db.migrate.lockTimeoutSec", 60)).migrate();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Schema migration failed; continuing with the existing schema", e);
+        }
+    }
+
+    // Returns the number of migrations applied by this call
+    public int migrate() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            ensureHistoryTable(conn);
+            acquireLock(conn);
+            try {
+                Map<Integer, String> applied = loadApplied(conn);
+                int latestKnown = migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+                for (int version : applied.keySet()) {
+                    if (version > latestKnown) {
+                        LOGGER.warning("Database has migration V" + version + " which this build does not know about");
+                    }
+                }
+                int count = 0;
+                for (Migration m : migrations) {
+                    if (applied.containsKey(m.getVersion())) continue;
+                    long start = System.nanoTime();
+                    LOGGER.info("Applying migration V" + m.getVersion() + ": " + m.getDescription());
+                    try {
+                        m.apply(conn);
+                    } catch (SQLException e) {
+                        throw new SQLException("Migration V" + m.getVersion() + " (" + m.getDescription() + ") failed", e);
+                    }
+                    recordApplied(conn, m, (System.nanoTime() - start) / 1_000_000);
+                    count++;
+                }
+                if (count > 0) LOGGER.info("Applied " + count + " schema migration(s)");
+                return count;
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    // Version -> "description (applied_at)" for every migration recorded in the database
+    public Map<Integer, String> status() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            ensureHistoryTable(conn);
+            return loadApplied(conn);
+        }
+    }
+
+    public List<Migration> getPending() throws SQLException {
+        Map<Integer, String> applied = status();
+        List<Migration> pending = new ArrayList<>();
+        for (Migration m : migrations) {
+            if (!applied.containsKey(m.getVersion())) pending.add(m);
+        }
+        return pending;
+    }
+
+    private void ensureHistoryTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_migrations ("
+                    + " version INT PRIMARY KEY,"
+                    + " description VARCHAR(200) NOT NULL,"
+                    + " applied_at DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                    + " execution_ms BIGINT)");
+        }
+    }
+
+    private void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, lockTimeoutSeconds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out after " + lockTimeoutSeconds + "s waiting for the schema migration lock");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to release schema migration lock", e);
+        }
+    }
+
+    private Map<Integer, String> loadApplied(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, description, applied_at FROM schema_migrations ORDER BY version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2) + " (" + rs.getTimestamp(3) + ")");
+            }
+        }
+        return applied;
+    }
+
+    private void recordApplied(Connection conn, Migration m, long executionMs) throws SQLException {
+        String query = "INSERT INTO schema_migrations (version, description, execution_ms) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, m.getVersion());
+            stmt.setString(2, m.getDescription());
+            stmt.setLong(3, executionMs);
+            stmt.executeUpdate();
+        }
+    }
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "migrate";
+        SchemaMigrator migrator = new SchemaMigrator(MySQLConnection.getDataSource(), Migrations.all(),
+                AppConfig.getInt("db.migrate.lockTimeoutSec", 60));
+        try {
+            switch (command) {
+                case "migrate" -> System.out.println("Applied " + migrator.migrate() + " migration(s)");
+                case "status" -> {
+                    migrator.status().forEach((v, d) -> System.out.println("  applied  V" + v + "  " + d));
+                    for (Migration m : migrator.getPending()) {
+                        System.out.println("  pending  V" + m.getVersion() + "  " + m.getDescription());
+                    }
+                }
+                default -> {
+                    System.err.println("Usage: SchemaMigrator [migrate|status]");
+                    System.exit(2);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Schema migration command failed", e);
+            System.exit(1);
+        } finally {
+            MySQLConnection.shutdown();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+// LRU of prepared statements owned by one physical connection. Only statements that
+// are not currently handed out live in the map: prepare() checks one out and the
+// caller's close() checks it back in, so two open statements never share a cursor.
+class StatementCache {
+    private final int maxSize;
+    private final CacheCounters counters;
+    private final LinkedHashMap<Key, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int maxSize, CacheCounters counters) {
+        this.maxSize = maxSize;
+        this.counters = counters;
+    }
+
+    PreparedStatement prepare(Connection physical, Connection lease, String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        PreparedStatement ps;
+        synchronized (this) {
+            ps = idle.remove(key);
+        }
+        if (ps != null) {
+            counters.hit();
+        } else {
+            counters.miss();
+            ps = physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new CachedStatementHandler(key, ps, lease));
+    }
+
+    private void checkIn(Key key, PreparedStatement ps) {
+        List<PreparedStatement> evicted = new ArrayList<>();
+        synchronized (this) {
+            PreparedStatement previous = idle.put(key, ps);
+            if (previous != null && previous != ps) evicted.add(previous);
+            Iterator<PreparedStatement> it = idle.values().iterator();
+            while (idle.size() > maxSize && it.hasNext()) {
+                evicted.add(it.next());
+                it.remove();
+            }
+        }
+        for (PreparedStatement stale : evicted) closeQuietly(stale);
+    }
+
+    synchronized int size() {
+        return idle.size();
+    }
+
+    void clear() {
+        List<PreparedStatement> all;
+        synchronized (this) {
+            all = new ArrayList<>(idle.values());
+            idle.clear();
+        }
+        for (PreparedStatement ps : all) closeQuietly(ps);
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+            // Statement is being dropped from the cache
+        }
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final int autoGeneratedKeys;
+
+        Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+
+    private class CachedStatementHandler implements InvocationHandler {
+        private final Key key;
+        private final PreparedStatement delegate;
+        private final Connection lease;
+        private boolean closed;
+
+        CachedStatementHandler(Key key, PreparedStatement delegate, Connection lease) {
+            this.key = key;
+            this.delegate = delegate;
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        recycle();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || delegate.isClosed();
+                case "getConnection":
+                    return lease;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + key.sql + "]";
+                default:
+                    break;
+            }
+            if (closed) throw new SQLException("Statement is closed");
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        // Leave the statement as a fresh prepareStatement() would have returned it
+        private void recycle() {
+            try {
+                if (delegate.isClosed()) return;
+                ResultSet open = delegate.getResultSet();
+                if (open != null) open.close();
+                delegate.clearParameters();
+                delegate.clearBatch();
+                delegate.clearWarnings();
+                checkIn(key, delegate);
+            } catch (SQLException e) {
+                closeQuietly(delegate);
+            }
+        }
+    }
+
+    // Hit/miss totals shared by every connection in a pool
+    static class CacheCounters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        void hit() { hits.increment(); }
+        void miss() { misses.increment(); }
+        long getHits() { return hits.sum(); }
+        long getMisses() { return misses.sum(); }
+    }
+}
@@ -0,0 +1,204 @@
+package ecosystem;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dao.ChangeLogDAO;
+import dao.OrderDAO;
+import dao.WorkRequestDAO;
+import model.ChangeRecord;
+import model.Order;
+import model.OrderEvent;
+import model.Organization;
+import model.WorkRequest;
+import model.WorkRequestEvent;
+import util.IntObjectMap;
+
+/**
+ * Brings changes committed by other app nodes sharing the database to this one. Every
+ * {@code pollMillis} it reads the change_log after its cursor, re-reads only the orders and
+ * work requests that changed (each once per batch, however often it changed) and publishes
+ * them on the {@link EventBus} as if they had changed here; menus that changed are dropped
+ * from the {@link MenuCache}. Changes made on this node come round again; subscribers
+ * ignore the ones they have already seen.
+ *
+ * <p>It also keeps the log short: entries superseded by a later entry for the same row are
+ * compacted once older than {@code compactAfterSeconds}, and all entries go after
+ * {@code retentionSeconds}. Maintenance runs under a database lock, so with several nodes
+ * maintaining only one works on the log at a time and the others skip that round. A node
+ * stopped for longer than the retention should reload its screens rather than trust the feed.
+ */
+public final class ChangeFeed {
+    private static final Logger LOGGER = Logger.getLogger(ChangeFeed.class.getName());
+    // Entries deleted per statement by retention, and compacted per statement
+    private static final int RETENTION_BATCH = 5_000;
+    private static final int COMPACT_WINDOW = 10_000;
+
+    private final ChangeLogDAO changeLogDAO;
+    private final OrderDAO orderDAO;
+    private final WorkRequestDAO workRequestDAO;
+    private final MenuCache menuCache;
+    private final DirectoryCache directory;
+    private final EventBus eventBus;
+    private final int batchSize;
+    private final int compactAfterSeconds;
+    private final int retentionSeconds;
+    private final ScheduledExecutorService scheduler;
+
+    // Scheduler thread only; -1 until the starting cursor has been read
+    private long cursor = -1;
+    private long compactedThrough;
+
+    private volatile long lastCursor = -1;
+    private volatile long changesApplied;
+    private volatile long failedPolls;
+    private volatile long entriesCompacted;
+    private volatile long entriesExpired;
+
+    ChangeFeed(ChangeLogDAO changeLogDAO, OrderDAO orderDAO, WorkRequestDAO workRequestDAO, MenuCache menuCache,
+            DirectoryCache directory, EventBus eventBus, int batchSize, int compactAfterSeconds, int retentionSeconds) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        if (compactAfterSeconds < 0 || retentionSeconds <= compactAfterSeconds) {
+            throw new IllegalArgumentException("Retention must be longer than the compaction delay");
+        }
+        this.changeLogDAO = changeLogDAO;
+        this.orderDAO = orderDAO;
+        this.workRequestDAO = workRequestDAO;
+        this.menuCache = menuCache;
+        this.directory = directory;
+        this.eventBus = eventBus;
+        this.batchSize = batchSize;
+        this.compactAfterSeconds = compactAfterSeconds;
+        this.retentionSeconds = retentionSeconds;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-feed");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Polls from the current end of the log; maintenance runs only where enabled
+    void start(long pollMillis, long maintenanceSeconds, boolean maintain) {
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+        if (maintain) {
+            scheduler.scheduleWithFixedDelay(this::maintain, maintenanceSeconds, maintenanceSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    void poll() {
+        try {
+            if (cursor < 0) {
+                // Only what happens from now on; screens load the present themselves
+                cursor = changeLogDAO.getLatestCursor();
+                lastCursor = cursor;
+                return;
+            }
+            List<ChangeRecord> changes;
+            do {
+                changes = changeLogDAO.getChangesSince(cursor, batchSize);
+                if (changes.isEmpty()) return;
+                apply(changes);
+                cursor = changes.get(changes.size() - 1).getCursor();
+                lastCursor = cursor;
+                changesApplied += changes.size();
+            } while (changes.size() == batchSize);
+        } catch (SQLException | RuntimeException e) {
+            // The cursor stays put, so the next poll picks up from the same place
+            failedPolls++;
+            LOGGER.log(Level.WARNING, "Failed to poll the change log", e);
+        }
+    }
+
+    private void apply(List<ChangeRecord> changes) throws SQLException {
+        // Latest entry per row; a row inserted within the batch stays an insert
+        IntObjectMap<String> orders = new IntObjectMap<>();
+        IntObjectMap<String> requests = new IntObjectMap<>();
+        for (ChangeRecord change : changes) {
+            switch (change.getEntity()) {
+                case ChangeRecord.ORDER -> merge(orders, change);
+                case ChangeRecord.WORK_REQUEST -> merge(requests, change);
+                case ChangeRecord.MENU -> menuCache.invalidate(change.getEntityId());
+                default -> { }
+            }
+        }
+        if (!orders.isEmpty() && eventBus.hasSubscribers(OrderEvent.class)) {
+            int[] ids = new int[orders.size()];
+            int[] n = { 0 };
+            orders.forEach((id, op) -> ids[n[0]++] = id);
+            DirectoryCache.Snapshot snapshot = directory.get();
+            for (Order order : orderDAO.loadOrdersByIds(ids)) {
+                OrderEvent.Kind kind = ChangeRecord.INSERT.equals(orders.get(order.getId()))
+                        ? OrderEvent.Kind.PLACED : OrderEvent.Kind.STATUS_CHANGED;
+                Organization restaurant = snapshot.getOrganization(order.getRestaurantId());
+                eventBus.publish(new OrderEvent(kind, order, restaurant == null ? null : restaurant.getEnterpriseId()));
+            }
+        }
+        if (!requests.isEmpty() && eventBus.hasSubscribers(WorkRequestEvent.class)) {
+            requests.forEach((id, op) -> {
+                // Deleted requests have nothing to show
+                WorkRequest request = ChangeRecord.DELETE.equals(op) ? null : workRequestDAO.getWorkRequest(id);
+                if (request != null) {
+                    eventBus.publish(new WorkRequestEvent(ChangeRecord.INSERT.equals(op)
+                            ? WorkRequestEvent.Kind.CREATED : WorkRequestEvent.Kind.STATUS_CHANGED, request));
+                }
+            });
+        }
+    }
+
+    private static void merge(IntObjectMap<String> ops, ChangeRecord change) {
+        String previous = ops.get(change.getEntityId());
+        boolean inserted = ChangeRecord.INSERT.equals(previous) && !ChangeRecord.DELETE.equals(change.getOp());
+        ops.put(change.getEntityId(), inserted ? ChangeRecord.INSERT : change.getOp());
+    }
+
+    // Compaction, then retention; skipped while another node is maintaining the log
+    void maintain() {
+        try {
+            changeLogDAO.maintainExclusively(this::compactAndExpire);
+        } catch (SQLException | RuntimeException e) {
+            // Keep the schedule alive; the next run continues where this one stopped
+            LOGGER.log(Level.WARNING, "Change log maintenance failed", e);
+        }
+    }
+
+    private void compactAndExpire() throws SQLException {
+        long horizon = changeLogDAO.getCursorBefore(compactAfterSeconds);
+        long compacted = 0;
+        while (compactedThrough < horizon) {
+            long to = Math.min(horizon, compactedThrough + COMPACT_WINDOW);
+            compacted += changeLogDAO.deleteSuperseded(compactedThrough, to);
+            compactedThrough = to;
+        }
+        entriesCompacted += compacted;
+        long expired = 0;
+        int deleted;
+        do {
+            deleted = changeLogDAO.deleteOlderThan(retentionSeconds, RETENTION_BATCH);
+            expired += deleted;
+        } while (deleted == RETENTION_BATCH);
+        entriesExpired += expired;
+        if (compacted + expired > 0) {
+            LOGGER.log(Level.INFO, "Change log: compacted {0}, expired {1} entries", new Object[] { compacted, expired });
+        }
+    }
+
+    // Cursor up to which changes have been applied, or -1 before the first poll
+    public long getCursor() { return lastCursor; }
+
+    public long getChangesApplied() { return changesApplied; }
+
+    public long getFailedPollCount() { return failedPolls; }
+
+    public long getEntriesCompacted() { return entriesCompacted; }
+
+    public long getEntriesExpired() { return entriesExpired; }
+}
@@ -0,0 +1,102 @@
+package ecosystem;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dao.OrderDAO;
+import dao.TripDAO;
+import model.Order;
+
+/**
+ * Pull-based work queue over the ReadyForPickup orders that no driver has been assigned.
+ * A driver claims the next few orders for {@code delivery.claimLeaseSeconds}; the claim is a
+ * lease, not an assignment, so an order a driver walks away from returns to the queue on its
+ * own once the lease runs out. Picking the order up (the status change to OutForDelivery)
+ * assigns the driver and ends the claim. Claims are taken with SKIP LOCKED, so any number of
+ * drivers can claim at once without waiting on each other.
+ *
+ * <p>Orders bundled into a trip stay out of the queue while dispatch looks for a driver for
+ * the trip; the reaper dissolves trips still unassigned after {@code bundle.planTtlSeconds}
+ * so their orders come back.
+ */
+public final class DeliveryQueue {
+    private static final Logger LOGGER = Logger.getLogger(DeliveryQueue.class.getName());
+
+    // Stale trips dissolved per reaper run
+    private static final int DISSOLVE_BATCH = 500;
+
+    private final OrderDAO orderDAO;
+    private final TripDAO tripDAO;
+    private final int leaseSeconds;
+    private final int planTtlSeconds;
+    private final int maxClaim;
+    private final ScheduledExecutorService reaper;
+
+    DeliveryQueue(OrderDAO orderDAO, TripDAO tripDAO, int leaseSeconds, int maxClaim, int planTtlSeconds, long reapIntervalSeconds) {
+        if (leaseSeconds <= 0) throw new IllegalArgumentException("Claim lease must be positive");
+        if (maxClaim <= 0) throw new IllegalArgumentException("Claim limit must be positive");
+        if (planTtlSeconds <= 0) throw new IllegalArgumentException("Trip plan TTL must be positive");
+        this.orderDAO = orderDAO;
+        this.tripDAO = tripDAO;
+        this.leaseSeconds = leaseSeconds;
+        this.planTtlSeconds = planTtlSeconds;
+        this.maxClaim = maxClaim;
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "delivery-claim-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        reaper.scheduleWithFixedDelay(this::reapExpiredClaims, reapIntervalSeconds, reapIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Claims up to {@code count} (capped at {@code delivery.maxClaim}) of the oldest unclaimed
+     * ready orders for the driver, counting the claims the driver already holds against the
+     * cap. restaurantEnterpriseId limits the pool to one enterprise's restaurants, or null for
+     * all. Returns the newly claimed orders; empty when the queue is drained or the claim failed.
+     */
+    public List<Order> claimNext(int driverId, Integer restaurantEnterpriseId, int count) {
+        int held = orderDAO.getClaimedOrders(driverId).size();
+        int wanted = Math.min(count, maxClaim - held);
+        if (wanted <= 0) return List.of();
+        List<Order> claimed = orderDAO.claimReadyOrders(driverId, restaurantEnterpriseId, wanted, leaseSeconds);
+        return claimed != null ? claimed : List.of();
+    }
+
+    // The driver's live claims, oldest first
+    public List<Order> getClaims(int driverId) {
+        return orderDAO.getClaimedOrders(driverId);
+    }
+
+    public boolean release(int orderId, int driverId) {
+        return orderDAO.releaseClaim(orderId, driverId);
+    }
+
+    public int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public int getMaxClaim() {
+        return maxClaim;
+    }
+
+    void reapExpiredClaims() {
+        try {
+            int released = orderDAO.releaseExpiredClaims();
+            if (released > 0) {
+                LOGGER.log(Level.INFO, "Returned {0} expired delivery claim(s) to the queue", released);
+            }
+            int dissolved = tripDAO.dissolveStalePlannedTrips(planTtlSeconds, DISSOLVE_BATCH);
+            if (dissolved > 0) {
+                LOGGER.log(Level.INFO, "Dissolved {0} unassigned trip(s) back into the queue", dissolved);
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next run tries again
+            LOGGER.log(Level.WARNING, "Delivery claim reaper failed", e);
+        }
+    }
+}
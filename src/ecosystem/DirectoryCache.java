@@ -0,0 +1,147 @@
+package ecosystem;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dao.EnterpriseDAO;
+import dao.OrganizationDAO;
+import model.Enterprise;
+import model.Organization;
+
+/**
+ * In-memory copy of the enterprise/organization directory. Readers get an immutable
+ * {@link Snapshot} from an {@link AtomicReference} without locking or querying; every
+ * change made through {@link EcoSystem} reloads both tables and swaps in a new snapshot.
+ * Snapshots older than {@code directory.refreshSeconds} are reloaded in the background so
+ * changes made by other nodes show up. The model objects handed out are shared between
+ * all readers and must not be modified.
+ */
+public final class DirectoryCache {
+    private static final Logger LOGGER = Logger.getLogger(DirectoryCache.class.getName());
+
+    public static final class Snapshot {
+        private final List<Enterprise> enterprises;
+        private final List<Organization> organizations;
+        private final Map<Integer, Enterprise> enterprisesById;
+        private final Map<Integer, Organization> organizationsById;
+        private final Map<Integer, List<Organization>> organizationsByEnterprise;
+        private final Map<String, List<Enterprise>> enterprisesByType;
+        private final long loadedAt;
+
+        private Snapshot(List<Enterprise> enterprises, List<Organization> organizations, long loadedAt) {
+            enterprises.sort(Comparator.comparingInt(Enterprise::getId));
+            organizations.sort(Comparator.comparingInt(Organization::getId));
+            Map<Integer, Enterprise> entById = new HashMap<>();
+            Map<String, List<Enterprise>> byType = new HashMap<>();
+            for (Enterprise e : enterprises) {
+                entById.put(e.getId(), e);
+                byType.computeIfAbsent(typeKey(e.getType()), k -> new ArrayList<>()).add(e);
+            }
+            Map<Integer, Organization> orgById = new HashMap<>();
+            Map<Integer, List<Organization>> byEnterprise = new HashMap<>();
+            for (Organization o : organizations) {
+                orgById.put(o.getId(), o);
+                byEnterprise.computeIfAbsent(o.getEnterpriseId(), k -> new ArrayList<>()).add(o);
+            }
+            this.enterprises = List.copyOf(enterprises);
+            this.organizations = List.copyOf(organizations);
+            this.enterprisesById = Map.copyOf(entById);
+            this.organizationsById = Map.copyOf(orgById);
+            this.organizationsByEnterprise = copyOfLists(byEnterprise);
+            this.enterprisesByType = copyOfLists(byType);
+            this.loadedAt = loadedAt;
+        }
+
+        private static <K, V> Map<K, List<V>> copyOfLists(Map<K, List<V>> source) {
+            Map<K, List<V>> copy = new HashMap<>();
+            source.forEach((k, v) -> copy.put(k, List.copyOf(v)));
+            return Map.copyOf(copy);
+        }
+
+        public List<Enterprise> getEnterprises() { return enterprises; }
+
+        public List<Organization> getOrganizations() { return organizations; }
+
+        public Enterprise getEnterprise(int id) { return enterprisesById.get(id); }
+
+        public Organization getOrganization(int id) { return organizationsById.get(id); }
+
+        public List<Organization> getOrganizationsByEnterprise(int enterpriseId) {
+            return organizationsByEnterprise.getOrDefault(enterpriseId, List.of());
+        }
+
+        // Case-insensitive, e.g. "Restaurant" or "Delivery"
+        public List<Enterprise> getEnterprisesByType(String type) {
+            return enterprisesByType.getOrDefault(typeKey(type), List.of());
+        }
+
+        public long getLoadedAt() { return loadedAt; }
+    }
+
+    private static String typeKey(String type) {
+        return type == null ? "" : type.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private final EnterpriseDAO enterpriseDAO;
+    private final OrganizationDAO organizationDAO;
+    private final long maxAgeMillis;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicBoolean backgroundRefresh = new AtomicBoolean();
+    // Background reloads block on JDBC, so they get their own thread rather than the common pool
+    private final ExecutorService reloader;
+
+    DirectoryCache(EnterpriseDAO enterpriseDAO, OrganizationDAO organizationDAO, long maxAgeMillis) {
+        this.enterpriseDAO = enterpriseDAO;
+        this.organizationDAO = organizationDAO;
+        this.maxAgeMillis = maxAgeMillis;
+        reloader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "directory-reload");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public Snapshot get() {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) return refresh();
+        if (System.currentTimeMillis() - snapshot.getLoadedAt() > maxAgeMillis
+                && backgroundRefresh.compareAndSet(false, true)) {
+            // Serve the stale snapshot now; the next reader sees the reloaded one
+            reloader.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    backgroundRefresh.set(false);
+                }
+            });
+        }
+        return snapshot;
+    }
+
+    // Reloads both tables and swaps the snapshot; synchronized so concurrent writers cannot
+    // publish an older load after a newer one. On failure the previous snapshot stays in place.
+    synchronized Snapshot refresh() {
+        try {
+            Snapshot next = new Snapshot(enterpriseDAO.loadAllEnterprises(),
+                    organizationDAO.loadAllOrganizations(), System.currentTimeMillis());
+            current.set(next);
+            return next;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to reload the enterprise directory", e);
+            Snapshot previous = current.get();
+            // Nothing cached yet: serve an empty directory and let the next read try again
+            return previous != null ? previous : new Snapshot(new ArrayList<>(), new ArrayList<>(), 0);
+        }
+    }
+}
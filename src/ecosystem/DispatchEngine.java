@@ -0,0 +1,431 @@
+package ecosystem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dao.OrderDAO;
+import dao.TripDAO;
+import dao.UserDAO;
+import model.Enterprise;
+import model.GeoPoint;
+import model.Order;
+import model.OrderStatus;
+import model.Organization;
+import model.Trip;
+import model.TripStop;
+import model.User;
+import util.IntObjectMap;
+
+/**
+ * Assigns unassigned ReadyForPickup orders to delivery staff automatically. Every tick it
+ * reads a batch of waiting orders (oldest first) and the current load of every driver, puts
+ * the available drivers below {@code maxLoad} in a priority queue ordered by (load, last assignment),
+ * offers the first {@code candidates} eligible drivers to the {@link DispatchScorer} and
+ * assigns the cheapest one through the compare-and-set {@link OrderDAO#updateOrderStatus}.
+ * With a scorer that {@linkplain DispatchScorer#ranksByDistance ranks by distance}, the
+ * candidates are instead the eligible drivers nearest to the restaurant, found through the
+ * {@link DriverLocator}; the queue then only tops them up with drivers who have no position,
+ * or supplies every candidate when the restaurant's location is unknown.
+ * An order that changed meanwhile (claimed, assigned by hand, or dispatched by another node)
+ * is simply skipped. Drivers of a restaurant enterprise only get that enterprise's orders.
+ * A driver is available while logged in on this node or while the {@link DriverLocator} has a
+ * live position for them; drivers who are neither are never offered work.
+ *
+ * <p>With a {@link RouteBundler}, each tick first bundles waiting orders into multi-stop trips
+ * and dispatches the planned trips before single orders. A trip goes to one driver as a
+ * whole, scored on its first restaurant, and only to a driver who is idle or can take all of
+ * its orders within {@code maxLoad}.
+ *
+ * <p>All dispatch state is confined to the single dispatch thread; the metrics are safe to
+ * read from any thread. The ready-to-assigned delay is measured from the first tick that saw
+ * the order, so it is accurate to within one tick.
+ */
+public final class DispatchEngine {
+    private static final Logger LOGGER = Logger.getLogger(DispatchEngine.class.getName());
+    private static final String READY = OrderStatus.READY_FOR_PICKUP.getLabel();
+    private static final long ROSTER_REFRESH_MILLIS = 60_000;
+    // Smoothing for the dispatch rate: each tick contributes a fifth
+    private static final double RATE_ALPHA = 0.2;
+
+    private static final class Driver {
+        final int id;
+        final int organizationId;
+        int load;
+        long lastAssignedAt;
+        // Had a position when the tick started and a distance-ranking scorer is in use
+        boolean located;
+
+        Driver(int id, int organizationId) {
+            this.id = id;
+            this.organizationId = organizationId;
+        }
+    }
+
+    // Least loaded first, then longest since this node last gave them an order
+    private static final Comparator<Driver> PRIORITY = Comparator.<Driver>comparingInt(d -> d.load)
+            .thenComparingLong(d -> d.lastAssignedAt)
+            .thenComparingInt(d -> d.id);
+
+    private final OrderDAO orderDAO;
+    private final TripDAO tripDAO;
+    private final UserDAO userDAO;
+    private final DirectoryCache directory;
+    private final RouteBundler bundler;
+    private final DriverLocator locator;
+    private final Supplier<Set<Integer>> loggedInDrivers;
+    private final long tickMillis;
+    private final int batchSize;
+    private final int candidates;
+    private final int maxLoad;
+    private final ScheduledExecutorService scheduler;
+    private volatile DispatchScorer scorer = DispatchScorer.LEAST_LOADED;
+    private ScheduledFuture<?> task;
+
+    // Dispatch thread only
+    private IntObjectMap<Driver> drivers = new IntObjectMap<>();
+    private long rosterLoadedAt;
+    private IntObjectMap<Long> firstSeen = new IntObjectMap<>();
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder totalDelayMillis = new LongAdder();
+    private volatile long maxDelayMillis;
+    private volatile double dispatchRate;
+    private volatile long lastTickMillis;
+    private volatile int backlog;
+
+    // bundler may be null to dispatch every order on its own; loggedInDrivers is asked once a tick
+    DispatchEngine(OrderDAO orderDAO, TripDAO tripDAO, UserDAO userDAO, DirectoryCache directory, RouteBundler bundler,
+            DriverLocator locator, Supplier<Set<Integer>> loggedInDrivers, long tickMillis, int batchSize,
+            int candidates, int maxLoad) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("Dispatch tick must be positive");
+        if (batchSize <= 0 || candidates <= 0 || maxLoad <= 0) {
+            throw new IllegalArgumentException("Dispatch batch size, candidates and max load must be positive");
+        }
+        this.orderDAO = orderDAO;
+        this.tripDAO = tripDAO;
+        this.userDAO = userDAO;
+        this.directory = directory;
+        this.bundler = bundler;
+        this.locator = locator;
+        this.loggedInDrivers = loggedInDrivers;
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.candidates = candidates;
+        this.maxLoad = maxLoad;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "delivery-dispatch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public synchronized void start() {
+        if (task != null) return;
+        task = scheduler.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("Delivery dispatch started");
+    }
+
+    public synchronized void stop() {
+        if (task == null) return;
+        task.cancel(false);
+        task = null;
+        LOGGER.info("Delivery dispatch stopped");
+    }
+
+    public synchronized boolean isRunning() {
+        return task != null;
+    }
+
+    // Takes effect from the next order scored
+    public void setScorer(DispatchScorer scorer) {
+        if (scorer == null) throw new IllegalArgumentException("Scorer cannot be null");
+        this.scorer = scorer;
+    }
+
+    void tick() {
+        long started = System.nanoTime();
+        int assigned = 0;
+        try {
+            List<Trip> trips = List.of();
+            if (bundler != null) {
+                bundler.run();
+                trips = tripDAO.getPlannedTrips(batchSize);
+            }
+            List<Order> ready = orderDAO.getUnassignedReadyOrders(batchSize);
+            long now = System.currentTimeMillis();
+            int waiting = trackFirstSeen(trips, ready, now);
+            backlog = waiting;
+            if (waiting == 0) return;
+            IntObjectMap<Integer> loads = orderDAO.getActiveOrderCountsByDriver();
+            if (loads == null) return;
+            refreshDrivers(loads, now);
+
+            Set<Integer> loggedIn = loggedInDrivers.get();
+            DispatchScorer currentScorer = scorer;
+            boolean byDistance = currentScorer.ranksByDistance();
+            Available available = new Available(drivers.size());
+            drivers.forEach((id, d) -> {
+                boolean hasPosition = locator.contains(id);
+                d.located = byDistance && hasPosition;
+                if (d.load < maxLoad && (loggedIn.contains(id) || hasPosition)) available.add(d);
+            });
+            DirectoryCache.Snapshot dir = directory.get();
+            List<Driver> polled = new ArrayList<>(candidates);
+            for (Trip trip : trips) {
+                if (available.isEmpty()) break;
+                List<Integer> orderIds = trip.getOrderIds();
+                Driver best = pickDriver(available, polled, dir, currentScorer, anchorOf(trip), orderIds.size(), now);
+                if (best != null) {
+                    if (tripDAO.assignTrip(trip.getId(), trip.getVersion(), best.id)) {
+                        long assignedAt = System.currentTimeMillis();
+                        best.load += orderIds.size();
+                        best.lastAssignedAt = assignedAt;
+                        for (int orderId : orderIds) {
+                            Long seen = firstSeen.remove(orderId);
+                            recordDelay(assignedAt - (seen != null ? seen : now));
+                        }
+                        assigned += orderIds.size();
+                    } else {
+                        conflicts.increment();
+                    }
+                }
+                requeue(available, polled);
+            }
+            for (Order order : ready) {
+                if (available.isEmpty()) break;
+                Driver best = pickDriver(available, polled, dir, currentScorer, order, 1, now);
+                if (best != null) {
+                    if (orderDAO.updateOrderStatus(order.getId(), READY, order.getVersion(), READY, best.id)) {
+                        long assignedAt = System.currentTimeMillis();
+                        best.load++;
+                        best.lastAssignedAt = assignedAt;
+                        Long seen = firstSeen.remove(order.getId());
+                        recordDelay(assignedAt - (seen != null ? seen : now));
+                        assigned++;
+                    } else {
+                        conflicts.increment();
+                    }
+                }
+                requeue(available, polled);
+            }
+            backlog = waiting - assigned;
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next tick starts from the database again
+            LOGGER.log(Level.WARNING, "Dispatch tick failed", e);
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            lastTickMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            dispatched.add(assigned);
+            ticks.increment();
+            // Fixed-delay schedule: a tick period is the delay plus the tick itself
+            double tickRate = assigned * 1000.0 / (tickMillis + lastTickMillis);
+            dispatchRate = dispatchRate + RATE_ALPHA * (tickRate - dispatchRate);
+        }
+    }
+
+    // Scores up to candidates eligible drivers for a job of size orders: the nearest located
+    // drivers first when the restaurant has a location, then the queue. The polled drivers, and
+    // the returned one, are left in polled for requeue.
+    private Driver pickDriver(Available available, List<Driver> polled, DirectoryCache.Snapshot dir,
+            DispatchScorer currentScorer, Order order, int size, long now) {
+        Integer orderEnterprise = enterpriseOf(dir, order.getRestaurantId());
+        Driver best = null;
+        double bestCost = Double.POSITIVE_INFINITY;
+        int considered = 0;
+        polled.clear();
+        Organization restaurant = dir.getOrganization(order.getRestaurantId());
+        GeoPoint origin = restaurant != null ? restaurant.getLocation() : null;
+        boolean nearestFirst = origin != null && !available.located.isEmpty();
+        if (nearestFirst) {
+            List<DriverLocator.Neighbor> nearest = locator.nearest(origin, candidates, id -> {
+                Driver d = drivers.get(id);
+                return d != null && d.located && d.load < maxLoad && fits(d, size) && canServe(dir, d, orderEnterprise);
+            });
+            for (DriverLocator.Neighbor n : nearest) {
+                Driver d = drivers.get(n.getDriverId());
+                considered++;
+                double cost = currentScorer.cost(order, candidate(d), now);
+                if (cost < bestCost) {
+                    best = d;
+                    bestCost = cost;
+                }
+            }
+        }
+        // Without a restaurant location every available driver comes from the queue
+        PriorityQueue<Driver> queue = nearestFirst ? available.unlocated : null;
+        while (considered < candidates && !(queue != null ? queue.isEmpty() : available.isEmpty())) {
+            Driver d = queue != null ? queue.poll() : available.poll();
+            polled.add(d);
+            if (!canServe(dir, d, orderEnterprise) || !fits(d, size)) continue;
+            considered++;
+            double cost = currentScorer.cost(order, candidate(d), now);
+            if (cost < bestCost) {
+                best = d;
+                bestCost = cost;
+            }
+        }
+        // A located driver is still queued; take it out before its load changes
+        if (best != null && !polled.contains(best)) {
+            available.located.remove(best);
+            polled.add(best);
+        }
+        return best;
+    }
+
+    // An idle driver can take any trip; otherwise the whole job must fit
+    private boolean fits(Driver d, int size) {
+        return d.load == 0 || d.load + size <= maxLoad;
+    }
+
+    private static DispatchScorer.Candidate candidate(Driver d) {
+        return new DispatchScorer.Candidate(d.id, d.organizationId, d.load, d.lastAssignedAt);
+    }
+
+    private void requeue(Available available, List<Driver> polled) {
+        for (Driver d : polled) {
+            if (d.load < maxLoad) available.add(d);
+        }
+    }
+
+    // Drivers that can take work this tick, least loaded first. Located drivers are kept apart
+    // so pickDriver can find them by distance and fall back to the queue for the rest.
+    private static final class Available {
+        final PriorityQueue<Driver> located;
+        final PriorityQueue<Driver> unlocated;
+
+        Available(int capacity) {
+            located = new PriorityQueue<>(Math.max(1, capacity), PRIORITY);
+            unlocated = new PriorityQueue<>(Math.max(1, capacity), PRIORITY);
+        }
+
+        void add(Driver d) {
+            (d.located ? located : unlocated).add(d);
+        }
+
+        boolean isEmpty() {
+            return located.isEmpty() && unlocated.isEmpty();
+        }
+
+        // The head of whichever queue comes first in (load, last assignment) order
+        Driver poll() {
+            Driver a = located.peek();
+            Driver b = unlocated.peek();
+            if (a == null) return unlocated.poll();
+            if (b == null || PRIORITY.compare(a, b) <= 0) return located.poll();
+            return unlocated.poll();
+        }
+    }
+
+    // Stands in for a trip when scoring: its first restaurant and first drop-off
+    private static Order anchorOf(Trip trip) {
+        Order anchor = new Order();
+        anchor.setRestaurantId(trip.getRestaurantId());
+        for (TripStop stop : trip.getStops()) {
+            if (TripStop.DROPOFF.equals(stop.getType())) {
+                anchor.setId(stop.getOrderId());
+                anchor.setDeliveryLocation(stop.getLocation());
+                break;
+            }
+        }
+        return anchor;
+    }
+
+    // Keeps the first time each waiting order was seen, bundled or not; forgets orders no
+    // longer waiting. Returns how many orders are waiting.
+    private int trackFirstSeen(List<Trip> trips, List<Order> ready, long now) {
+        IntObjectMap<Long> next = new IntObjectMap<>(ready.size());
+        for (Trip trip : trips) {
+            for (int orderId : trip.getOrderIds()) keepFirstSeen(next, orderId, now);
+        }
+        for (Order order : ready) keepFirstSeen(next, order.getId(), now);
+        firstSeen = next;
+        return next.size();
+    }
+
+    private void keepFirstSeen(IntObjectMap<Long> next, int orderId, long now) {
+        Long seen = firstSeen.get(orderId);
+        next.put(orderId, seen != null ? seen : now);
+    }
+
+    private void refreshDrivers(IntObjectMap<Integer> loads, long now) {
+        if (now - rosterLoadedAt > ROSTER_REFRESH_MILLIS || drivers.isEmpty()) {
+            List<User> staff = userDAO.getUsersByRole("DeliveryMan");
+            IntObjectMap<Driver> roster = new IntObjectMap<>(staff.size());
+            for (User u : staff) {
+                Driver previous = drivers.get(u.getId());
+                Driver d = new Driver(u.getId(), u.getOrganizationId());
+                // Keep the fairness history of drivers that were already known
+                if (previous != null) d.lastAssignedAt = previous.lastAssignedAt;
+                roster.put(u.getId(), d);
+            }
+            drivers = roster;
+            rosterLoadedAt = now;
+        }
+        // Loads come from the database each tick: other nodes and managers assign orders too
+        drivers.forEach((id, d) -> {
+            Integer load = loads.get(id);
+            d.load = load != null ? load : 0;
+        });
+    }
+
+    private static Integer enterpriseOf(DirectoryCache.Snapshot dir, int organizationId) {
+        Organization org = dir.getOrganization(organizationId);
+        return org != null ? org.getEnterpriseId() : null;
+    }
+
+    private static boolean canServe(DirectoryCache.Snapshot dir, Driver driver, Integer orderEnterprise) {
+        return canServe(dir, driver.organizationId, orderEnterprise);
+    }
+
+    // Drivers of a restaurant enterprise only serve that enterprise's restaurants
+    static boolean canServe(DirectoryCache.Snapshot dir, int driverOrganizationId, Integer orderEnterprise) {
+        Integer driverEnterprise = enterpriseOf(dir, driverOrganizationId);
+        if (driverEnterprise == null) return true;
+        Enterprise enterprise = dir.getEnterprise(driverEnterprise);
+        if (enterprise == null || !"Restaurant".equalsIgnoreCase(enterprise.getType())) return true;
+        return driverEnterprise.equals(orderEnterprise);
+    }
+
+    private void recordDelay(long delayMillis) {
+        totalDelayMillis.add(delayMillis);
+        if (delayMillis > maxDelayMillis) maxDelayMillis = delayMillis;
+    }
+
+    public long getDispatchedCount() { return dispatched.sum(); }
+
+    // Assignments that lost the compare-and-set to another change
+    public long getConflictCount() { return conflicts.sum(); }
+
+    public long getTickCount() { return ticks.sum(); }
+
+    // Smoothed over roughly the last five ticks
+    public double getDispatchedPerSecond() { return dispatchRate; }
+
+    public double getAverageDelayMillis() {
+        long n = dispatched.sum();
+        return n == 0 ? 0.0 : (double) totalDelayMillis.sum() / n;
+    }
+
+    public long getMaxDelayMillis() { return maxDelayMillis; }
+
+    public long getLastTickMillis() { return lastTickMillis; }
+
+    // Orders still waiting after the last tick, up to the batch size of trips and of single orders
+    public int getBacklog() { return backlog; }
+
+    // Null when bundling is off
+    public RouteBundler getBundler() { return bundler; }
+}
@@ -0,0 +1,50 @@
+package ecosystem;
+
+import model.Order;
+
+/**
+ * Ranks the drivers {@link DispatchEngine} considers for an order; the lowest cost wins and
+ * ties go to the driver the engine offered first (least loaded, longest idle). Called on the
+ * dispatch thread only, once per candidate, so implementations should not query per call.
+ */
+@FunctionalInterface
+public interface DispatchScorer {
+
+    /** Prefers the least loaded driver, then the one who has waited longest for work. */
+    DispatchScorer LEAST_LOADED = (order, driver, now) -> driver.getLoad();
+
+    double cost(Order order, Candidate driver, long now);
+
+    /**
+     * Whether the cost grows with the driver's distance from the restaurant. If so the engine
+     * offers the drivers nearest to the restaurant, rather than the least loaded ones.
+     */
+    default boolean ranksByDistance() {
+        return false;
+    }
+
+    /** What the engine knows about a driver at the time of scoring. */
+    final class Candidate {
+        private final int driverId;
+        private final int organizationId;
+        private final int load;
+        private final long lastAssignedAt;
+
+        Candidate(int driverId, int organizationId, int load, long lastAssignedAt) {
+            this.driverId = driverId;
+            this.organizationId = organizationId;
+            this.load = load;
+            this.lastAssignedAt = lastAssignedAt;
+        }
+
+        public int getDriverId() { return driverId; }
+
+        public int getOrganizationId() { return organizationId; }
+
+        // Orders assigned to the driver and not yet delivered
+        public int getLoad() { return load; }
+
+        // Epoch millis of this node's last assignment to the driver; 0 if none since startup
+        public long getLastAssignedAt() { return lastAssignedAt; }
+    }
+}
@@ -0,0 +1,295 @@
+package ecosystem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+import model.GeoPoint;
+import util.IntObjectMap;
+
+/**
+ * In-memory spatial index of driver positions. The map is cut into square cells of
+ * {@code cellKm} (in latitude; cells narrow towards the poles in longitude) and each cell keeps
+ * the ids of the drivers in it, so moving a driver is O(1): a slot update, or a swap-remove
+ * from one cell and an append to another. Nearest-neighbour queries search rings of cells
+ * outwards from the query point and stop as soon as no unvisited cell can hold anything
+ * closer than the k-th best hit. Columns wrap round at ±180 longitude, so drivers either side
+ * of it are neighbours. Readers share a lock; updates take it exclusively.
+ */
+public final class DriverLocator {
+    private static final double KM_PER_DEGREE = 111.32;
+
+    public static final class Neighbor {
+        private final int driverId;
+        private final double distanceKm;
+
+        Neighbor(int driverId, double distanceKm) {
+            this.driverId = driverId;
+            this.distanceKm = distanceKm;
+        }
+
+        public int getDriverId() { return driverId; }
+
+        public double getDistanceKm() { return distanceKm; }
+    }
+
+    private static final class Entry {
+        double lat;
+        double lng;
+        int cell;
+        int slot;
+    }
+
+    // Ids of the drivers in one cell, unordered
+    private static final class Cell {
+        int[] ids = new int[4];
+        int size;
+    }
+
+    private final double cellDeg;
+    // Longitude width of a column: a whole number of columns spans 360 degrees exactly
+    private final double columnDeg;
+    private final int columns;
+    private final int rows;
+    private final IntObjectMap<Entry> entries = new IntObjectMap<>();
+    private final IntObjectMap<Cell> cells = new IntObjectMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Bounding box of every cell ever occupied; bounds how far a ring search can go
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minCol = Integer.MAX_VALUE;
+    private int maxCol = Integer.MIN_VALUE;
+
+    // Cells of at least 1 km keep every cell number within an int
+    DriverLocator(double cellKm) {
+        if (!(cellKm >= 1.0)) throw new IllegalArgumentException("Cell size must be at least 1 km");
+        this.cellDeg = cellKm / KM_PER_DEGREE;
+        this.rows = (int) Math.ceil(180 / cellDeg) + 1;
+        this.columns = (int) Math.ceil(360 / cellDeg);
+        this.columnDeg = 360.0 / columns;
+    }
+
+    private int row(double lat) {
+        return Math.min(rows - 1, (int) ((lat + 90) / cellDeg));
+    }
+
+    private int column(double lng) {
+        return Math.min(columns - 1, (int) ((lng + 180) / columnDeg));
+    }
+
+    public void update(int driverId, double lat, double lng) {
+        // Validates the coordinates
+        new GeoPoint(lat, lng);
+        int row = row(lat);
+        int col = column(lng);
+        int cellId = row * columns + col;
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(driverId);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(driverId, entry);
+                add(driverId, entry, cellId);
+            } else if (entry.cell != cellId) {
+                detach(entry);
+                add(driverId, entry, cellId);
+            }
+            entry.lat = lat;
+            entry.lng = lng;
+            if (row < minRow) minRow = row;
+            if (row > maxRow) maxRow = row;
+            if (col < minCol) minCol = col;
+            if (col > maxCol) maxCol = col;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int driverId) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.remove(driverId);
+            if (entry != null) detach(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(int driverId, Entry entry, int cellId) {
+        Cell cell = cells.get(cellId);
+        if (cell == null) {
+            cell = new Cell();
+            cells.put(cellId, cell);
+        }
+        if (cell.size == cell.ids.length) {
+            int[] grown = new int[cell.size * 2];
+            System.arraycopy(cell.ids, 0, grown, 0, cell.size);
+            cell.ids = grown;
+        }
+        entry.cell = cellId;
+        entry.slot = cell.size;
+        cell.ids[cell.size++] = driverId;
+    }
+
+    // Swap-remove: the cell's last driver takes the freed slot
+    private void detach(Entry entry) {
+        Cell cell = cells.get(entry.cell);
+        int last = cell.ids[--cell.size];
+        if (entry.slot != cell.size) {
+            cell.ids[entry.slot] = last;
+            entries.get(last).slot = entry.slot;
+        }
+        if (cell.size == 0) cells.remove(entry.cell);
+    }
+
+    public GeoPoint getPosition(int driverId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(driverId);
+            return entry == null ? null : new GeoPoint(entry.lat, entry.lng);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Whether the driver has a position in the index
+    public boolean contains(int driverId) {
+        lock.readLock().lock();
+        try {
+            return entries.get(driverId) != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to k drivers accepted by the filter (null accepts all), nearest first.
+     */
+    public List<Neighbor> nearest(GeoPoint point, int k, IntPredicate filter) {
+        if (k <= 0) return List.of();
+        // Max-heap on distance holding the best k so far
+        PriorityQueue<Neighbor> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(Neighbor::getDistanceKm).reversed());
+        lock.readLock().lock();
+        try {
+            if (entries.isEmpty()) return List.of();
+            int row = row(point.getLatitude());
+            int col = column(point.getLongitude());
+            int maxRing = maxRing(row, col);
+            for (int ring = 0; ring <= maxRing; ring++) {
+                scanRing(row, col, ring, point, filter, n -> {
+                    best.add(n);
+                    if (best.size() > k) best.poll();
+                });
+                if (best.size() == k && best.peek().getDistanceKm() <= reachKm(point.getLatitude(), ring)) break;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Neighbor> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Neighbor::getDistanceKm));
+        return result;
+    }
+
+    /**
+     * Drivers accepted by the filter (null accepts all) within radiusKm, nearest first.
+     */
+    public List<Neighbor> withinRadius(GeoPoint point, double radiusKm, IntPredicate filter) {
+        List<Neighbor> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (entries.isEmpty()) return List.of();
+            int row = row(point.getLatitude());
+            int col = column(point.getLongitude());
+            int maxRing = maxRing(row, col);
+            for (int ring = 0; ring <= maxRing; ring++) {
+                scanRing(row, col, ring, point, filter, n -> {
+                    if (n.getDistanceKm() <= radiusKm) found.add(n);
+                });
+                if (reachKm(point.getLatitude(), ring) >= radiusKm) break;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        found.sort(Comparator.comparingDouble(Neighbor::getDistanceKm));
+        return found;
+    }
+
+    /**
+     * Lower bound on the great-circle distance from a point at lat to anything outside rings
+     * 0..ring. Such a point is either at least ring rows away, so ring * cellDeg in latitude,
+     * or within those rows and at least ring columns away in longitude. For the second, the
+     * haversine term cos(lat1) * cos(lat2) * sin²(dLng / 2) is smallest at the highest latitude
+     * the rows reach, which is why the bound falls to nothing near the poles.
+     */
+    private double reachKm(double lat, int ring) {
+        double byLatitude = GeoPoint.EARTH_RADIUS_KM * Math.toRadians(ring * cellDeg);
+        // Every column is within ring of the query's once the ring spans half the world
+        if (2 * ring >= columns - 1) return byLatitude;
+        double highest = Math.min(90.0, Math.abs(lat) + (ring + 1) * cellDeg);
+        double cos = Math.sqrt(Math.cos(Math.toRadians(lat)) * Math.max(0.0, Math.cos(Math.toRadians(highest))));
+        double byLongitude = 2 * GeoPoint.EARTH_RADIUS_KM
+                * Math.asin(Math.min(1.0, cos * Math.sin(Math.toRadians(ring * columnDeg) / 2)));
+        return Math.min(byLatitude, byLongitude);
+    }
+
+    // Columns wrap, so no occupied cell is more than half the columns away in longitude
+    private int maxRing(int row, int col) {
+        int colSpan = Math.min(Math.max(col - minCol, maxCol - col), columns / 2);
+        return Math.max(Math.max(row - minRow, maxRow - row), colSpan);
+    }
+
+    private interface Sink {
+        void accept(Neighbor neighbor);
+    }
+
+    // Visits the cells at Chebyshev distance exactly ring from (row, col)
+    private void scanRing(int row, int col, int ring, GeoPoint point, IntPredicate filter, Sink sink) {
+        int r0 = Math.max(row - ring, Math.max(0, minRow));
+        int r1 = Math.min(row + ring, Math.min(rows - 1, maxRow));
+        for (int r = r0; r <= r1; r++) {
+            boolean edgeRow = r == row - ring || r == row + ring;
+            if (edgeRow) {
+                // Columns col - ring .. col + ring, wrapped: up to two runs, each clamped to the box
+                int width = Math.min(2 * ring + 1, columns);
+                int start = Math.floorMod(col - ring, columns);
+                int end = start + width - 1;
+                scanColumns(r, start, Math.min(end, columns - 1), point, filter, sink);
+                if (end >= columns) scanColumns(r, 0, end - columns, point, filter, sink);
+            } else if (2 * ring <= columns) {
+                // Past half the columns the sides wrap onto columns an earlier ring visited
+                int left = Math.floorMod(col - ring, columns);
+                int right = Math.floorMod(col + ring, columns);
+                if (left >= minCol && left <= maxCol) scanCell(r * columns + left, point, filter, sink);
+                if (right != left && right >= minCol && right <= maxCol) scanCell(r * columns + right, point, filter, sink);
+            }
+        }
+    }
+
+    private void scanColumns(int r, int from, int to, GeoPoint point, IntPredicate filter, Sink sink) {
+        for (int c = Math.max(from, minCol); c <= Math.min(to, maxCol); c++) scanCell(r * columns + c, point, filter, sink);
+    }
+
+    private void scanCell(int cellId, GeoPoint point, IntPredicate filter, Sink sink) {
+        Cell cell = cells.get(cellId);
+        if (cell == null) return;
+        for (int i = 0; i < cell.size; i++) {
+            int id = cell.ids[i];
+            if (filter != null && !filter.test(id)) continue;
+            Entry e = entries.get(id);
+            sink.accept(new Neighbor(id, GeoPoint.distanceKm(point.getLatitude(), point.getLongitude(), e.lat, e.lng)));
+        }
+    }
+}
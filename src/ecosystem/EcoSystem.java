@@ -1,44 +1,138 @@
 package ecosystem;
 
 import java.math.BigDecimal;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import dao.ChangeLogDAO;
+import dao.DriverLocationDAO;
 import dao.EnterpriseDAO;
+import dao.GazetteerDAO;
 import dao.MenuItemDAO;
 import dao.OrderDAO;
+import dao.OrderHistoryDAO;
 import dao.OrderItemDAO;
 import dao.OrganizationDAO;
+import dao.TripDAO;
 import dao.UserDAO;
 import dao.WorkRequestDAO;
+import database.SchemaMigrator;
+import model.ChangeRecord;
 import model.Enterprise;
+import model.GeoPoint;
 import model.MenuItem;
 import model.Order;
+import model.OrderEvent;
 import model.OrderItem;
+import model.OrderReceipt;
+import model.OrderStatus;
+import model.OrderSummary;
+import model.Page;
 import model.Organization;
+import model.Trip;
 import model.User;
-
+import model.WorkRequestEvent;
+import util.AppConfig;
+import util.IntObjectMap;
+import util.PasswordHasher;
+
+/**
+ * Entry point for all business operations. A single instance serves every session in the
+ * JVM: it holds no per-user state, guarded operations take the caller's {@link Session},
+ * and everything it shares (DAOs, caches, the session registry) is safe for concurrent use.
+ */
 public class EcoSystem {
-    private static EcoSystem instance;
     private final UserDAO userDAO;
     private final EnterpriseDAO enterpriseDAO;
     private final OrganizationDAO organizationDAO;
     private final OrderDAO orderDAO;
+    private final TripDAO tripDAO;
     private final MenuItemDAO menuItemDAO;
     private final OrderItemDAO orderItemDAO;
     private final WorkRequestDAO workRequestDAO;
-
-    private User currentUser;
+    private final UsernameIndex usernameIndex;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long sessionIdleTimeoutMillis = AppConfig.getLong("session.idleTimeoutMinutes", 120) * 60_000L;
+    private final SecureRandom tokenRandom = new SecureRandom();
+    private final DirectoryCache directory;
+    private final MenuCache menuCache;
+    private final DeliveryQueue deliveryQueue;
+    private final DispatchEngine dispatchEngine;
+    private final Gazetteer gazetteer;
+    private final DriverLocator driverLocator;
+    private final EtaService etaService;
+    private final LocationIngestor locationIngestor;
+    private final EventBus eventBus = new EventBus();
+    private final ChangeLogDAO changeLogDAO;
+    private final ChangeFeed changeFeed;
 
     private EcoSystem() {
         userDAO = new UserDAO();
         enterpriseDAO = new EnterpriseDAO();
         organizationDAO = new OrganizationDAO();
         orderDAO = new OrderDAO();
+        tripDAO = new TripDAO();
         menuItemDAO = new MenuItemDAO();
         orderItemDAO = new OrderItemDAO();
         workRequestDAO = new WorkRequestDAO();
+        // Bring the schema (tables and indexes) up to date before anything queries it
+        SchemaMigrator.migrateOnStartup();
+        // Calibrate the BCrypt cost now rather than during the first login
+        PasswordHasher.getInstance();
         // Ensure DB has at least the basic seed data for demo usage
         seedDefaultDataIfEmpty();
+        usernameIndex = new UsernameIndex(userDAO);
+        usernameIndex.rebuild();
+        directory = new DirectoryCache(enterpriseDAO, organizationDAO, AppConfig.getLong("directory.refreshSeconds", 60) * 1_000L);
+        directory.refresh();
+        menuCache = new MenuCache(menuItemDAO, AppConfig.getLong("menu.cacheTtlSeconds", 300) * 1_000L);
+        deliveryQueue = new DeliveryQueue(orderDAO, tripDAO, AppConfig.getInt("delivery.claimLeaseSeconds", 300),
+                AppConfig.getInt("delivery.maxClaim", 5), AppConfig.getInt("bundle.planTtlSeconds", 120),
+                AppConfig.getLong("delivery.reaperSeconds", 60));
+        gazetteer = new Gazetteer(new GazetteerDAO(), AppConfig.getLong("geo.gazetteerRefreshSeconds", 600) * 1_000L);
+        driverLocator = new DriverLocator(AppConfig.getDouble("geo.cellKm", 1.0));
+        locationIngestor = new LocationIngestor(new DriverLocationDAO(), driverLocator,
+                AppConfig.getInt("location.bufferSize", 65_536), AppConfig.getLong("location.flushMillis", 5_000),
+                AppConfig.getLong("location.staleMinutes", 10) * 60_000L);
+        // Positions older than this are not worth dispatching on
+        locationIngestor.start(System.currentTimeMillis() - AppConfig.getLong("location.restoreMinutes", 30) * 60_000L);
+        RouteBundler bundler = null;
+        if (AppConfig.getBoolean("bundle.enabled", true)) {
+            bundler = new RouteBundler(orderDAO, tripDAO, directory, AppConfig.getInt("bundle.scanLimit", 2_000),
+                    AppConfig.getInt("bundle.maxStops", 6), AppConfig.getLong("bundle.windowMinutes", 10) * 60_000L,
+                    AppConfig.getDouble("bundle.nearbyKm", 1.5), AppConfig.getDouble("bundle.maxDetourKm", 3.0),
+                    AppConfig.getLong("bundle.budgetMillis", 200));
+        }
+        dispatchEngine = new DispatchEngine(orderDAO, tripDAO, userDAO, directory, bundler, driverLocator,
+                this::getLoggedInDriverIds, AppConfig.getLong("dispatch.tickMillis", 2_000), AppConfig.getInt("dispatch.batchSize", 50),
+                AppConfig.getInt("dispatch.candidates", 5), AppConfig.getInt("dispatch.maxLoad", 3));
+        if (!"leastLoaded".equalsIgnoreCase(AppConfig.get("dispatch.scorer", "proximity"))) {
+            dispatchEngine.setScorer(new ProximityScorer(directory, driverLocator,
+                    AppConfig.getDouble("dispatch.loadPenaltyKm", 2.0), AppConfig.getDouble("dispatch.unknownDistanceKm", 50.0)));
+        }
+        if (AppConfig.getBoolean("dispatch.enabled", false)) {
+            dispatchEngine.start();
+        }
+        etaService = new EtaService(AppConfig.getDouble("eta.alpha", 0.1), AppConfig.getInt("eta.minSamples", 5),
+                AppConfig.getDouble("eta.zoneKm", 2.0), AppConfig.getLong("eta.defaultPrepMinutes", 20) * 60_000L,
+                AppConfig.getLong("eta.defaultPickupMinutes", 5) * 60_000L,
+                AppConfig.getLong("eta.defaultTravelMinutes", 15) * 60_000L);
+        etaService.warmStart(new OrderHistoryDAO(),
+                System.currentTimeMillis() - AppConfig.getLong("eta.warmStartDays", 14) * 86_400_000L);
+        changeLogDAO = new ChangeLogDAO(AppConfig.getLong("changes.safetyLagMillis", 1_000));
+        changeFeed = new ChangeFeed(changeLogDAO, orderDAO, workRequestDAO, menuCache, directory, eventBus,
+                AppConfig.getInt("changes.batchSize", 500), AppConfig.getInt("changes.compactAfterMinutes", 10) * 60,
+                AppConfig.getInt("changes.retentionHours", 24) * 3_600);
+        if (AppConfig.getBoolean("changes.enabled", true)) {
+            changeFeed.start(AppConfig.getLong("changes.pollMillis", 1_000), AppConfig.getLong("changes.maintenanceSeconds", 300),
+                    AppConfig.getBoolean("changes.maintain", true));
+        }
     }
 
     private void seedDefaultDataIfEmpty() {
@@ -111,11 +205,8 @@ public class EcoSystem {
 
                 // Create a couple of demo orders and order items linked to the created users
                 // Find the customer id for customer1 and restaurant id
-                java.util.List<User> created = userDAO.getAllUsers();
-                int customer1Id = -1;
-                for (User u : created) {
-                    if (u.getUsername() != null && "customer1".equalsIgnoreCase(u.getUsername().trim())) { customer1Id = u.getId(); }
-                }
+                User customer1 = userDAO.getUserByUsername("customer1");
+                int customer1Id = customer1 != null ? customer1.getId() : -1;
 
                 if (customer1Id > 0 && kitchenId > 0) {
                     Order o1 = new Order();
@@ -156,17 +247,10 @@ public class EcoSystem {
             demoUsers.put("delivery1", new User(0, "delivery1", "delivery1", "DeliveryMan", "Bob Driver", "555-3333", "bob@example.com", computedDeliveryFleetId > 0 ? computedDeliveryFleetId : 0));
             demoUsers.put("entadmin1", new User(0, "entadmin1", "entadmin1", "EnterpriseAdmin", "Boston Admin", "555-5555", "admin@bostonfd.com", computedAdminTeamId > 0 ? computedAdminTeamId : 0));
 
-            List<User> allUsers = userDAO.getAllUsers();
             for (java.util.Map.Entry<String, User> e : demoUsers.entrySet()) {
                 String uname = e.getKey();
                 User expectedUser = e.getValue();
-                User found = null;
-                for (User u : allUsers) {
-                    if (u.getUsername() != null && u.getUsername().trim().equalsIgnoreCase(uname)) {
-                        found = u;
-                        break;
-                    }
-                }
+                User found = userDAO.getUserByUsername(uname);
                 if (found == null) {
                     // Create missing demo user
                     userDAO.createUser(expectedUser);
@@ -177,7 +261,7 @@ public class EcoSystem {
                     if (!stored.equals(expectedPw)) {
                         // Update user with expected password
                         found.setPassword(expectedPw);
-                        found.setUsername(found.getUsername().trim());
+                        found.setUsername(UserDAO.trimUsername(found.getUsername()));
                         found.setName(expectedUser.getName());
                         found.setRole(expectedUser.getRole());
                         // Use DAO update directly as system might not yet be set up for permission checks
@@ -192,45 +276,102 @@ public class EcoSystem {
         }
     }
 
+    // Initialization-on-demand holder: the JVM guarantees the instance is built exactly once
+    private static class Holder {
+        static final EcoSystem INSTANCE = new EcoSystem();
+    }
+
     public static EcoSystem getInstance() {
-        if (instance == null) {
-            instance = new EcoSystem();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     // User Management
-    public User login(String username, String password) {
+
+    // Returns a new session, or null when the credentials are wrong
+    public Session login(String username, String password) {
         if (username == null || password == null) return null;
-        String trimmedUsername = username.trim();
+        String trimmedUsername = UserDAO.trimUsername(username);
         String trimmedPassword = password.trim();
         if (trimmedUsername.isEmpty() || trimmedPassword.isEmpty()) return null;
         User user = userDAO.authenticate(trimmedUsername, trimmedPassword);
-        if (user != null) {
-            currentUser = user;
+        if (user == null) return null;
+        // Resolved once here; guarded operations read the enterprise from the session
+        Organization org = user.getOrganizationId() > 0 ? getOrganization(user.getOrganizationId()) : null;
+        Session session = new Session(newSessionToken(), user, org);
+        expireIdleSessions();
+        sessions.put(session.getToken(), session);
+        return session;
+    }
+
+    public void logout(Session session) {
+        if (session == null) return;
+        sessions.remove(session.getToken());
+        // A driver who signs off is no longer available to be dispatched
+        if ("DeliveryMan".equals(session.getRole())) locationIngestor.forget(session.getUserId());
+    }
+
+    // Null when the token is unknown, logged out or idle for longer than session.idleTimeoutMinutes
+    public Session getSession(String token) {
+        if (token == null) return null;
+        Session session = sessions.get(token);
+        return session != null && isActive(session) ? session : null;
+    }
+
+    // Whether the session is still registered and not idle too long; counts as a use if so
+    private boolean isActive(Session session) {
+        if (sessions.get(session.getToken()) != session) return false;
+        if (isExpired(session, System.currentTimeMillis())) {
+            sessions.remove(session.getToken(), session);
+            return false;
+        }
+        session.touch();
+        return true;
+    }
+
+    // Guarded operations call this first, so a session stops working once logged out or expired
+    private void requireActive(Session session) {
+        if (session != null && !isActive(session)) {
+            throw new IllegalStateException("Your session has ended, please log in again");
+        }
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    // Delivery staff with a live session on this node
+    private Set<Integer> getLoggedInDriverIds() {
+        long now = System.currentTimeMillis();
+        Set<Integer> ids = new HashSet<>();
+        for (Session s : sessions.values()) {
+            if ("DeliveryMan".equals(s.getRole()) && !isExpired(s, now)) ids.add(s.getUserId());
         }
-        return user;
+        return ids;
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.getLastAccessedAt() > sessionIdleTimeoutMillis;
     }
 
-    public void logout() {
-        currentUser = null;
+    private void expireIdleSessions() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(s -> isExpired(s, now));
     }
 
-    public User getCurrentUser() {
-        return currentUser;
+    private String newSessionToken() {
+        byte[] bytes = new byte[24];
+        tokenRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
     }
 
-    public void createUser(User user) {
+    public void createUser(Session session, User user) {
         if (user == null) throw new IllegalArgumentException("User cannot be null");
 
-        if (user.getUsername() == null || user.getUsername().trim().length() < 3) {
+        if (user.getUsername() == null || UserDAO.trimUsername(user.getUsername()).length() < 3) {
             throw new IllegalArgumentException("Username must be at least 3 characters");
         }
 
-        List<User> existingUsers = getAllUsers();
-        boolean userExists = existingUsers.stream()
-                .anyMatch(u -> u.getUsername().equalsIgnoreCase(user.getUsername()));
-        if (userExists) throw new IllegalArgumentException("Username already exists");
+        if (isUsernameTaken(user.getUsername())) throw new IllegalArgumentException("Username already exists");
 
         if (user.getPassword() == null || user.getPassword().length() < 6) {
             throw new IllegalArgumentException("Password must be at least 6 characters");
@@ -242,12 +383,16 @@ public class EcoSystem {
             }
         }
 
-        Integer currentEntId = getCurrentUserEnterpriseId();
-        if (isSystemAdmin() ||
-            (isEnterpriseAdmin() &&
-             currentEntId != null &&
-             currentEntId.equals(getOrganizationEnterpriseId(user.getOrganizationId())))) {
-            userDAO.createUser(user);
+        if (canManageEnterprise(session, getOrganizationEnterpriseId(user.getOrganizationId()))) {
+            if (!userDAO.createUser(user)) {
+                // Lost a race with another signup (possibly on another node), or the database failed
+                if (userDAO.existsByUsername(user.getUsername())) {
+                    usernameIndex.onStored(user.getUsername());
+                    throw new IllegalArgumentException("Username already exists");
+                }
+                throw new IllegalStateException("Failed to create user");
+            }
+            usernameIndex.onStored(user.getUsername());
         } else {
             throw new IllegalStateException("Unauthorized to create user for this organization");
         }
@@ -256,22 +401,52 @@ public class EcoSystem {
     public List<User> getAllUsers() {
         return userDAO.getAllUsers();
     }
-    public void updateUser(User user) {
-        Integer currentEntId = getCurrentUserEnterpriseId();
-        if (isSystemAdmin() || (isEnterpriseAdmin() && currentEntId != null && currentEntId.equals(getOrganizationEnterpriseId(user.getOrganizationId())))) {
+
+    // For paged user lists: see UserDAO.loadUsersPage. Throw IllegalStateException on failure.
+    public int getUserCount(String search) {
+        try {
+            return userDAO.loadUserCount(search);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to count users", e);
+        }
+    }
+
+    public List<User> getUsersPage(String search, int offset, int limit, String sortField, boolean ascending) {
+        try {
+            return userDAO.loadUsersPage(search, offset, limit, sortField, ascending);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load users", e);
+        }
+    }
+
+    // Case-insensitive, ignores surrounding whitespace; most free names are answered from memory
+    public boolean isUsernameTaken(String username) {
+        return usernameIndex.isTaken(username);
+    }
+
+    public UsernameIndex getUsernameIndex() {
+        return usernameIndex;
+    }
+
+    public User getUserById(int userId) {
+        return userDAO.getUserById(userId);
+    }
+    public void updateUser(Session session, User user) {
+        if (canManageEnterprise(session, getOrganizationEnterpriseId(user.getOrganizationId()))) {
             userDAO.updateUser(user);
+            usernameIndex.onStored(user.getUsername());
         } else {
             throw new IllegalStateException("Unauthorized to update user for this organization");
         }
     }
 
-    public void deleteUser(int userId) {
+    public void deleteUser(Session session, int userId) {
         // Check user's organization enterprise
         User user = userDAO.getUserById(userId);
-        Integer currentEntId = getCurrentUserEnterpriseId();
         if (user == null) return;
-        if (isSystemAdmin() || (isEnterpriseAdmin() && currentEntId != null && currentEntId.equals(getOrganizationEnterpriseId(user.getOrganizationId())))) {
+        if (canManageEnterprise(session, getOrganizationEnterpriseId(user.getOrganizationId()))) {
             userDAO.deleteUser(userId);
+            usernameIndex.onDeleted();
         } else {
             throw new IllegalStateException("Unauthorized to delete user from this organization");
         }
@@ -280,49 +455,74 @@ public class EcoSystem {
     // Enterprise Management
     public void createEnterprise(String name, String type) {
         enterpriseDAO.createEnterprise(new Enterprise(0, name, type));
+        directory.refresh();
     }
 
     public void deleteEnterprise(int enterpriseId) {
         enterpriseDAO.deleteEnterprise(enterpriseId);
+        // Its organizations are removed by ON DELETE CASCADE; the reload drops both
+        directory.refresh();
     }
 
+    // Served from the in-memory directory; the returned objects are shared, do not modify them
     public List<Enterprise> getAllEnterprises() {
-        return enterpriseDAO.getAllEnterprises();
+        return directory.get().getEnterprises();
+    }
+
+    public List<Enterprise> getEnterprisesByType(String type) {
+        return directory.get().getEnterprisesByType(type);
     }
+
+    public Enterprise getEnterprise(int enterpriseId) {
+        return directory.get().getEnterprise(enterpriseId);
+    }
+
     public void updateEnterprise(Enterprise enterprise) {
         enterpriseDAO.updateEnterprise(enterprise);
+        directory.refresh();
     }
 
     // Organization Management
-    public void createOrganization(String name, String type, int enterpriseId) {
-        if (isSystemAdmin() || (isEnterpriseAdmin() && getCurrentUserEnterpriseId() != null && getCurrentUserEnterpriseId().equals(enterpriseId))) {
+    public void createOrganization(Session session, String name, String type, int enterpriseId) {
+        if (canManageEnterprise(session, enterpriseId)) {
             organizationDAO.createOrganization(new Organization(0, name, type, enterpriseId));
+            directory.refresh();
         } else {
             throw new IllegalStateException("Unauthorized to create organization for this enterprise");
         }
     }
 
     public List<Organization> getOrganizations(int enterpriseId) {
-        return organizationDAO.getOrganizationsByEnterpriseId(enterpriseId);
+        return directory.get().getOrganizationsByEnterprise(enterpriseId);
     }
 
     public List<Organization> getAllOrganizations() {
-        return organizationDAO.getAllOrganizations();
+        return directory.get().getOrganizations();
+    }
+
+    // Falls back to the database for organizations created on another node since the last reload
+    public Organization getOrganization(int organizationId) {
+        Organization org = directory.get().getOrganization(organizationId);
+        return org != null ? org : organizationDAO.getOrganizationById(organizationId);
     }
 
-    public void deleteOrganization(int organizationId) {
-        Organization org = organizationDAO.getOrganizationById(organizationId);
-        if (org == null) return;
-        if (isSystemAdmin() || (isEnterpriseAdmin() && getCurrentUserEnterpriseId() != null && getCurrentUserEnterpriseId().equals(org.getEnterpriseId()))) {
+    public void deleteOrganization(Session session, int organizationId) {
+        Integer enterpriseId = getOrganizationEnterpriseId(organizationId);
+        if (enterpriseId == null) return;
+        if (canManageEnterprise(session, enterpriseId)) {
             organizationDAO.deleteOrganization(organizationId);
+            directory.refresh();
         } else {
             throw new IllegalStateException("Unauthorized to delete organization for this enterprise");
         }
     }
-    public void updateOrganization(Organization org) {
-        if (organizationDAO.getOrganizationById(org.getId()) == null) return;
-        if (isSystemAdmin() || (isEnterpriseAdmin() && getCurrentUserEnterpriseId() != null && getCurrentUserEnterpriseId().equals(org.getEnterpriseId()))) {
+    public void updateOrganization(Session session, Organization org) {
+        Integer currentEnterpriseId = getOrganizationEnterpriseId(org.getId());
+        if (currentEnterpriseId == null) return;
+        // Moving an organization needs rights over both the enterprise it leaves and the one it joins
+        if (canManageEnterprise(session, currentEnterpriseId) && canManageEnterprise(session, org.getEnterpriseId())) {
             organizationDAO.updateOrganization(org);
+            directory.refresh();
         } else {
             throw new IllegalStateException("Unauthorized to update organization for this enterprise");
         }
@@ -330,6 +530,53 @@ public class EcoSystem {
 
     // Order Management
     public void placeOrder(Order order) {
+        validateNewOrder(order);
+        locateDelivery(order);
+        orderDAO.createOrder(order);
+        if (order.getId() > 0) {
+            etaService.recordPlaced(order, System.currentTimeMillis());
+            publishOrderEvent(OrderEvent.Kind.PLACED, order.getId());
+        }
+    }
+
+    // Places the order and all of its items atomically: one transaction, with the items
+    // written as a single batch, so the cost doesn't grow with the size of the basket
+    public OrderReceipt placeOrderWithItems(Order order, List<OrderItem> items) {
+        validateNewOrder(order);
+        locateDelivery(order);
+        if (items == null) throw new IllegalArgumentException("Order items cannot be null");
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            if (item == null) throw new IllegalArgumentException("Order item cannot be null");
+            if (item.getMenuItemName() == null || item.getMenuItemName().trim().isEmpty()) {
+                throw new IllegalArgumentException("Order item name is required");
+            }
+            if (item.getPrice() == null || item.getPrice().compareTo(BigDecimal.ZERO) < 0) {
+                throw new IllegalArgumentException("Order item price must not be negative");
+            }
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Order item quantity must be greater than zero");
+            }
+            total = total.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+
+        if (!orderDAO.createOrderWithItems(order, items)) {
+            throw new IllegalStateException("Failed to place order");
+        }
+        etaService.recordPlaced(order, System.currentTimeMillis());
+        publishOrderEvent(OrderEvent.Kind.PLACED, order.getId());
+        return new OrderReceipt(order.getId(), total, items.size());
+    }
+
+    // Best effort: an address the gazetteer does not know is delivered without coordinates
+    private void locateDelivery(Order order) {
+        if (order.getDeliveryLocation() == null) {
+            order.setDeliveryLocation(gazetteer.resolve(order.getDeliveryAddress()));
+        }
+    }
+
+    private void validateNewOrder(Order order) {
         if (order == null) throw new IllegalArgumentException("Order cannot be null");
         if (order.getCustomerId() <= 0) throw new IllegalArgumentException("Invalid customer ID");
         if (order.getRestaurantId() <= 0) throw new IllegalArgumentException("Invalid restaurant ID");
@@ -349,8 +596,6 @@ public class EcoSystem {
         if (order.getOrderDate() == null) {
             order.setOrderDate(new java.util.Date());
         }
-
-        orderDAO.createOrder(order);
     }
 
     public List<Order> getOrdersForCustomer(int customerId) {
@@ -365,8 +610,122 @@ public class EcoSystem {
         return orderDAO.getOrdersByDeliveryMan(deliveryManId);
     }
 
-    public void updateOrderStatus(int orderId, String status, int deliveryManId) {
-        orderDAO.updateOrderStatus(orderId, status, deliveryManId);
+    public Page<Order> getOrdersForCustomer(int customerId, String pageToken, int pageSize) {
+        return orderDAO.getOrdersByCustomer(customerId, pageToken, pageSize);
+    }
+
+    public Page<Order> getOrdersForRestaurant(int restaurantId, String pageToken, int pageSize) {
+        return orderDAO.getOrdersByRestaurant(restaurantId, pageToken, pageSize);
+    }
+
+    public Page<Order> getOrdersForDeliveryMan(int deliveryManId, String pageToken, int pageSize) {
+        return orderDAO.getOrdersByDeliveryMan(deliveryManId, pageToken, pageSize);
+    }
+
+    // For paged order lists: see OrderDAO.loadOrdersPageByRestaurant. Throw IllegalStateException on failure.
+    public int getOrderCountForRestaurant(int restaurantId, String status) {
+        try {
+            return orderDAO.loadOrderCountByRestaurant(restaurantId, status);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to count orders", e);
+        }
+    }
+
+    // The page comes with its orders' items: two queries however many orders it holds.
+    // If the item query fails the orders come back with getItems() == null.
+    public List<Order> getOrdersPageForRestaurant(int restaurantId, String status, int offset, int limit,
+            String sortField, boolean ascending) {
+        return getOrdersPageForRestaurant(restaurantId, status, null, true, offset, limit, sortField, ascending);
+    }
+
+    // The same, read on from an order already shown instead of from the top
+    public List<Order> getOrdersPageForRestaurant(int restaurantId, String status, Order anchor, boolean forward,
+            int skip, int limit, String sortField, boolean ascending) {
+        List<Order> orders;
+        try {
+            orders = orderDAO.loadOrdersPageByRestaurant(restaurantId, status, anchor, forward, skip, limit,
+                    sortField, ascending);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load orders", e);
+        }
+        int[] orderIds = orders.stream().mapToInt(Order::getId).toArray();
+        IntObjectMap<List<OrderItem>> itemsByOrder = orderItemDAO.getOrderItemsForOrders(orderIds);
+        if (itemsByOrder != null) {
+            for (Order order : orders) {
+                List<OrderItem> items = itemsByOrder.get(order.getId());
+                order.setItems(items != null ? items : List.of());
+            }
+        }
+        return orders;
+    }
+
+    // Newest orders across every organization of the enterprise; status may be null for all
+    public List<OrderSummary> getOrderSummariesForEnterprise(int enterpriseId, String status, int limit) {
+        return orderDAO.getOrderSummariesByEnterprise(enterpriseId, status, limit);
+    }
+
+    /**
+     * Compare-and-set status change: applies only if the order is still in expectedStatus at
+     * expectedVersion, as last read by the caller. Returns false when a concurrent change won;
+     * reload the order and try again if the move still makes sense. Throws
+     * IllegalArgumentException for moves the order lifecycle does not allow.
+     */
+    public boolean updateOrderStatus(int orderId, String expectedStatus, int expectedVersion, String newStatus, int deliveryManId) {
+        OrderStatus from = OrderStatus.fromLabel(expectedStatus);
+        OrderStatus to = OrderStatus.fromLabel(newStatus);
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Unknown order status: " + (from == null ? expectedStatus : newStatus));
+        }
+        if (!from.canTransitionTo(to)) {
+            throw new IllegalArgumentException("An order that is " + from + " cannot be marked " + to);
+        }
+        boolean updated = orderDAO.updateOrderStatus(orderId, from.getLabel(), expectedVersion, to.getLabel(), deliveryManId);
+        if (updated && from != to) {
+            etaService.recordStatus(orderId, to, System.currentTimeMillis());
+            if (to == OrderStatus.DELIVERED) tripDAO.completeTripOfOrder(orderId);
+        }
+        if (updated) publishOrderEvent(OrderEvent.Kind.STATUS_CHANGED, orderId);
+        return updated;
+    }
+
+    // Called after the change is committed. Subscribers get the order as stored, so the row
+    // is read back, but only when somebody is listening.
+    private void publishOrderEvent(OrderEvent.Kind kind, int orderId) {
+        if (!eventBus.hasSubscribers(OrderEvent.class)) return;
+        Order order = orderDAO.getOrderById(orderId);
+        if (order != null) {
+            eventBus.publish(new OrderEvent(kind, order, getOrganizationEnterpriseId(order.getRestaurantId())));
+        }
+    }
+
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Changes committed to orders, work requests and menus after cursor, by any node, oldest
+     * first; pass the last cursor seen to continue. Start from the cursor of {@link
+     * #getChangeFeed()} to skip history. Throws IllegalStateException if the log cannot be read.
+     */
+    public List<ChangeRecord> getChangesSince(long cursor, int max) {
+        try {
+            return changeLogDAO.getChangesSince(cursor, max);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read the change log", e);
+        }
+    }
+
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    // Expected delivery time in epoch millis, or -1 for delivered orders
+    public long estimateDelivery(Order order) {
+        return etaService.estimateDelivery(order);
+    }
+
+    public EtaService getEtaService() {
+        return etaService;
     }
 
     // Menu Management
@@ -390,13 +749,18 @@ public class EcoSystem {
         }
 
         menuItemDAO.createMenuItem(item);
+        menuCache.invalidate(item.getRestaurantId());
     }
 
     public void deleteMenuItem(int menuItemId) {
         menuItemDAO.deleteMenuItem(menuItemId);
+        menuCache.invalidateItem(menuItemId);
     }
     public void updateMenuItem(MenuItem item) {
         menuItemDAO.updateMenuItem(item);
+        // The item may have moved: drop the menu it was cached under as well as its new one
+        menuCache.invalidateItem(item.getId());
+        menuCache.invalidate(item.getRestaurantId());
     }
 
     public void createOrderItem(model.OrderItem item) {
@@ -415,24 +779,128 @@ public class EcoSystem {
         return orderItemDAO.getOrderItemsByOrderId(orderId);
     }
 
+    // Served from the menu cache; the returned list and items are shared, do not modify them
     public List<MenuItem> getMenu(int restaurantId) {
-        return menuItemDAO.getMenuItemsByRestaurant(restaurantId);
+        return menuCache.get(restaurantId).getItems();
+    }
+
+    public MenuCache.RestaurantMenu getRestaurantMenu(int restaurantId) {
+        return menuCache.get(restaurantId);
+    }
+
+    public MenuCache getMenuCache() {
+        return menuCache;
+    }
+
+    // Delivery Queue
+    // Drivers of a restaurant enterprise only take their own restaurants' orders; drivers of a
+    // delivery enterprise take from every restaurant
+    public List<Order> claimNextOrders(Session session, int count) {
+        requireDriver(session);
+        Enterprise enterprise = session.getEnterpriseId() == null ? null : getEnterprise(session.getEnterpriseId());
+        Integer scope = enterprise != null && "Restaurant".equalsIgnoreCase(enterprise.getType()) ? enterprise.getId() : null;
+        return deliveryQueue.claimNext(session.getUserId(), scope, count);
+    }
+
+    public List<Order> getClaimedOrders(Session session) {
+        requireDriver(session);
+        return deliveryQueue.getClaims(session.getUserId());
+    }
+
+    public boolean releaseClaim(Session session, int orderId) {
+        requireDriver(session);
+        return deliveryQueue.release(orderId, session.getUserId());
+    }
+
+    // The driver's trips with orders still to deliver, stops in visiting order
+    public List<Trip> getActiveTrips(Session session) {
+        requireDriver(session);
+        return tripDAO.getActiveTripsForDriver(session.getUserId());
+    }
+
+    public DeliveryQueue getDeliveryQueue() {
+        return deliveryQueue;
+    }
+
+    public DispatchEngine getDispatchEngine() {
+        return dispatchEngine;
+    }
+
+    // Locations
+    // Queued for the location ingestor; false if the report was dropped because ingestion is behind
+    public boolean updateDriverLocation(Session session, double latitude, double longitude) {
+        requireDriver(session);
+        return locationIngestor.report(session.getUserId(), latitude, longitude);
+    }
+
+    public LocationIngestor getLocationIngestor() {
+        return locationIngestor;
+    }
+
+    /**
+     * The k drivers nearest to the restaurant among those with no order in hand who may serve
+     * it (drivers of another restaurant enterprise may not), nearest first. Empty when the
+     * restaurant has no location or driver loads could not be read.
+     */
+    public List<DriverLocator.Neighbor> findNearestIdleDrivers(int restaurantId, int k) {
+        Organization restaurant = getOrganization(restaurantId);
+        if (restaurant == null || restaurant.getLocation() == null) return List.of();
+        IntObjectMap<Integer> loads = orderDAO.getActiveOrderCountsByDriver();
+        if (loads == null) return List.of();
+        List<User> staff = userDAO.getUsersByRole("DeliveryMan");
+        IntObjectMap<Integer> organizationOf = new IntObjectMap<>(staff.size());
+        for (User u : staff) organizationOf.put(u.getId(), u.getOrganizationId());
+        DirectoryCache.Snapshot dir = directory.get();
+        Integer restaurantEnterprise = restaurant.getEnterpriseId();
+        return driverLocator.nearest(restaurant.getLocation(), k, driverId -> {
+            Integer organizationId = organizationOf.get(driverId);
+            return organizationId != null && !loads.containsKey(driverId)
+                    && DispatchEngine.canServe(dir, organizationId, restaurantEnterprise);
+        });
+    }
+
+    // Places the organization at a gazetteer place (e.g. "Boston" or "02115")
+    public void setOrganizationLocation(Session session, int organizationId, String place) {
+        Integer enterpriseId = getOrganizationEnterpriseId(organizationId);
+        if (enterpriseId == null) throw new IllegalArgumentException("Unknown organization");
+        if (!canManageEnterprise(session, enterpriseId)) {
+            throw new IllegalStateException("Unauthorized to update this organization");
+        }
+        GeoPoint location = gazetteer.resolve(place);
+        if (location == null) throw new IllegalArgumentException("Unknown place: " + place);
+        if (organizationDAO.updateLocation(organizationId, location)) {
+            directory.refresh();
+        }
+    }
+
+    public Gazetteer getGazetteer() {
+        return gazetteer;
+    }
+
+    public DriverLocator getDriverLocator() {
+        return driverLocator;
+    }
+
+    private void requireDriver(Session session) {
+        requireActive(session);
+        if (session == null || !"DeliveryMan".equals(session.getRole())) {
+            throw new IllegalStateException("Only delivery staff can take orders from the delivery queue");
+        }
     }
 
     // Work Requests
-    public void createWorkRequest(model.WorkRequest wr) {
+    public void createWorkRequest(Session session, model.WorkRequest wr) {
         // Sender must be the enterprise of the current user or SystemAdmin
-        Integer currentEntId = getCurrentUserEnterpriseId();
-        if (isSystemAdmin() || (isEnterpriseAdmin() && currentEntId != null && currentEntId.equals(wr.getSenderEnterpriseId()))) {
-            workRequestDAO.createWorkRequest(wr);
+        if (canManageEnterprise(session, wr.getSenderEnterpriseId())) {
+            if (workRequestDAO.createWorkRequest(wr)) publishWorkRequestEvent(WorkRequestEvent.Kind.CREATED, wr.getId());
         } else {
             throw new IllegalStateException("Unauthorized to create work request for this enterprise");
         }
     }
 
-    public java.util.List<model.WorkRequest> getWorkRequestsForEnterprise(int enterpriseId) {
+    public java.util.List<model.WorkRequest> getWorkRequestsForEnterprise(Session session, int enterpriseId) {
         // Show both sent and received? For simplicity show received requests for enterprise
-        if (isSystemAdmin() || (isEnterpriseAdmin() && getCurrentUserEnterpriseId() != null && getCurrentUserEnterpriseId().equals(enterpriseId))) {
+        if (canManageEnterprise(session, enterpriseId)) {
             return workRequestDAO.getWorkRequestsByReceiver(enterpriseId);
         } else {
             throw new IllegalStateException("Unauthorized to view work requests for this enterprise");
@@ -443,32 +911,35 @@ public class EcoSystem {
         return workRequestDAO.getWorkRequestsBySender(enterpriseId);
     }
 
-    public void updateWorkRequestStatus(int id, String status) {
+    public void updateWorkRequestStatus(Session session, int id, String status) {
         model.WorkRequest wr = workRequestDAO.getWorkRequest(id);
         if (wr == null) return;
-        Integer currentEntId = getCurrentUserEnterpriseId();
         // Only SystemAdmin or receiver enterprise may update status
-        if (isSystemAdmin() || (isEnterpriseAdmin() && currentEntId != null && currentEntId.equals(wr.getReceiverEnterpriseId()))) {
-            workRequestDAO.updateWorkRequestStatus(id, status);
+        if (canManageEnterprise(session, wr.getReceiverEnterpriseId())) {
+            if (workRequestDAO.updateWorkRequestStatus(id, status)) publishWorkRequestEvent(WorkRequestEvent.Kind.STATUS_CHANGED, id);
         } else {
             throw new IllegalStateException("Unauthorized to update this work request");
         }
     }
 
-    public boolean isSystemAdmin() { return currentUser != null && "SystemAdmin".equals(currentUser.getRole()); }
-
-    public boolean isEnterpriseAdmin() { return currentUser != null && "EnterpriseAdmin".equals(currentUser.getRole()); }
+    private void publishWorkRequestEvent(WorkRequestEvent.Kind kind, int id) {
+        if (id <= 0 || !eventBus.hasSubscribers(WorkRequestEvent.class)) return;
+        model.WorkRequest wr = workRequestDAO.getWorkRequest(id);
+        if (wr != null) eventBus.publish(new WorkRequestEvent(kind, wr));
+    }
 
-    public Integer getCurrentUserEnterpriseId() {
-        if (currentUser == null) return null;
-        int orgId = currentUser.getOrganizationId();
-        if (orgId <= 0) return null;
-        Organization org = organizationDAO.getOrganizationById(orgId);
-        return org == null ? null : org.getEnterpriseId();
+    // SystemAdmin manages everything; an EnterpriseAdmin only their own enterprise
+    private boolean canManageEnterprise(Session session, Integer enterpriseId) {
+        if (session == null) return false;
+        requireActive(session);
+        if (session.isSystemAdmin()) return true;
+        return session.isEnterpriseAdmin() && session.getEnterpriseId() != null && session.getEnterpriseId().equals(enterpriseId);
     }
 
+    // Null when the organization does not exist; answered from the directory without a query
     private Integer getOrganizationEnterpriseId(int orgId) {
-        Organization org = organizationDAO.getOrganizationById(orgId);
+        if (orgId <= 0) return null;
+        Organization org = getOrganization(orgId);
         return org == null ? null : org.getEnterpriseId();
     }
 }
@@ -0,0 +1,306 @@
+package ecosystem;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dao.OrderHistoryDAO;
+import model.GeoPoint;
+import model.Order;
+import model.OrderStatus;
+import model.StatusChange;
+import util.IntObjectMap;
+
+/**
+ * Predicts when orders will be delivered from how long recent orders took. Three stages are
+ * learned as exponentially weighted moving averages: preparation (Placed to ReadyForPickup)
+ * per restaurant and hour of day, the wait for a driver (ReadyForPickup to OutForDelivery)
+ * per restaurant, and travel (OutForDelivery to Delivered) per delivery zone, a grid cell of
+ * {@code zoneKm}. An average with fewer than {@code minSamples} samples defers to a broader
+ * one (restaurant all day, then all restaurants at that hour, then everything), and with no
+ * data at all the configured defaults apply.
+ *
+ * <p>Every status change updates the averages in O(1) and an estimate is a handful of map
+ * lookups, so both are cheap enough to call per table row. The orders in flight are tracked
+ * in memory with the time they entered each stage. On boot {@link #warmStart} replays the
+ * status history table to rebuild the averages and the in-flight orders.
+ */
+public final class EtaService {
+    private static final Logger LOGGER = Logger.getLogger(EtaService.class.getName());
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final int ALL_DAY = 24;
+    private static final int NO_ZONE = Integer.MIN_VALUE;
+    // Longer stages are abandoned orders or data errors, not samples
+    private static final long MAX_SAMPLE_MILLIS = 6 * 3_600_000L;
+    // Orders still in flight after this long are dropped from tracking
+    private static final long MAX_TRACK_MILLIS = 24 * 3_600_000L;
+    private static final int PURGE_EVERY = 1024;
+
+    // Average of a stage duration in millis; early samples are weighted evenly so the first
+    // few do not leave the average near zero
+    static final class Ewma {
+        double mean;
+        long count;
+
+        void add(double sample, double alpha) {
+            count++;
+            mean += Math.max(alpha, 1.0 / count) * (sample - mean);
+        }
+    }
+
+    // An order in flight: where it is going and when it entered each stage (0 if not yet)
+    private static final class Track {
+        final int restaurantId;
+        final int zone;
+        final int hour;
+        final long placedAt;
+        long readyAt;
+        long pickedUpAt;
+        OrderStatus status = OrderStatus.PLACED;
+
+        Track(int restaurantId, int zone, int hour, long placedAt) {
+            this.restaurantId = restaurantId;
+            this.zone = zone;
+            this.hour = hour;
+            this.placedAt = placedAt;
+        }
+    }
+
+    private final double alpha;
+    private final int minSamples;
+    private final double zoneDeg;
+    private final int zoneColumns;
+    private final long defaultPrepMillis;
+    private final long defaultPickupMillis;
+    private final long defaultTravelMillis;
+    private final ZoneId timeZone = ZoneId.systemDefault();
+
+    // Restaurant id -> preparation by hour of day, index ALL_DAY for the whole day
+    private final IntObjectMap<Ewma[]> prepByRestaurant = new IntObjectMap<>();
+    private final Ewma[] prepByHour = newDay();
+    private final IntObjectMap<Ewma> pickupByRestaurant = new IntObjectMap<>();
+    private final Ewma pickupAll = new Ewma();
+    private final IntObjectMap<Ewma> travelByZone = new IntObjectMap<>();
+    private final Ewma travelAll = new Ewma();
+    private final IntObjectMap<Track> inFlight = new IntObjectMap<>();
+    private int placedSincePurge;
+
+    EtaService(double alpha, int minSamples, double zoneKm,
+            long defaultPrepMillis, long defaultPickupMillis, long defaultTravelMillis) {
+        if (!(alpha > 0 && alpha <= 1)) throw new IllegalArgumentException("Smoothing factor must be in (0, 1]");
+        if (minSamples < 1) throw new IllegalArgumentException("Minimum samples must be positive");
+        // Zones of at least 1 km keep every zone number within an int
+        if (!(zoneKm >= 1.0)) throw new IllegalArgumentException("Zone size must be at least 1 km");
+        this.alpha = alpha;
+        this.minSamples = minSamples;
+        this.zoneDeg = zoneKm / KM_PER_DEGREE;
+        this.zoneColumns = (int) Math.ceil(360 / zoneDeg) + 1;
+        this.defaultPrepMillis = defaultPrepMillis;
+        this.defaultPickupMillis = defaultPickupMillis;
+        this.defaultTravelMillis = defaultTravelMillis;
+    }
+
+    private static Ewma[] newDay() {
+        Ewma[] day = new Ewma[ALL_DAY + 1];
+        for (int h = 0; h < day.length; h++) day[h] = new Ewma();
+        return day;
+    }
+
+    /**
+     * Rebuilds the averages and in-flight orders from the status history since sinceMillis.
+     * Returns how many changes were replayed, or -1 if the history could not be read (the
+     * service then starts from the defaults).
+     */
+    int warmStart(OrderHistoryDAO historyDAO, long sinceMillis) {
+        int[] replayed = new int[1];
+        try {
+            synchronized (this) {
+                historyDAO.forEachChangeSince(sinceMillis, change -> {
+                    replay(change);
+                    replayed[0]++;
+                });
+                // Orders abandoned long ago are not in flight any more
+                purgeStale(System.currentTimeMillis());
+            }
+            return replayed[0];
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to warm-start delivery estimates from the status history", e);
+        }
+        return -1;
+    }
+
+    private void replay(StatusChange change) {
+        OrderStatus status = OrderStatus.fromLabel(change.getStatus());
+        if (status == null) return;
+        if (status == OrderStatus.PLACED) {
+            startTrack(change.getOrderId(), change.getRestaurantId(), change.getDeliveryLocation(), change.getChangedAt());
+        } else {
+            advance(change.getOrderId(), status, change.getChangedAt());
+        }
+    }
+
+    public synchronized void recordPlaced(Order order, long at) {
+        startTrack(order.getId(), order.getRestaurantId(), order.getDeliveryLocation(), at);
+        if (++placedSincePurge >= PURGE_EVERY) {
+            placedSincePurge = 0;
+            purgeStale(at);
+        }
+    }
+
+    public synchronized void recordStatus(int orderId, OrderStatus status, long at) {
+        advance(orderId, status, at);
+    }
+
+    private void startTrack(int orderId, int restaurantId, GeoPoint destination, long at) {
+        inFlight.put(orderId, new Track(restaurantId, zoneOf(destination), hourOf(at), at));
+    }
+
+    // Closes the stage the change ends; orders placed before tracking began are ignored
+    private void advance(int orderId, OrderStatus status, long at) {
+        Track track = inFlight.get(orderId);
+        if (track == null) return;
+        track.status = status;
+        switch (status) {
+            case READY_FOR_PICKUP -> {
+                track.readyAt = at;
+                if (isSample(at - track.placedAt)) {
+                    Ewma[] day = prepByRestaurant.get(track.restaurantId);
+                    if (day == null) {
+                        day = newDay();
+                        prepByRestaurant.put(track.restaurantId, day);
+                    }
+                    double sample = at - track.placedAt;
+                    day[track.hour].add(sample, alpha);
+                    day[ALL_DAY].add(sample, alpha);
+                    prepByHour[track.hour].add(sample, alpha);
+                    prepByHour[ALL_DAY].add(sample, alpha);
+                }
+            }
+            case OUT_FOR_DELIVERY -> {
+                track.pickedUpAt = at;
+                if (track.readyAt > 0 && isSample(at - track.readyAt)) {
+                    Ewma pickup = pickupByRestaurant.get(track.restaurantId);
+                    if (pickup == null) {
+                        pickup = new Ewma();
+                        pickupByRestaurant.put(track.restaurantId, pickup);
+                    }
+                    pickup.add(at - track.readyAt, alpha);
+                    pickupAll.add(at - track.readyAt, alpha);
+                }
+            }
+            case DELIVERED -> {
+                inFlight.remove(orderId);
+                if (track.pickedUpAt > 0 && isSample(at - track.pickedUpAt)) {
+                    if (track.zone != NO_ZONE) {
+                        Ewma travel = travelByZone.get(track.zone);
+                        if (travel == null) {
+                            travel = new Ewma();
+                            travelByZone.put(track.zone, travel);
+                        }
+                        travel.add(at - track.pickedUpAt, alpha);
+                    }
+                    travelAll.add(at - track.pickedUpAt, alpha);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static boolean isSample(long millis) {
+        return millis >= 0 && millis <= MAX_SAMPLE_MILLIS;
+    }
+
+    private void purgeStale(long now) {
+        List<Integer> stale = new ArrayList<>();
+        inFlight.forEach((id, track) -> {
+            if (now - track.placedAt > MAX_TRACK_MILLIS) stale.add(id);
+        });
+        for (int id : stale) inFlight.remove(id);
+    }
+
+    /**
+     * Expected delivery time (epoch millis) of an order this service has seen placed, or -1
+     * if it is not in flight here (delivered, or placed before tracking began).
+     */
+    public synchronized long estimateDelivery(int orderId) {
+        Track track = inFlight.get(orderId);
+        return track == null ? -1 : estimate(track, System.currentTimeMillis());
+    }
+
+    /**
+     * Expected delivery time (epoch millis) of the order as read from the database; uses the
+     * tracked stage times when the order is in flight here and otherwise assumes the current
+     * stage has just begun. -1 for delivered orders and unknown statuses.
+     */
+    public synchronized long estimateDelivery(Order order) {
+        long now = System.currentTimeMillis();
+        Track track = inFlight.get(order.getId());
+        if (track != null) return estimate(track, now);
+        OrderStatus status = OrderStatus.fromLabel(order.getStatus());
+        if (status == null || status == OrderStatus.DELIVERED) return -1;
+        long placedAt = order.getOrderDate() != null ? order.getOrderDate().getTime() : now;
+        track = new Track(order.getRestaurantId(), zoneOf(order.getDeliveryLocation()), hourOf(placedAt), placedAt);
+        track.status = status;
+        if (status == OrderStatus.READY_FOR_PICKUP) track.readyAt = now;
+        if (status == OrderStatus.OUT_FOR_DELIVERY) track.pickedUpAt = now;
+        return estimate(track, now);
+    }
+
+    // Each remaining stage starts when the previous one is expected to end, never in the past
+    private long estimate(Track track, long now) {
+        long pickedUpAt;
+        if (track.status == OrderStatus.OUT_FOR_DELIVERY) {
+            pickedUpAt = track.pickedUpAt;
+        } else {
+            long readyAt = track.status == OrderStatus.READY_FOR_PICKUP
+                    ? track.readyAt
+                    : Math.max(now, track.placedAt + prepMillis(track.restaurantId, track.hour));
+            pickedUpAt = Math.max(now, readyAt + pickupMillis(track.restaurantId));
+        }
+        return Math.max(now, pickedUpAt + travelMillis(track.zone));
+    }
+
+    private long prepMillis(int restaurantId, int hour) {
+        Ewma[] day = prepByRestaurant.get(restaurantId);
+        if (day != null && day[hour].count >= minSamples) return (long) day[hour].mean;
+        if (day != null && day[ALL_DAY].count >= minSamples) return (long) day[ALL_DAY].mean;
+        if (prepByHour[hour].count >= minSamples) return (long) prepByHour[hour].mean;
+        if (prepByHour[ALL_DAY].count >= minSamples) return (long) prepByHour[ALL_DAY].mean;
+        return defaultPrepMillis;
+    }
+
+    private long pickupMillis(int restaurantId) {
+        Ewma pickup = pickupByRestaurant.get(restaurantId);
+        if (pickup != null && pickup.count >= minSamples) return (long) pickup.mean;
+        if (pickupAll.count >= minSamples) return (long) pickupAll.mean;
+        return defaultPickupMillis;
+    }
+
+    private long travelMillis(int zone) {
+        Ewma travel = zone == NO_ZONE ? null : travelByZone.get(zone);
+        if (travel != null && travel.count >= minSamples) return (long) travel.mean;
+        if (travelAll.count >= minSamples) return (long) travelAll.mean;
+        return defaultTravelMillis;
+    }
+
+    private int zoneOf(GeoPoint point) {
+        if (point == null) return NO_ZONE;
+        int row = (int) ((point.getLatitude() + 90) / zoneDeg);
+        int col = Math.min(zoneColumns - 1, (int) ((point.getLongitude() + 180) / zoneDeg));
+        return row * zoneColumns + col;
+    }
+
+    private int hourOf(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(timeZone).getHour();
+    }
+
+    // Orders currently in flight here
+    public synchronized int getTrackedOrderCount() {
+        return inFlight.size();
+    }
+}
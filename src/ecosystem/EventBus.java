@@ -0,0 +1,211 @@
+package ecosystem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process publish/subscribe for domain events such as {@link model.OrderEvent}. A
+ * subscriber names the event type, a filter and the executor its handler runs on (for Swing,
+ * {@code SwingUtilities::invokeLater}). Publishing never blocks on a subscriber: each one has
+ * a bounded queue, and when it is full the subscriber's {@link Overflow} policy decides what
+ * gives. Events queued together are handled in one executor task, in publish order, so a
+ * burst costs a subscriber one hop onto its thread rather than one per event.
+ *
+ * <p>Publishers publish after their change is committed, so a handler can rely on reading
+ * the change back.
+ */
+public final class EventBus {
+    private static final Logger LOGGER = Logger.getLogger(EventBus.class.getName());
+
+    public enum Overflow {
+        /** Discard the oldest queued event to make room. */
+        DROP_OLDEST,
+        /** Discard the event being published. */
+        DROP_NEWEST,
+        /**
+         * Keep only the latest event per key (say, per order); when the queue is full of
+         * distinct keys, the oldest key goes.
+         */
+        COALESCE
+    }
+
+    public final class Subscription<E> implements AutoCloseable {
+        private final Class<E> type;
+        private final Predicate<? super E> filter;
+        private final Executor executor;
+        private final int capacity;
+        private final Overflow overflow;
+        private final ToIntFunction<? super E> key;
+        private final Consumer<? super E> handler;
+        // Guarded by this subscription; one of the two is used, by overflow policy
+        private final ArrayDeque<E> queue;
+        private final LinkedHashMap<Integer, E> latestByKey;
+        private boolean scheduled;
+        private volatile boolean closed;
+        private final LongAdder dropped = new LongAdder();
+
+        private Subscription(Class<E> type, Predicate<? super E> filter, Executor executor, int capacity,
+                Overflow overflow, ToIntFunction<? super E> key, Consumer<? super E> handler) {
+            this.type = type;
+            this.filter = filter;
+            this.executor = executor;
+            this.capacity = capacity;
+            this.overflow = overflow;
+            this.key = key;
+            this.handler = handler;
+            this.queue = overflow == Overflow.COALESCE ? null : new ArrayDeque<>();
+            this.latestByKey = overflow == Overflow.COALESCE ? new LinkedHashMap<>() : null;
+        }
+
+        private void offer(Object event) {
+            E typed = type.cast(event);
+            boolean schedule;
+            synchronized (this) {
+                if (closed) return;
+                if (overflow == Overflow.COALESCE) {
+                    Integer k = key.applyAsInt(typed);
+                    // Re-inserting moves the key to the back: it is now the latest
+                    if (latestByKey.remove(k) == null && latestByKey.size() == capacity) {
+                        Iterator<Integer> oldest = latestByKey.keySet().iterator();
+                        oldest.next();
+                        oldest.remove();
+                        dropped.increment();
+                    }
+                    latestByKey.put(k, typed);
+                } else if (queue.size() == capacity) {
+                    dropped.increment();
+                    if (overflow == Overflow.DROP_NEWEST) return;
+                    queue.pollFirst();
+                    queue.addLast(typed);
+                } else {
+                    queue.addLast(typed);
+                }
+                schedule = !scheduled;
+                scheduled = true;
+            }
+            if (schedule) {
+                try {
+                    executor.execute(this::deliver);
+                } catch (RejectedExecutionException e) {
+                    synchronized (this) {
+                        scheduled = false;
+                    }
+                    LOGGER.log(Level.WARNING, "Event delivery rejected by the subscriber's executor", e);
+                }
+            }
+        }
+
+        // Runs on the subscriber's executor until the queue is empty
+        private void deliver() {
+            while (true) {
+                List<E> batch;
+                synchronized (this) {
+                    int size = queue != null ? queue.size() : latestByKey.size();
+                    if (size == 0 || closed) {
+                        scheduled = false;
+                        return;
+                    }
+                    if (queue != null) {
+                        batch = new ArrayList<>(queue);
+                        queue.clear();
+                    } else {
+                        batch = new ArrayList<>(latestByKey.values());
+                        latestByKey.clear();
+                    }
+                }
+                for (E event : batch) {
+                    if (closed) break;
+                    try {
+                        handler.accept(event);
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Event handler failed", e);
+                    }
+                }
+            }
+        }
+
+        // Events discarded by the overflow policy
+        public long getDroppedCount() {
+            return dropped.sum();
+        }
+
+        // Stops delivery, including of events already queued
+        @Override
+        public void close() {
+            synchronized (this) {
+                closed = true;
+                if (queue != null) queue.clear();
+                else latestByKey.clear();
+            }
+            subscriptions.remove(this);
+        }
+    }
+
+    private final CopyOnWriteArrayList<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Subscribes with a DROP_OLDEST or DROP_NEWEST queue of up to capacity events. The
+     * handler runs on the executor; close the subscription when the subscriber goes away.
+     */
+    public <E> Subscription<E> subscribe(Class<E> type, Predicate<? super E> filter, Executor executor,
+            int capacity, Overflow overflow, Consumer<? super E> handler) {
+        if (overflow == Overflow.COALESCE) throw new IllegalArgumentException("Coalescing needs a key; use subscribeCoalescing");
+        return add(new Subscription<>(type, filter, executor, checkCapacity(capacity), overflow, null, handler));
+    }
+
+    /**
+     * Subscribes with a COALESCE queue holding the latest event for up to capacity keys: a
+     * subscriber that only shows current state never handles an outdated event for a key.
+     */
+    public <E> Subscription<E> subscribeCoalescing(Class<E> type, Predicate<? super E> filter, Executor executor,
+            int capacity, ToIntFunction<? super E> key, Consumer<? super E> handler) {
+        if (key == null) throw new IllegalArgumentException("Coalescing key cannot be null");
+        return add(new Subscription<>(type, filter, executor, checkCapacity(capacity), Overflow.COALESCE, key, handler));
+    }
+
+    private <E> Subscription<E> add(Subscription<E> subscription) {
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Queue capacity must be positive");
+        return capacity;
+    }
+
+    // Offers the event to every matching subscriber; never blocks and never throws
+    public void publish(Object event) {
+        for (Subscription<?> s : subscriptions) {
+            if (!s.type.isInstance(event)) continue;
+            try {
+                if (matches(s, event)) s.offer(event);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Event filter failed", e);
+            }
+        }
+    }
+
+    private static <E> boolean matches(Subscription<E> s, Object event) {
+        return s.filter == null || s.filter.test(s.type.cast(event));
+    }
+
+    // Lets publishers skip building events nobody listens to
+    public boolean hasSubscribers(Class<?> type) {
+        for (Subscription<?> s : subscriptions) {
+            if (s.type.isAssignableFrom(type)) return true;
+        }
+        return false;
+    }
+}
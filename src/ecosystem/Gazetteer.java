@@ -0,0 +1,94 @@
+package ecosystem;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dao.GazetteerDAO;
+import model.GeoPoint;
+
+/**
+ * Resolves free-text addresses to coordinates from the local gazetteer table, which stands in
+ * for a geocoding service. The whole table is held in memory and reloaded after
+ * {@code geo.gazetteerRefreshSeconds}. An address resolves to the full address if that is
+ * known, otherwise to the last place it mentions: comma-separated parts are tried from the end
+ * and, within a part, the whole part and then each word from the end, so "Boston, MA 02115"
+ * resolves to the postcode.
+ */
+public final class Gazetteer {
+    private static final Logger LOGGER = Logger.getLogger(Gazetteer.class.getName());
+
+    private final GazetteerDAO gazetteerDAO;
+    private final long maxAgeMillis;
+    private volatile Map<String, GeoPoint> places;
+    private volatile long loadedAt;
+
+    Gazetteer(GazetteerDAO gazetteerDAO, long maxAgeMillis) {
+        this.gazetteerDAO = gazetteerDAO;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    // Lower case, punctuation other than commas dropped, whitespace collapsed around each part
+    public static String normalize(String text) {
+        if (text == null) return "";
+        String cleaned = text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}, ]+", " ");
+        StringBuilder sb = new StringBuilder();
+        for (String part : cleaned.split(",")) {
+            String trimmed = part.trim().replaceAll("\\s+", " ");
+            if (trimmed.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(trimmed);
+        }
+        return sb.toString();
+    }
+
+    // Null when the address mentions no known place
+    public GeoPoint resolve(String address) {
+        String key = normalize(address);
+        if (key.isEmpty()) return null;
+        Map<String, GeoPoint> known = places();
+        GeoPoint point = known.get(key);
+        if (point != null) return point;
+        String[] parts = key.split(", ");
+        for (int i = parts.length - 1; i >= 0; i--) {
+            point = known.get(parts[i]);
+            if (point != null) return point;
+            String[] words = parts[i].split(" ");
+            for (int j = words.length - 1; j >= 0; j--) {
+                point = known.get(words[j]);
+                if (point != null) return point;
+            }
+        }
+        return null;
+    }
+
+    public boolean addPlace(String name, GeoPoint point) {
+        String key = normalize(name);
+        if (key.isEmpty() || point == null) throw new IllegalArgumentException("Place name and coordinates are required");
+        if (!gazetteerDAO.savePlace(key, point)) return false;
+        reload();
+        return true;
+    }
+
+    private Map<String, GeoPoint> places() {
+        Map<String, GeoPoint> current = places;
+        if (current == null || System.currentTimeMillis() - loadedAt > maxAgeMillis) {
+            current = reload();
+        }
+        return current;
+    }
+
+    // On failure the previous table stays in use; with nothing loaded yet, nothing resolves
+    private synchronized Map<String, GeoPoint> reload() {
+        try {
+            places = Map.copyOf(gazetteerDAO.loadAllPlaces());
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to load the gazetteer", e);
+            if (places == null) return Map.of();
+        }
+        loadedAt = System.currentTimeMillis();
+        return places;
+    }
+}
@@ -0,0 +1,355 @@
+package ecosystem;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dao.DriverLocationDAO;
+import model.DriverPosition;
+import model.GeoPoint;
+import util.IntObjectMap;
+import util.PositionRingBuffer;
+
+/**
+ * Takes driver position reports at a high rate without touching the database per report.
+ * {@link #report} only puts the position into a lock-free {@link PositionRingBuffer}. One
+ * ingest thread drains the buffer, moves the driver in the {@link DriverLocator} straight
+ * away (so dispatch always sees the freshest position) and keeps the latest position per
+ * driver. Every {@code flushMillis} the drivers that moved since the last flush are copied
+ * into a batch, one row per driver however many reports they sent, and handed to a separate
+ * writer thread that upserts it into driver_locations. Two batches alternate, so the ingest
+ * thread never waits on the database: while one is being written the next one fills, and if
+ * both are taken the drivers simply wait for a later batch. A failed write is retried every
+ * {@code flushMillis} until it succeeds. Reports that find the buffer full are dropped and
+ * counted; the driver's next report replaces them anyway.
+ *
+ * <p>Only active drivers stay in the locator: at each flush, drivers whose last report is
+ * older than {@code staleMillis} are taken out of it, and {@link #forget} takes a driver out
+ * on logout. A driver who reports again is put back.
+ */
+public final class LocationIngestor {
+    private static final Logger LOGGER = Logger.getLogger(LocationIngestor.class.getName());
+    private static final int DRAIN_BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SHUTDOWN_WAIT_MILLIS = 10_000;
+
+    // Latest report of one driver; dirty until written to the database
+    private static final class Latest {
+        double latitude;
+        double longitude;
+        long reportedAt;
+        boolean dirty;
+        // In the locator; false once removed while its position still waits to be written
+        boolean located;
+    }
+
+    // Positions handed to the writer; owned by the ingest thread while filled, then the writer
+    private static final class Batch {
+        int[] ids = new int[0];
+        double[] latitudes = new double[0];
+        double[] longitudes = new double[0];
+        long[] times = new long[0];
+        int size;
+
+        void ensureCapacity(int n) {
+            if (ids.length >= n) return;
+            ids = new int[n];
+            latitudes = new double[n];
+            longitudes = new double[n];
+            times = new long[n];
+        }
+    }
+
+    private final PositionRingBuffer buffer;
+    private final DriverLocationDAO locationDAO;
+    private final DriverLocator locator;
+    private final long flushMillis;
+    private final long staleMillis;
+    private final Thread worker;
+    private final ExecutorService writer;
+    // Batches not being filled or written
+    private final BlockingQueue<Batch> freeBatches = new ArrayBlockingQueue<>(2);
+    private volatile boolean running = true;
+
+    // Ingest thread only
+    private final IntObjectMap<Latest> latest = new IntObjectMap<>();
+    private int[] dirtyIds = new int[256];
+    private int dirtyCount;
+    private int[] staleIds = new int[0];
+    private int staleCount;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long applied;
+    private volatile long rowsWritten;
+    private volatile long failedFlushes;
+    private volatile long deferredFlushes;
+    private volatile long lastFlushMillis;
+    private volatile long expired;
+
+    LocationIngestor(DriverLocationDAO locationDAO, DriverLocator locator, int capacity, long flushMillis, long staleMillis) {
+        if (flushMillis <= 0) throw new IllegalArgumentException("Flush interval must be positive");
+        if (staleMillis <= 0) throw new IllegalArgumentException("Stale age must be positive");
+        this.buffer = new PositionRingBuffer(capacity);
+        this.locationDAO = locationDAO;
+        this.locator = locator;
+        this.flushMillis = flushMillis;
+        this.staleMillis = staleMillis;
+        worker = new Thread(this::run, "driver-location-ingest");
+        worker.setDaemon(true);
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "driver-location-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        freeBatches.add(new Batch());
+        freeBatches.add(new Batch());
+    }
+
+    /**
+     * Places drivers at their stored positions reported since sinceMillis, or within the stale
+     * age if that is later, then starts ingesting. Returns how many positions were restored,
+     * or -1 if they could not be read.
+     */
+    int start(long sinceMillis) {
+        int restored = -1;
+        try {
+            long since = Math.max(sinceMillis, System.currentTimeMillis() - staleMillis);
+            List<DriverPosition> positions = locationDAO.loadPositionsSince(since);
+            for (DriverPosition p : positions) {
+                Latest l = new Latest();
+                l.latitude = p.getLocation().getLatitude();
+                l.longitude = p.getLocation().getLongitude();
+                l.reportedAt = p.getReportedAt();
+                l.located = true;
+                latest.put(p.getDriverId(), l);
+                locator.update(p.getDriverId(), l.latitude, l.longitude);
+            }
+            restored = positions.size();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to restore driver locations", e);
+        }
+        worker.start();
+        return restored;
+    }
+
+    /**
+     * Queues a position report; safe from any thread and allocation free. Returns false if
+     * the report was dropped because ingestion is behind. Throws IllegalArgumentException for
+     * coordinates out of range.
+     */
+    public boolean report(int driverId, double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Coordinates out of range: " + latitude + ", " + longitude);
+        }
+        if (buffer.offer(driverId, latitude, longitude, System.currentTimeMillis())) {
+            accepted.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Takes the driver out of the locator, e.g. on logout. Queued behind the driver's earlier
+     * reports so none of them puts the driver back. Returns false if the buffer was full; the
+     * driver then goes when their last report turns stale.
+     */
+    public boolean forget(int driverId) {
+        // NaN coordinates mark a removal; report() never lets them in
+        return buffer.offer(driverId, Double.NaN, Double.NaN, System.currentTimeMillis());
+    }
+
+    // Freshest position applied so far, or null if the driver has not reported or has gone
+    public GeoPoint getPosition(int driverId) {
+        return locator.getPosition(driverId);
+    }
+
+    private void run() {
+        long nextFlush = System.currentTimeMillis() + flushMillis;
+        while (running) {
+            try {
+                int drained = buffer.drain(this::apply, DRAIN_BATCH);
+                long now = System.currentTimeMillis();
+                if (now >= nextFlush) {
+                    flush(0);
+                    removeStale(now - staleMillis);
+                    nextFlush = now + flushMillis;
+                }
+                if (drained == 0) LockSupport.parkNanos(IDLE_PARK_NANOS);
+            } catch (RuntimeException e) {
+                // Keep ingesting; a failing report is lost, the next one from the driver is not
+                LOGGER.log(Level.WARNING, "Driver location ingest failed", e);
+            }
+        }
+        // Write what is left on the way out
+        buffer.drain(this::apply, buffer.capacity());
+        flush(SHUTDOWN_WAIT_MILLIS);
+    }
+
+    private void apply(int driverId, double latitude, double longitude, long reportedAt) {
+        if (Double.isNaN(latitude)) {
+            remove(driverId);
+            return;
+        }
+        Latest l = latest.get(driverId);
+        if (l == null) {
+            l = new Latest();
+            latest.put(driverId, l);
+        } else if (reportedAt < l.reportedAt) {
+            // Two threads of the same driver raced; keep the newer report
+            return;
+        }
+        l.latitude = latitude;
+        l.longitude = longitude;
+        l.reportedAt = reportedAt;
+        l.located = true;
+        locator.update(driverId, latitude, longitude);
+        applied++;
+        if (!l.dirty) {
+            l.dirty = true;
+            if (dirtyCount == dirtyIds.length) {
+                int[] grown = new int[dirtyCount * 2];
+                System.arraycopy(dirtyIds, 0, grown, 0, dirtyCount);
+                dirtyIds = grown;
+            }
+            dirtyIds[dirtyCount++] = driverId;
+        }
+    }
+
+    // Takes drivers silent since before cutoff out of the locator
+    private void removeStale(long cutoff) {
+        staleCount = 0;
+        // Collected first: the map cannot change while it is being walked
+        latest.forEach((driverId, l) -> {
+            if (l.reportedAt < cutoff) {
+                if (staleCount == staleIds.length) staleIds = Arrays.copyOf(staleIds, Math.max(16, staleCount * 2));
+                staleIds[staleCount++] = driverId;
+            }
+        });
+        int removed = 0;
+        for (int i = 0; i < staleCount; i++) {
+            if (remove(staleIds[i])) removed++;
+        }
+        expired += removed;
+    }
+
+    // Out of the locator at once; the last position is kept only until it is in a batch.
+    // Returns whether the driver was in the locator
+    private boolean remove(int driverId) {
+        Latest l = latest.get(driverId);
+        if (l == null) return false;
+        boolean wasLocated = l.located;
+        if (wasLocated) {
+            locator.remove(driverId);
+            l.located = false;
+        }
+        if (!l.dirty) latest.remove(driverId);
+        return wasLocated;
+    }
+
+    // Hands the latest position of every driver that moved since the last batch to the writer.
+    // Waits up to waitMillis for a free batch; without one the drivers stay dirty for the next.
+    private void flush(long waitMillis) {
+        if (dirtyCount == 0) return;
+        Batch batch;
+        try {
+            batch = freeBatches.poll(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (batch == null) {
+            deferredFlushes++;
+            return;
+        }
+        batch.ensureCapacity(dirtyIds.length);
+        for (int i = 0; i < dirtyCount; i++) {
+            Latest l = latest.get(dirtyIds[i]);
+            batch.ids[i] = dirtyIds[i];
+            batch.latitudes[i] = l.latitude;
+            batch.longitudes[i] = l.longitude;
+            batch.times[i] = l.reportedAt;
+            l.dirty = false;
+        }
+        batch.size = dirtyCount;
+        dirtyCount = 0;
+        writer.execute(() -> write(batch));
+    }
+
+    // Writer thread: upserts the batch, retrying until it succeeds or ingestion stops, then
+    // returns it for reuse
+    private void write(Batch batch) {
+        try {
+            while (true) {
+                long started = System.nanoTime();
+                try {
+                    locationDAO.upsertPositions(batch.ids, batch.latitudes, batch.longitudes, batch.times, batch.size);
+                    lastFlushMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    rowsWritten += batch.size;
+                    return;
+                } catch (SQLException e) {
+                    failedFlushes++;
+                    if (!running) {
+                        LOGGER.log(Level.WARNING, "Failed to write driver locations on shutdown", e);
+                        return;
+                    }
+                    LOGGER.log(Level.WARNING, "Failed to write driver locations; retrying", e);
+                }
+                try {
+                    Thread.sleep(flushMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            freeBatches.add(batch);
+        }
+    }
+
+    // Stops ingesting after writing out what was already reported
+    public void stop() {
+        running = false;
+        try {
+            worker.join(SHUTDOWN_WAIT_MILLIS);
+            writer.shutdown();
+            writer.awaitTermination(SHUTDOWN_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getAcceptedCount() { return accepted.sum(); }
+
+    // Reports lost to a full buffer
+    public long getDroppedCount() { return dropped.sum(); }
+
+    // Reports applied to the locator
+    public long getAppliedCount() { return applied; }
+
+    // Rows written to driver_locations; far fewer than reports when drivers report often
+    public long getRowsWritten() { return rowsWritten; }
+
+    public long getFailedFlushCount() { return failedFlushes; }
+
+    // Flushes put off because both batches were still with the writer
+    public long getDeferredFlushCount() { return deferredFlushes; }
+
+    public long getLastFlushMillis() { return lastFlushMillis; }
+
+    // Drivers taken out of the locator for not reporting within the stale age
+    public long getExpiredCount() { return expired; }
+
+    // Reports waiting to be applied
+    public int getBacklog() { return buffer.size(); }
+}
@@ -0,0 +1,120 @@
+package ecosystem;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dao.MenuItemDAO;
+import model.MenuItem;
+import util.IntObjectMap;
+
+/**
+ * Per-restaurant menus kept in memory. Each {@link RestaurantMenu} is immutable and carries
+ * a prebuilt id index, so listing a menu and resolving the items of a basket cost no query
+ * once the menu is loaded. Menu edits through {@link EcoSystem} invalidate the restaurant's
+ * entry; entries also expire after {@code menu.cacheTtlSeconds} to pick up edits made on
+ * other nodes. The MenuItem objects are shared between readers and must not be modified.
+ */
+public final class MenuCache {
+    private static final Logger LOGGER = Logger.getLogger(MenuCache.class.getName());
+
+    public static final class RestaurantMenu {
+        private final int restaurantId;
+        private final List<MenuItem> items;
+        private final IntObjectMap<MenuItem> itemsById;
+        private final long version;
+        private final long loadedAt;
+
+        private RestaurantMenu(int restaurantId, List<MenuItem> items, long version, long loadedAt) {
+            this.restaurantId = restaurantId;
+            this.items = List.copyOf(items);
+            this.itemsById = new IntObjectMap<>(items.size());
+            for (MenuItem item : items) itemsById.put(item.getId(), item);
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+
+        public int getRestaurantId() { return restaurantId; }
+
+        public List<MenuItem> getItems() { return items; }
+
+        // Null when the item is not on this restaurant's menu
+        public MenuItem getItem(int menuItemId) { return itemsById.get(menuItemId); }
+
+        // Increases every time a menu is (re)loaded, across all restaurants
+        public long getVersion() { return version; }
+    }
+
+    private final MenuItemDAO menuItemDAO;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<Integer, RestaurantMenu> menus = new ConcurrentHashMap<>();
+    // Menu item id -> restaurant id for every cached menu, so a delete by item id finds its entry
+    private final ConcurrentHashMap<Integer, Integer> itemRestaurants = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    // Bumped by every invalidation; a load that raced with one is returned but not cached
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    MenuCache(MenuItemDAO menuItemDAO, long ttlMillis) {
+        this.menuItemDAO = menuItemDAO;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public RestaurantMenu get(int restaurantId) {
+        RestaurantMenu menu = menus.get(restaurantId);
+        if (menu != null && System.currentTimeMillis() - menu.loadedAt < ttlMillis) {
+            hits.increment();
+            return menu;
+        }
+        misses.increment();
+        long generation = invalidations.get();
+        List<MenuItem> items;
+        try {
+            items = menuItemDAO.loadMenuItemsByRestaurant(restaurantId);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to load menu for restaurant " + restaurantId, e);
+            // Better a stale menu than none; an empty result is not cached
+            return menu != null ? menu : new RestaurantMenu(restaurantId, List.of(), 0, 0);
+        }
+        RestaurantMenu loaded = new RestaurantMenu(restaurantId, items, versions.incrementAndGet(), System.currentTimeMillis());
+        if (invalidations.get() == generation) {
+            for (MenuItem item : items) itemRestaurants.put(item.getId(), restaurantId);
+            menus.put(restaurantId, loaded);
+            // An invalidation may have slipped in between the check and the put
+            if (invalidations.get() != generation) menus.remove(restaurantId, loaded);
+        }
+        return loaded;
+    }
+
+    void invalidate(int restaurantId) {
+        invalidations.incrementAndGet();
+        RestaurantMenu removed = menus.remove(restaurantId);
+        if (removed != null) {
+            for (MenuItem item : removed.items) itemRestaurants.remove(item.getId(), restaurantId);
+        }
+    }
+
+    // Invalidates the menu holding this item, if it is cached
+    void invalidateItem(int menuItemId) {
+        Integer restaurantId = itemRestaurants.get(menuItemId);
+        if (restaurantId != null) invalidate(restaurantId);
+    }
+
+    public long getHits() { return hits.sum(); }
+
+    public long getMisses() { return misses.sum(); }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    // Number of restaurants with a cached menu
+    public int size() { return menus.size(); }
+}
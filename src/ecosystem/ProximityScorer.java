@@ -0,0 +1,40 @@
+package ecosystem;
+
+import model.GeoPoint;
+import model.Order;
+import model.Organization;
+
+/**
+ * Prefers the driver closest to the restaurant: the cost is the driver's distance to the
+ * restaurant in km plus {@code loadPenaltyKm} per order the driver already carries. A driver
+ * or restaurant without a known position counts as {@code unknownDistanceKm} away, so with no
+ * positions at all this ranks like {@link DispatchScorer#LEAST_LOADED}.
+ */
+public final class ProximityScorer implements DispatchScorer {
+    private final DirectoryCache directory;
+    private final DriverLocator locator;
+    private final double loadPenaltyKm;
+    private final double unknownDistanceKm;
+
+    ProximityScorer(DirectoryCache directory, DriverLocator locator, double loadPenaltyKm, double unknownDistanceKm) {
+        this.directory = directory;
+        this.locator = locator;
+        this.loadPenaltyKm = loadPenaltyKm;
+        this.unknownDistanceKm = unknownDistanceKm;
+    }
+
+    @Override
+    public double cost(Order order, Candidate driver, long now) {
+        Organization restaurant = directory.get().getOrganization(order.getRestaurantId());
+        GeoPoint from = locator.getPosition(driver.getDriverId());
+        double distance = restaurant == null || restaurant.getLocation() == null || from == null
+                ? unknownDistanceKm
+                : from.distanceKm(restaurant.getLocation());
+        return distance + loadPenaltyKm * driver.getLoad();
+    }
+
+    @Override
+    public boolean ranksByDistance() {
+        return true;
+    }
+}
@@ -0,0 +1,312 @@
+package ecosystem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import dao.OrderDAO;
+import dao.TripDAO;
+import model.GeoPoint;
+import model.Order;
+import model.Organization;
+import model.Trip;
+import model.TripStop;
+import util.IntObjectMap;
+
+/**
+ * Bundles waiting ReadyForPickup orders into multi-stop trips before dispatch. Orders are
+ * taken oldest first; each one is inserted into the open trip where it adds the least route
+ * length (cheapest insertion: its pickup anywhere after the first stop, its drop-off anywhere
+ * after the pickup), provided that trip starts at a restaurant of the same enterprise within
+ * {@code nearbyKm}, its first order was placed at most {@code windowMillis} earlier, it has
+ * room for two more stops under {@code maxStops}, and the detour is at most
+ * {@code maxDetourKm}. Otherwise the order opens a trip of its own. Trips are found through a grid of {@code nearbyKm} cells
+ * keyed by their first restaurant, so each order is compared with a few trips nearby rather
+ * than all of them. Only trips of two or more orders are stored; single orders are left to
+ * ordinary dispatch.
+ *
+ * <p>A run stops planning and storing when its {@code budgetMillis} is spent and leaves the
+ * rest for the next run, so it stays bounded however many orders wait. Orders without a
+ * restaurant or delivery location cannot be routed and are never bundled. Runs happen on the
+ * dispatch thread.
+ */
+public final class RouteBundler {
+    private static final double KM_PER_DEGREE = 111.32;
+    // Trips compared per order, newest first, when many are open in the same area
+    private static final int MAX_CANDIDATE_TRIPS = 32;
+
+    private final OrderDAO orderDAO;
+    private final TripDAO tripDAO;
+    private final DirectoryCache directory;
+    private final int scanLimit;
+    private final int maxStops;
+    private final long windowMillis;
+    private final double nearbyKm;
+    private final double maxDetourKm;
+    private final long budgetNanos;
+    private final double cellDeg;
+    private final int columns;
+
+    private final LongAdder tripsCreated = new LongAdder();
+    private final LongAdder ordersBundled = new LongAdder();
+    private volatile long lastRunMillis;
+    private volatile boolean lastRunTimedOut;
+
+    // An open trip while planning; stops are parallel arrays in visiting order
+    static final class Draft {
+        final int restaurantId;
+        final Integer enterpriseId;
+        final long firstOrderAt;
+        final int cell;
+        final List<Order> orders = new ArrayList<>();
+        final double[] lat;
+        final double[] lng;
+        final int[] orderId;
+        final boolean[] pickup;
+        // edge[k]: km from stop k-1 to stop k (edge[0] unused)
+        final double[] edge;
+        int size;
+        // Position in its cell's list while open, -1 once closed
+        int slot = -1;
+
+        Draft(int restaurantId, Integer enterpriseId, long firstOrderAt, int cell, int maxStops) {
+            this.restaurantId = restaurantId;
+            this.enterpriseId = enterpriseId;
+            this.firstOrderAt = firstOrderAt;
+            this.cell = cell;
+            lat = new double[maxStops];
+            lng = new double[maxStops];
+            orderId = new int[maxStops];
+            pickup = new boolean[maxStops];
+            edge = new double[maxStops];
+        }
+
+        private void insertStop(int at, int id, boolean isPickup, GeoPoint point) {
+            System.arraycopy(lat, at, lat, at + 1, size - at);
+            System.arraycopy(lng, at, lng, at + 1, size - at);
+            System.arraycopy(orderId, at, orderId, at + 1, size - at);
+            System.arraycopy(pickup, at, pickup, at + 1, size - at);
+            lat[at] = point.getLatitude();
+            lng[at] = point.getLongitude();
+            orderId[at] = id;
+            pickup[at] = isPickup;
+            size++;
+        }
+
+        // Pickup before original stop a, drop-off before original stop b (a <= b)
+        void insert(Order order, GeoPoint from, GeoPoint to, int a, int b) {
+            insertStop(b, order.getId(), false, to);
+            insertStop(a, order.getId(), true, from);
+            orders.add(order);
+            for (int k = 1; k < size; k++) {
+                edge[k] = GeoPoint.distanceKm(lat[k - 1], lng[k - 1], lat[k], lng[k]);
+            }
+        }
+
+        Trip toTrip() {
+            Trip trip = new Trip();
+            trip.setRestaurantId(restaurantId);
+            for (int k = 0; k < size; k++) {
+                trip.getStops().add(new TripStop(k + 1, orderId[k], pickup[k] ? TripStop.PICKUP : TripStop.DROPOFF,
+                        new GeoPoint(lat[k], lng[k])));
+            }
+            return trip;
+        }
+    }
+
+    RouteBundler(OrderDAO orderDAO, TripDAO tripDAO, DirectoryCache directory, int scanLimit, int maxStops,
+            long windowMillis, double nearbyKm, double maxDetourKm, long budgetMillis) {
+        if (scanLimit <= 0 || budgetMillis <= 0) throw new IllegalArgumentException("Bundling scan limit and budget must be positive");
+        if (maxStops < 4) throw new IllegalArgumentException("A trip needs room for at least 4 stops");
+        // Cells of at least 1 km keep every cell number within an int
+        if (!(nearbyKm >= 1.0)) throw new IllegalArgumentException("Nearby distance must be at least 1 km");
+        if (windowMillis < 0 || maxDetourKm < 0) throw new IllegalArgumentException("Bundling window and detour cannot be negative");
+        this.orderDAO = orderDAO;
+        this.tripDAO = tripDAO;
+        this.directory = directory;
+        this.scanLimit = scanLimit;
+        this.maxStops = maxStops;
+        this.windowMillis = windowMillis;
+        this.nearbyKm = nearbyKm;
+        this.maxDetourKm = maxDetourKm;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.cellDeg = nearbyKm / KM_PER_DEGREE;
+        this.columns = (int) Math.ceil(360 / cellDeg) + 1;
+    }
+
+    /**
+     * Plans and stores trips for the oldest waiting orders within the time budget. Returns
+     * how many trips were stored.
+     */
+    public int run() {
+        long started = System.nanoTime();
+        long deadline = started + budgetNanos;
+        int stored = 0;
+        try {
+            List<Order> waiting = orderDAO.getUnassignedReadyOrders(scanLimit);
+            List<Draft> drafts = plan(waiting, directory.get(), deadline);
+            for (Draft draft : drafts) {
+                if (System.nanoTime() > deadline) break;
+                if (draft.orders.size() < 2) continue;
+                if (tripDAO.createTrip(draft.toTrip(), draft.orders)) {
+                    stored++;
+                    ordersBundled.add(draft.orders.size());
+                }
+            }
+            lastRunTimedOut = System.nanoTime() > deadline;
+        } finally {
+            tripsCreated.add(stored);
+            lastRunMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        }
+        return stored;
+    }
+
+    /**
+     * Groups the orders into trips, oldest order first, until the deadline (System.nanoTime)
+     * passes. Returns every trip opened, single-order ones included, oldest first.
+     */
+    List<Draft> plan(List<Order> orders, DirectoryCache.Snapshot dir, long deadline) {
+        List<Order> sorted = new ArrayList<>(orders);
+        sorted.sort(Comparator.comparingLong(RouteBundler::placedAt).thenComparingInt(Order::getId));
+        List<Draft> drafts = new ArrayList<>();
+        IntObjectMap<List<Draft>> open = new IntObjectMap<>();
+        int[] at = new int[2];
+        for (Order order : sorted) {
+            if (System.nanoTime() > deadline) break;
+            Organization restaurant = dir.getOrganization(order.getRestaurantId());
+            GeoPoint from = restaurant == null ? null : restaurant.getLocation();
+            GeoPoint to = order.getDeliveryLocation();
+            if (from == null || to == null) continue;
+            long placedAt = placedAt(order);
+
+            Draft best = null;
+            int bestA = 0;
+            int bestB = 0;
+            double bestDetour = Double.POSITIVE_INFINITY;
+            int row = row(from.getLatitude());
+            int col = column(from.getLongitude());
+            // Longitude cells narrow away from the equator; widen the search to cover nearbyKm
+            int colSpan = (int) Math.ceil(1 / Math.max(0.01, Math.cos(Math.toRadians(from.getLatitude()))));
+            int compared = 0;
+            for (int r = row - 1; r <= row + 1; r++) {
+                for (int c = col - colSpan; c <= col + colSpan; c++) {
+                    List<Draft> cell = open.get(r * columns + Math.floorMod(c, columns));
+                    if (cell == null) continue;
+                    for (int i = cell.size() - 1; i >= 0 && compared < MAX_CANDIDATE_TRIPS; i--) {
+                        Draft draft = cell.get(i);
+                        // Later orders are later still: a trip past its window never fits again
+                        if (placedAt - draft.firstOrderAt > windowMillis) {
+                            close(open, draft);
+                            continue;
+                        }
+                        if (!Objects.equals(draft.enterpriseId, restaurant.getEnterpriseId())) continue;
+                        if (GeoPoint.distanceKm(draft.lat[0], draft.lng[0], from.getLatitude(), from.getLongitude()) > nearbyKm) continue;
+                        compared++;
+                        double detour = cheapestInsertion(draft, from, to, at);
+                        if (detour < bestDetour) {
+                            best = draft;
+                            bestDetour = detour;
+                            bestA = at[0];
+                            bestB = at[1];
+                        }
+                    }
+                }
+            }
+
+            if (best != null && bestDetour <= maxDetourKm) {
+                best.insert(order, from, to, bestA, bestB);
+                if (best.size + 2 > maxStops) close(open, best);
+            } else {
+                int cellId = row * columns + col;
+                Draft draft = new Draft(restaurant.getId(), restaurant.getEnterpriseId(), placedAt, cellId, maxStops);
+                draft.insert(order, from, to, 0, 0);
+                drafts.add(draft);
+                List<Draft> cell = open.get(cellId);
+                if (cell == null) {
+                    cell = new ArrayList<>();
+                    open.put(cellId, cell);
+                }
+                draft.slot = cell.size();
+                cell.add(draft);
+            }
+        }
+        return drafts;
+    }
+
+    /**
+     * Tries the pickup before every stop a >= 1 and the drop-off before every stop b >= a of
+     * the route, so the trip keeps starting at the restaurant that opened it. Returns the km
+     * the cheapest choice adds and stores its (a, b) in at. O(n^2) in the route's stops with
+     * 2n distance computations.
+     */
+    private static double cheapestInsertion(Draft draft, GeoPoint from, GeoPoint to, int[] at) {
+        int n = draft.size;
+        double[] toFrom = new double[n];
+        double[] toTo = new double[n];
+        for (int k = 0; k < n; k++) {
+            toFrom[k] = GeoPoint.distanceKm(draft.lat[k], draft.lng[k], from.getLatitude(), from.getLongitude());
+            toTo[k] = GeoPoint.distanceKm(draft.lat[k], draft.lng[k], to.getLatitude(), to.getLongitude());
+        }
+        double direct = from.distanceKm(to);
+        double best = Double.POSITIVE_INFINITY;
+        for (int a = 1; a <= n; a++) {
+            // Between stop a-1 and stop a, or after the last stop
+            double gap = a < n ? draft.edge[a] : 0;
+            double pickupAlone = toFrom[a - 1] + (a < n ? toFrom[a] : 0) - gap;
+            for (int b = a; b <= n; b++) {
+                double added;
+                if (b == a) {
+                    // Pickup then drop-off back to back in the same gap
+                    added = toFrom[a - 1] + direct + (a < n ? toTo[a] : 0) - gap;
+                } else {
+                    added = pickupAlone + toTo[b - 1] + (b < n ? toTo[b] - draft.edge[b] : 0);
+                }
+                if (added < best) {
+                    best = added;
+                    at[0] = a;
+                    at[1] = b;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Swap-remove from the cell's list of open trips
+    private static void close(IntObjectMap<List<Draft>> open, Draft draft) {
+        if (draft.slot < 0) return;
+        List<Draft> cell = open.get(draft.cell);
+        Draft last = cell.remove(cell.size() - 1);
+        if (last != draft) {
+            cell.set(draft.slot, last);
+            last.slot = draft.slot;
+        }
+        draft.slot = -1;
+        if (cell.isEmpty()) open.remove(draft.cell);
+    }
+
+    private int row(double lat) {
+        return (int) ((lat + 90) / cellDeg);
+    }
+
+    private int column(double lng) {
+        return Math.min(columns - 1, (int) ((lng + 180) / cellDeg));
+    }
+
+    private static long placedAt(Order order) {
+        Date date = order.getOrderDate();
+        return date != null ? date.getTime() : Long.MAX_VALUE;
+    }
+
+    public long getTripsCreated() { return tripsCreated.sum(); }
+
+    public long getOrdersBundled() { return ordersBundled.sum(); }
+
+    public long getLastRunMillis() { return lastRunMillis; }
+
+    // Whether the last run ran out of budget and left orders for the next one
+    public boolean isLastRunTimedOut() { return lastRunTimedOut; }
+}
@@ -0,0 +1,56 @@
+package ecosystem;
+
+import model.Organization;
+import model.User;
+
+/**
+ * One signed-in user. Created by {@link EcoSystem#login} with the user's organization and
+ * enterprise resolved once, and passed explicitly to every guarded {@link EcoSystem}
+ * operation, so concurrent sessions in one JVM never see each other's identity.
+ * Immutable apart from the last-access time.
+ */
+public final class Session {
+    private final String token;
+    private final User user;
+    private final Organization organization;
+    private final Integer enterpriseId;
+    private final long createdAt;
+    private volatile long lastAccessedAt;
+
+    Session(String token, User user, Organization organization) {
+        this.token = token;
+        // Keep a copy without the password hash; the session outlives the login request
+        this.user = new User(user.getId(), user.getUsername(), null, user.getRole(), user.getName(),
+                user.getPhone(), user.getEmail(), user.getOrganizationId());
+        this.organization = organization;
+        this.enterpriseId = organization == null ? null : organization.getEnterpriseId();
+        this.createdAt = System.currentTimeMillis();
+        this.lastAccessedAt = createdAt;
+    }
+
+    public String getToken() { return token; }
+
+    public User getUser() { return user; }
+
+    public int getUserId() { return user.getId(); }
+
+    public String getRole() { return user.getRole(); }
+
+    // Null for users without an organization, e.g. customers
+    public Organization getOrganization() { return organization; }
+
+    public int getOrganizationId() { return user.getOrganizationId(); }
+
+    // Null when the user has no organization
+    public Integer getEnterpriseId() { return enterpriseId; }
+
+    public boolean isSystemAdmin() { return "SystemAdmin".equals(user.getRole()); }
+
+    public boolean isEnterpriseAdmin() { return "EnterpriseAdmin".equals(user.getRole()); }
+
+    public long getCreatedAt() { return createdAt; }
+
+    public long getLastAccessedAt() { return lastAccessedAt; }
+
+    void touch() { lastAccessedAt = System.currentTimeMillis(); }
+}
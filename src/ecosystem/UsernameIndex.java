@@ -0,0 +1,95 @@
+package ecosystem;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import dao.UserDAO;
+import util.AppConfig;
+import util.BloomFilter;
+
+/**
+ * Answers "is this username taken?" mostly from memory. A Bloom filter of normalized
+ * usernames rules out free names without a query; only possible hits go to
+ * {@link UserDAO#existsByUsername}. Bloom filters cannot forget, so deletes are counted
+ * and the filter is rebuilt from the table once enough of it is stale. Names created by
+ * other nodes are missing until the next rebuild; the unique index on username_normalized
+ * still rejects those at insert time.
+ */
+public final class UsernameIndex {
+    private static final Logger LOGGER = Logger.getLogger(UsernameIndex.class.getName());
+    private static final int MIN_CAPACITY = 1_024;
+
+    private final UserDAO userDAO;
+    private final double falsePositiveRate;
+
+    // Swapped whole on rebuild; null until the first successful rebuild, meaning "ask the database"
+    private volatile BloomFilter filter;
+    private final AtomicInteger insertedSinceBuild = new AtomicInteger();
+    private final AtomicInteger deletedSinceBuild = new AtomicInteger();
+    private volatile int builtFrom;
+
+    private final LongAdder filterNegatives = new LongAdder();
+    private final LongAdder databaseChecks = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    UsernameIndex(UserDAO userDAO) {
+        this.userDAO = userDAO;
+        this.falsePositiveRate = Double.parseDouble(AppConfig.get("users.bloom.falsePositiveRate", "0.01"));
+    }
+
+    synchronized void rebuild() {
+        long start = System.nanoTime();
+        int count = userDAO.countUsers();
+        // Leave room to grow so the false positive rate holds until the next rebuild
+        BloomFilter next = new BloomFilter(Math.max(MIN_CAPACITY, count * 2), falsePositiveRate);
+        if (!userDAO.forEachNormalizedUsername(name -> { if (name != null) next.put(name); })) {
+            filter = null;
+            return;
+        }
+        filter = next;
+        builtFrom = count;
+        insertedSinceBuild.set(0);
+        deletedSinceBuild.set(0);
+        rebuilds.increment();
+        LOGGER.info("Username filter built from " + count + " users in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    boolean isTaken(String username) {
+        String normalized = UserDAO.normalizeUsername(username);
+        if (normalized == null) return false;
+        BloomFilter f = filter;
+        if (f != null && !f.mightContain(normalized)) {
+            filterNegatives.increment();
+            return false;
+        }
+        databaseChecks.increment();
+        boolean exists = userDAO.existsByUsername(normalized);
+        if (!exists && f != null) falsePositives.increment();
+        return exists;
+    }
+
+    // Called after a user is created or renamed
+    void onStored(String username) {
+        String normalized = UserDAO.normalizeUsername(username);
+        BloomFilter f = filter;
+        if (normalized == null || f == null) return;
+        f.put(normalized);
+        if (insertedSinceBuild.incrementAndGet() + builtFrom > f.getExpectedInsertions()) {
+            rebuild();
+        }
+    }
+
+    void onDeleted() {
+        // A quarter of the filter pointing at deleted names wastes enough probes to rebuild
+        if (deletedSinceBuild.incrementAndGet() > Math.max(MIN_CAPACITY / 4, builtFrom / 4)) {
+            rebuild();
+        }
+    }
+
+    public long getFilterNegatives() { return filterNegatives.sum(); }
+    public long getDatabaseChecks() { return databaseChecks.sum(); }
+    public long getFalsePositives() { return falsePositives.sum(); }
+    public long getRebuilds() { return rebuilds.sum(); }
+}
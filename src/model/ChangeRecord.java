@@ -0,0 +1,58 @@
+package model;
+
+/**
+ * One committed change from the change_log: which row of which entity changed, how, and the
+ * row's version afterwards (0 for entities without a version column). For menus the id is the
+ * restaurant's, as a menu is cached and refreshed as a whole.
+ */
+public class ChangeRecord {
+    public static final String ORDER = "order";
+    public static final String WORK_REQUEST = "work_request";
+    public static final String MENU = "menu";
+
+    public static final String INSERT = "INSERT";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    private final long cursor;
+    private final String entity;
+    private final int entityId;
+    private final int version;
+    private final String op;
+    private final long changedAt;
+
+    public ChangeRecord(long cursor, String entity, int entityId, int version, String op, long changedAt) {
+        this.cursor = cursor;
+        this.entity = entity;
+        this.entityId = entityId;
+        this.version = version;
+        this.op = op;
+        this.changedAt = changedAt;
+    }
+
+    // Position in the log; pass the last one seen to getChangesSince to continue after it
+    public long getCursor() {
+        return cursor;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    // Epoch millis
+    public long getChangedAt() {
+        return changedAt;
+    }
+}
@@ -0,0 +1,28 @@
+package model;
+
+/**
+ * Last reported position of a driver and when it was reported (epoch millis).
+ */
+public class DriverPosition {
+    private final int driverId;
+    private final GeoPoint location;
+    private final long reportedAt;
+
+    public DriverPosition(int driverId, GeoPoint location, long reportedAt) {
+        this.driverId = driverId;
+        this.location = location;
+        this.reportedAt = reportedAt;
+    }
+
+    public int getDriverId() {
+        return driverId;
+    }
+
+    public GeoPoint getLocation() {
+        return location;
+    }
+
+    public long getReportedAt() {
+        return reportedAt;
+    }
+}
@@ -1,6 +1,7 @@
 package model;
 
 import java.util.Date;
+import java.util.List;
 
 public class Order {
     private int id;
@@ -11,6 +12,12 @@ public class Order {
     private Date orderDate;
     private String deliveryAddress;
     private String comment;
+    // Resolved from the delivery address through the gazetteer; null if it was not found
+    private GeoPoint deliveryLocation;
+    // Row version, bumped by every status change
+    private int version;
+    // Null unless the order was loaded together with its items
+    private List<OrderItem> items;
 
     public Order() {
     }
@@ -90,4 +97,28 @@ public class Order {
     public void setComment(String comment) {
         this.comment = comment;
     }
+
+    public GeoPoint getDeliveryLocation() {
+        return deliveryLocation;
+    }
+
+    public void setDeliveryLocation(GeoPoint deliveryLocation) {
+        this.deliveryLocation = deliveryLocation;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public List<OrderItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OrderItem> items) {
+        this.items = items;
+    }
 }
@@ -0,0 +1,51 @@
+package model;
+
+import java.util.function.Predicate;
+
+/**
+ * Published after an order change is committed. Carries the order as read back after the
+ * change; subscribers share the instance and must not modify it.
+ */
+public final class OrderEvent {
+    // Changes picked up from the change log (claims, trips, dispatch) arrive as STATUS_CHANGED
+    public enum Kind { PLACED, STATUS_CHANGED }
+
+    private final Kind kind;
+    private final Order order;
+    private final Integer enterpriseId;
+
+    public OrderEvent(Kind kind, Order order, Integer enterpriseId) {
+        this.kind = kind;
+        this.order = order;
+        this.enterpriseId = enterpriseId;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    // Enterprise of the restaurant, or null if the restaurant is unknown
+    public Integer getEnterpriseId() {
+        return enterpriseId;
+    }
+
+    public static Predicate<OrderEvent> forCustomer(int customerId) {
+        return e -> e.order.getCustomerId() == customerId;
+    }
+
+    public static Predicate<OrderEvent> forRestaurant(int restaurantId) {
+        return e -> e.order.getRestaurantId() == restaurantId;
+    }
+
+    public static Predicate<OrderEvent> forDriver(int deliveryManId) {
+        return e -> e.order.getDeliveryManId() == deliveryManId;
+    }
+
+    public static Predicate<OrderEvent> forEnterprise(int enterpriseId) {
+        return e -> e.enterpriseId != null && e.enterpriseId == enterpriseId;
+    }
+}
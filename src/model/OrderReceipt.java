@@ -0,0 +1,19 @@
+package model;
+
+import java.math.BigDecimal;
+
+public class OrderReceipt {
+    private final int orderId;
+    private final BigDecimal total;
+    private final int itemCount;
+
+    public OrderReceipt(int orderId, BigDecimal total, int itemCount) {
+        this.orderId = orderId;
+        this.total = total;
+        this.itemCount = itemCount;
+    }
+
+    public int getOrderId() { return orderId; }
+    public BigDecimal getTotal() { return total; }
+    public int getItemCount() { return itemCount; }
+}
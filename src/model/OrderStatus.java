@@ -0,0 +1,59 @@
+package model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle of an order and the moves allowed between states. The label is the value stored
+ * in {@code orders.status}. A restaurant may hand an accepted order straight to a driver
+ * without marking it as cooking first.
+ */
+public enum OrderStatus {
+    PLACED("Placed"),
+    ACCEPTED("Accepted"),
+    COOKING("Cooking"),
+    READY_FOR_PICKUP("ReadyForPickup"),
+    OUT_FOR_DELIVERY("OutForDelivery"),
+    DELIVERED("Delivered");
+
+    static {
+        PLACED.next = EnumSet.of(ACCEPTED);
+        ACCEPTED.next = EnumSet.of(COOKING, READY_FOR_PICKUP);
+        COOKING.next = EnumSet.of(READY_FOR_PICKUP);
+        READY_FOR_PICKUP.next = EnumSet.of(OUT_FOR_DELIVERY);
+        OUT_FOR_DELIVERY.next = EnumSet.of(DELIVERED);
+        DELIVERED.next = EnumSet.noneOf(OrderStatus.class);
+    }
+
+    private final String label;
+    private Set<OrderStatus> next;
+
+    OrderStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return next.contains(target);
+    }
+
+    public boolean isTerminal() {
+        return next.isEmpty();
+    }
+
+    // Null for labels outside the lifecycle, e.g. legacy values in old rows
+    public static OrderStatus fromLabel(String label) {
+        for (OrderStatus status : values()) {
+            if (status.label.equals(label)) return status;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,23 @@
+package model;
+
+import java.util.Date;
+
+// Narrow projection of an order for pickers and lists that don't need the full row
+public class OrderSummary {
+    private final int id;
+    private final int restaurantId;
+    private final String status;
+    private final Date orderDate;
+
+    public OrderSummary(int id, int restaurantId, String status, Date orderDate) {
+        this.id = id;
+        this.restaurantId = restaurantId;
+        this.status = status;
+        this.orderDate = orderDate;
+    }
+
+    public int getId() { return id; }
+    public int getRestaurantId() { return restaurantId; }
+    public String getStatus() { return status; }
+    public Date getOrderDate() { return orderDate; }
+}
@@ -5,6 +5,8 @@ public class Organization {
     private String name;
     private String type;
     private int enterpriseId;
+    // Null until the organization has been placed on the map
+    private GeoPoint location;
 
     public Organization() {
     }
@@ -47,4 +49,12 @@ public class Organization {
     public void setEnterpriseId(int enterpriseId) {
         this.enterpriseId = enterpriseId;
     }
+
+    public GeoPoint getLocation() {
+        return location;
+    }
+
+    public void setLocation(GeoPoint location) {
+        this.location = location;
+    }
 }
@@ -0,0 +1,20 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+// One slice of a longer result. Pass nextPageToken back to fetch the following slice;
+// it is null once the last page has been returned.
+public class Page<T> {
+    private final List<T> items;
+    private final String nextPageToken;
+
+    public Page(List<T> items, String nextPageToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextPageToken() { return nextPageToken; }
+    public boolean hasMore() { return nextPageToken != null; }
+}
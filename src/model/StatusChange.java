@@ -0,0 +1,42 @@
+package model;
+
+/**
+ * One entry of an order's status history, with the order details needed to attribute it:
+ * the restaurant and the delivery location (null if the address was not resolved).
+ */
+public class StatusChange {
+    private final int orderId;
+    private final int restaurantId;
+    private final GeoPoint deliveryLocation;
+    private final String status;
+    private final long changedAt;
+
+    public StatusChange(int orderId, int restaurantId, GeoPoint deliveryLocation, String status, long changedAt) {
+        this.orderId = orderId;
+        this.restaurantId = restaurantId;
+        this.deliveryLocation = deliveryLocation;
+        this.status = status;
+        this.changedAt = changedAt;
+    }
+
+    public int getOrderId() {
+        return orderId;
+    }
+
+    public int getRestaurantId() {
+        return restaurantId;
+    }
+
+    public GeoPoint getDeliveryLocation() {
+        return deliveryLocation;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    // Epoch millis
+    public long getChangedAt() {
+        return changedAt;
+    }
+}
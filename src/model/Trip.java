@@ -0,0 +1,92 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Several ready orders bundled into one driver run: a sequence of pickup and drop-off stops.
+ * A trip is Planned until dispatch gives it to a driver (Assigned) and Completed once every
+ * order on it is delivered; a planned trip nobody takes in time is Dissolved and its orders
+ * go back to being dispatched one by one.
+ */
+public class Trip {
+    public static final String PLANNED = "Planned";
+    public static final String ASSIGNED = "Assigned";
+    public static final String COMPLETED = "Completed";
+    public static final String DISSOLVED = "Dissolved";
+
+    private int id;
+    // Restaurant of the first pickup
+    private int restaurantId;
+    private int driverId;
+    private String status;
+    private Date createdAt;
+    private int version;
+    private List<TripStop> stops = new ArrayList<>();
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getRestaurantId() {
+        return restaurantId;
+    }
+
+    public void setRestaurantId(int restaurantId) {
+        this.restaurantId = restaurantId;
+    }
+
+    public int getDriverId() {
+        return driverId;
+    }
+
+    public void setDriverId(int driverId) {
+        this.driverId = driverId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public List<TripStop> getStops() {
+        return stops;
+    }
+
+    public void setStops(List<TripStop> stops) {
+        this.stops = stops;
+    }
+
+    // Ids of the orders on this trip, in pickup order
+    public List<Integer> getOrderIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (TripStop stop : stops) {
+            if (TripStop.PICKUP.equals(stop.getType())) ids.add(stop.getOrderId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,57 @@
+package model;
+
+/**
+ * One stop of a {@link Trip}: collecting an order at its restaurant or handing it over at the
+ * delivery address. Stops are visited in sequence order.
+ */
+public class TripStop {
+    public static final String PICKUP = "Pickup";
+    public static final String DROPOFF = "Dropoff";
+
+    private int sequence;
+    private int orderId;
+    private String type;
+    private GeoPoint location;
+
+    public TripStop() {
+    }
+
+    public TripStop(int sequence, int orderId, String type, GeoPoint location) {
+        this.sequence = sequence;
+        this.orderId = orderId;
+        this.type = type;
+        this.location = location;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public int getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(int orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public GeoPoint getLocation() {
+        return location;
+    }
+
+    public void setLocation(GeoPoint location) {
+        this.location = location;
+    }
+}
@@ -0,0 +1,40 @@
+package model;
+
+import java.util.function.Predicate;
+
+/**
+ * Published after a work request change is committed. Carries the request as read back after
+ * the change; subscribers share the instance and must not modify it.
+ */
+public final class WorkRequestEvent {
+    public enum Kind { CREATED, STATUS_CHANGED }
+
+    private final Kind kind;
+    private final WorkRequest request;
+
+    public WorkRequestEvent(Kind kind, WorkRequest request) {
+        this.kind = kind;
+        this.request = request;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public WorkRequest getRequest() {
+        return request;
+    }
+
+    public static Predicate<WorkRequestEvent> forReceiver(int enterpriseId) {
+        return e -> e.request.getReceiverEnterpriseId() == enterpriseId;
+    }
+
+    public static Predicate<WorkRequestEvent> forSender(int enterpriseId) {
+        return e -> e.request.getSenderEnterpriseId() == enterpriseId;
+    }
+
+    // Sent or received by the enterprise
+    public static Predicate<WorkRequestEvent> forEnterprise(int enterpriseId) {
+        return e -> e.request.getSenderEnterpriseId() == enterpriseId || e.request.getReceiverEnterpriseId() == enterpriseId;
+    }
+}
@@ -2,6 +2,9 @@ package ui;
 
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 import javax.swing.JButton;
@@ -14,15 +17,26 @@ import javax.swing.JTable;
 import javax.swing.table.DefaultTableModel;
 
 import ecosystem.EcoSystem;
+import ecosystem.EventBus;
 import model.Order;
+import model.OrderEvent;
+import util.IntObjectMap;
 // We will reference util.BackgroundTask explicitly below to avoid static import resolution issues in some tools
 
 public class CustomerWorkArea extends JPanel {
+    private static final int PAGE_SIZE = 50;
+    private static final DateTimeFormatter ETA_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
     private final MainJFrame mainFrame;
     private final EcoSystem system;
     private JTable tblOrders;
     private JProgressBar progressBar;
     private JButton btnNewOrder;
+    private JButton btnLoadMore;
+    private DefaultTableModel ordersModel;
+    private String nextPageToken;
+    // Orders shown in the table, by id, as last read or pushed
+    private IntObjectMap<Order> loadedOrders = new IntObjectMap<>();
+    private EventBus.Subscription<OrderEvent> orderUpdates;
 
     public CustomerWorkArea(MainJFrame mainFrame, EcoSystem system) {
         this.mainFrame = mainFrame;
@@ -31,6 +45,25 @@ public class CustomerWorkArea extends JPanel {
         populateOrders();
     }
 
+    // Rows follow order changes while the panel is shown
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (orderUpdates == null) {
+            orderUpdates = LiveUpdates.orders(system, OrderEvent.forCustomer(mainFrame.getSession().getUser().getId()),
+                    this::applyOrderEvent);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (orderUpdates != null) {
+            orderUpdates.close();
+            orderUpdates = null;
+        }
+        super.removeNotify();
+    }
+
     private void initComponents() {
         setLayout(new BorderLayout());
 
@@ -38,7 +71,7 @@ public class CustomerWorkArea extends JPanel {
         JPanel headerPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JButton btnLogout = new JButton("Logout");
         btnLogout.addActionListener(e -> mainFrame.logout());
-        headerPanel.add(new JLabel("Welcome " + system.getCurrentUser().getName()));
+        headerPanel.add(new JLabel("Welcome " + mainFrame.getSession().getUser().getName()));
         headerPanel.add(btnLogout);
         add(headerPanel, BorderLayout.NORTH);
 
@@ -60,31 +93,55 @@ public class CustomerWorkArea extends JPanel {
         btnNewOrder.addActionListener(e -> 
             mainFrame.navigateTo(new PlaceOrderPanel(mainFrame, system), "PlaceOrder")
         );
-        contentPanel.add(btnNewOrder, BorderLayout.SOUTH);
+        btnLoadMore = new JButton("Load More");
+        btnLoadMore.setEnabled(false);
+        btnLoadMore.addActionListener(e -> loadPage(nextPageToken));
+
+        JPanel actionPanel = new JPanel();
+        actionPanel.add(btnNewOrder);
+        actionPanel.add(btnLoadMore);
+        contentPanel.add(actionPanel, BorderLayout.SOUTH);
 
         add(contentPanel, BorderLayout.CENTER);
     }
 
     private void populateOrders() {
+        ordersModel = new DefaultTableModel();
+        ordersModel.addColumn("Order ID");
+        ordersModel.addColumn("Restaurant");
+        ordersModel.addColumn("Status");
+        ordersModel.addColumn("Date");
+        ordersModel.addColumn("ETA");
+        tblOrders.setModel(ordersModel);
+        loadedOrders = new IntObjectMap<>();
+        loadPage(null);
+    }
+
+    // Appends the next page of orders (newest first) to the table
+    private void loadPage(String pageToken) {
         // Show loading state
         progressBar.setVisible(true);
         btnNewOrder.setEnabled(false);
+        btnLoadMore.setEnabled(false);
 
         util.BackgroundTask.execute(
             // Background task
-            () -> system.getOrdersForCustomer(system.getCurrentUser().getId()),
+            () -> system.getOrdersForCustomer(mainFrame.getSession().getUser().getId(), pageToken, PAGE_SIZE),
 
             // Success
-            (orders) -> {
-                updateOrdersTable(orders);
+            (page) -> {
+                appendOrders(page.getItems());
+                nextPageToken = page.getNextPageToken();
                 progressBar.setVisible(false);
                 btnNewOrder.setEnabled(true);
+                btnLoadMore.setEnabled(page.hasMore());
             },
 
             // Error
             (error) -> {
                 progressBar.setVisible(false);
                 btnNewOrder.setEnabled(true);
+                btnLoadMore.setEnabled(nextPageToken != null);
                 JOptionPane.showMessageDialog(
                     this,
                     "Failed to load orders: " + error.getMessage(),
@@ -95,22 +152,38 @@ public class CustomerWorkArea extends JPanel {
         );
     }
 
-    private void updateOrdersTable(List<Order> orders) {
-        DefaultTableModel model = new DefaultTableModel();
-        model.addColumn("Order ID");
-        model.addColumn("Restaurant");
-        model.addColumn("Status");
-        model.addColumn("Date");
-
+    private void appendOrders(List<Order> orders) {
         for (Order o : orders) {
-            model.addRow(new Object[]{
-                o.getId(),
-                o.getRestaurantId(),
-                o.getStatus(),
-                o.getOrderDate()
-            });
+            // Already shown if it was pushed while the page loaded
+            if (loadedOrders.containsKey(o.getId())) continue;
+            loadedOrders.put(o.getId(), o);
+            ordersModel.addRow(rowOf(o));
         }
+    }
+
+    private Object[] rowOf(Order o) {
+        return new Object[]{
+            o.getId(),
+            o.getRestaurantId(),
+            o.getStatus(),
+            o.getOrderDate(),
+            formatEta(system.estimateDelivery(o))
+        };
+    }
+
+    // Patches the row of a changed order in place and puts new orders at the top
+    private void applyOrderEvent(OrderEvent event) {
+        Order order = event.getOrder();
+        Order shown = loadedOrders.get(order.getId());
+        if (shown != null && shown.getVersion() >= order.getVersion()) return;
+        if (shown == null && event.getKind() != OrderEvent.Kind.PLACED) return;
+        loadedOrders.put(order.getId(), order);
+        LiveUpdates.patchRow(ordersModel, rowOf(order), true);
+    }
 
-        tblOrders.setModel(model);
+    // Estimated delivery time of day; blank once delivered
+    private static String formatEta(long epochMillis) {
+        if (epochMillis < 0) return "";
+        return ETA_FORMAT.format(Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()));
     }
 }
@@ -1,7 +1,13 @@
 package ui;
 
 import ecosystem.EcoSystem;
+import ecosystem.EventBus;
+import model.GeoPoint;
 import model.Order;
+import model.OrderEvent;
+import model.Trip;
+import model.TripStop;
+import util.IntObjectMap;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -12,6 +18,11 @@ public class DeliveryManWorkArea extends JPanel {
     private final MainJFrame mainFrame;
     private final EcoSystem system;
     private JTable tblOrders;
+    private JTable tblTrips;
+    // Orders shown in the table, by id, as last read
+    private IntObjectMap<Order> loadedOrders = new IntObjectMap<>();
+    private DefaultTableModel ordersModel;
+    private EventBus.Subscription<OrderEvent> orderUpdates;
 
     public DeliveryManWorkArea(MainJFrame mainFrame, EcoSystem system) {
         this.mainFrame = mainFrame;
@@ -20,6 +31,25 @@ public class DeliveryManWorkArea extends JPanel {
         populateOrders();
     }
 
+    // Rows follow changes to orders assigned to this delivery man while the panel is shown
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (orderUpdates == null) {
+            orderUpdates = LiveUpdates.orders(system, OrderEvent.forDriver(mainFrame.getSession().getUser().getId()),
+                    this::applyOrderEvent);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (orderUpdates != null) {
+            orderUpdates.close();
+            orderUpdates = null;
+        }
+        super.removeNotify();
+    }
+
     private void initComponents() {
         setLayout(new BorderLayout());
 
@@ -32,16 +62,31 @@ public class DeliveryManWorkArea extends JPanel {
 
         JPanel contentPanel = new JPanel(new BorderLayout());
         tblOrders = new JTable();
-        contentPanel.add(new JScrollPane(tblOrders), BorderLayout.CENTER);
+        // Multi-stop trips below the orders, one row per stop in visiting order
+        tblTrips = new JTable();
+        JScrollPane tripsPane = new JScrollPane(tblTrips);
+        tripsPane.setBorder(BorderFactory.createTitledBorder("My Trips"));
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(tblOrders), tripsPane);
+        split.setResizeWeight(0.6);
+        contentPanel.add(split, BorderLayout.CENTER);
 
         JPanel actionPanel = new JPanel();
+        JButton btnClaim = new JButton("Claim Next Order");
+        btnClaim.addActionListener(e -> claimNextOrder());
+        JButton btnRelease = new JButton("Release Claim");
+        btnRelease.addActionListener(e -> releaseClaim());
         JButton btnPickUp = new JButton("Pick Up");
         btnPickUp.addActionListener(e -> updateStatus("OutForDelivery"));
         JButton btnDeliver = new JButton("Delivered");
         btnDeliver.addActionListener(e -> updateStatus("Delivered"));
+        JButton btnLocation = new JButton("Report Location");
+        btnLocation.addActionListener(e -> reportLocation());
 
+        actionPanel.add(btnClaim);
+        actionPanel.add(btnRelease);
         actionPanel.add(btnPickUp);
         actionPanel.add(btnDeliver);
+        actionPanel.add(btnLocation);
         contentPanel.add(actionPanel, BorderLayout.SOUTH);
 
         add(contentPanel, BorderLayout.CENTER);
@@ -53,22 +98,119 @@ public class DeliveryManWorkArea extends JPanel {
         model.addColumn("Restaurant");
         model.addColumn("Address");
         model.addColumn("Status");
+        ordersModel = model;
 
-        // Show orders assigned to this delivery man OR available orders?
-        // For simplicity, let's show orders assigned to this delivery man.
-        List<Order> orders = system.getOrdersForDeliveryMan(system.getCurrentUser().getId());
+        // Orders claimed from the queue first, then the ones assigned to this delivery man
+        List<Order> claimed = system.getClaimedOrders(mainFrame.getSession());
+        List<Order> orders = system.getOrdersForDeliveryMan(mainFrame.getSession().getUser().getId());
+        loadedOrders = new IntObjectMap<>(claimed.size() + orders.size());
+        for (Order o : claimed) {
+            loadedOrders.put(o.getId(), o);
+            model.addRow(new Object[] { o.getId(), o.getRestaurantId(), o.getDeliveryAddress(), o.getStatus() + " (claimed)" });
+        }
         for (Order o : orders) {
+            loadedOrders.put(o.getId(), o);
             model.addRow(new Object[] { o.getId(), o.getRestaurantId(), o.getDeliveryAddress(), o.getStatus() });
         }
         tblOrders.setModel(model);
+        populateTrips();
+    }
+
+    // Patches the row of a changed order in place; orders newly assigned go on top
+    private void applyOrderEvent(OrderEvent event) {
+        Order order = event.getOrder();
+        Order shown = loadedOrders.get(order.getId());
+        if (shown != null && shown.getVersion() >= order.getVersion()) return;
+        loadedOrders.put(order.getId(), order);
+        LiveUpdates.patchRow(ordersModel,
+                new Object[] { order.getId(), order.getRestaurantId(), order.getDeliveryAddress(), order.getStatus() }, true);
+    }
+
+    private void populateTrips() {
+        DefaultTableModel model = new DefaultTableModel();
+        model.addColumn("Trip ID");
+        model.addColumn("Stop");
+        model.addColumn("Type");
+        model.addColumn("Order ID");
+        model.addColumn("Location");
+
+        for (Trip trip : system.getActiveTrips(mainFrame.getSession())) {
+            for (TripStop stop : trip.getStops()) {
+                model.addRow(new Object[] { trip.getId(), stop.getSequence(), stop.getType(), stop.getOrderId(),
+                        stop.getLocation() == null ? "" : stop.getLocation().toString() });
+            }
+        }
+        tblTrips.setModel(model);
+    }
+
+    private void claimNextOrder() {
+        List<Order> claimed = system.claimNextOrders(mainFrame.getSession(), 1);
+        if (claimed.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "No orders are waiting for a driver, or you already hold the most claims allowed ("
+                            + system.getDeliveryQueue().getMaxClaim() + ")");
+            return;
+        }
+        populateOrders();
+        JOptionPane.showMessageDialog(this, "Order " + claimed.get(0).getId() + " is yours for the next "
+                + system.getDeliveryQueue().getLeaseSeconds() / 60 + " minutes. Pick it up to keep it.");
+    }
+
+    private void releaseClaim() {
+        int selectedRow = tblOrders.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(this, "Please select an order");
+            return;
+        }
+        int orderId = (int) tblOrders.getValueAt(selectedRow, 0);
+        if (!system.releaseClaim(mainFrame.getSession(), orderId)) {
+            JOptionPane.showMessageDialog(this, "Order " + orderId + " is not claimed by you");
+        }
+        populateOrders();
+    }
+
+    // Takes "latitude, longitude" or a place the gazetteer knows, such as a postcode
+    private void reportLocation() {
+        String input = JOptionPane.showInputDialog(this, "Your location (latitude, longitude or place):");
+        if (input == null || input.isBlank()) return;
+        GeoPoint point;
+        try {
+            String[] parts = input.split(",");
+            point = parts.length == 2
+                    ? new GeoPoint(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()))
+                    : system.getGazetteer().resolve(input);
+        } catch (IllegalArgumentException ex) {
+            // Not two numbers in range: try it as a place name
+            point = system.getGazetteer().resolve(input);
+        }
+        if (point == null) {
+            JOptionPane.showMessageDialog(this, "Unknown location: " + input, "Location", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (!system.updateDriverLocation(mainFrame.getSession(), point.getLatitude(), point.getLongitude())) {
+            JOptionPane.showMessageDialog(this, "Location updates are busy, please try again", "Location", JOptionPane.WARNING_MESSAGE);
+        }
     }
 
     private void updateStatus(String status) {
         int selectedRow = tblOrders.getSelectedRow();
         if (selectedRow >= 0) {
             int orderId = (int) tblOrders.getValueAt(selectedRow, 0);
-            system.updateOrderStatus(orderId, status, system.getCurrentUser().getId());
-            populateOrders();
+            Order order = loadedOrders.get(orderId);
+            try {
+                // Only one driver can win a pick-up: the update applies only if nobody changed the order meanwhile
+                // On success the row is patched by the change's event; only trips need reloading
+                if (system.updateOrderStatus(orderId, order.getStatus(), order.getVersion(), status, mainFrame.getSession().getUser().getId())) {
+                    populateTrips();
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            "Order " + orderId + " was changed by someone else. The list has been refreshed.",
+                            "Order Changed", JOptionPane.WARNING_MESSAGE);
+                    populateOrders();
+                }
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Invalid Status Change", JOptionPane.WARNING_MESSAGE);
+            }
         } else {
             JOptionPane.showMessageDialog(this, "Please select an order");
         }
@@ -19,16 +19,24 @@ import javax.swing.JTextArea;
 import javax.swing.table.DefaultTableModel;
 
 import ecosystem.EcoSystem;
+import ecosystem.EventBus;
+import ecosystem.Session;
+import model.OrderSummary;
 import model.Organization;
 import model.User;
 import model.WorkRequest;
+import model.WorkRequestEvent;
 
 public class EnterpriseAdminWorkArea extends JPanel {
+    // The related-order picker offers this many of the enterprise's newest orders
+    private static final int RELATED_ORDER_LIMIT = 200;
     private final MainJFrame mainFrame;
     private final EcoSystem system;
     private JTable tblOrganizations;
     private JTable tblUsers;
     private JTable tblRequests;
+    private DefaultTableModel requestsModel = new DefaultTableModel();
+    private EventBus.Subscription<WorkRequestEvent> requestUpdates;
     private int enterpriseId;
 
     public EnterpriseAdminWorkArea(MainJFrame mainFrame, EcoSystem system) {
@@ -45,16 +53,29 @@ public class EnterpriseAdminWorkArea extends JPanel {
         }
     }
 
-    private void determineEnterpriseId() {
-        // Deduce current user's enterprise by finding their organization and its enterprise id
-        int orgId = system.getCurrentUser() != null ? system.getCurrentUser().getOrganizationId() : 0;
-        List<Organization> allOrgs = system.getAllOrganizations();
-        for (Organization o : allOrgs) {
-            if (o.getId() == orgId) {
-                enterpriseId = o.getEnterpriseId();
-                break;
-            }
+    // Received requests follow changes while the panel is shown
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (requestUpdates == null && enterpriseId > 0) {
+            requestUpdates = LiveUpdates.workRequests(system, WorkRequestEvent.forReceiver(enterpriseId), this::applyRequestEvent);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (requestUpdates != null) {
+            requestUpdates.close();
+            requestUpdates = null;
         }
+        super.removeNotify();
+    }
+
+    private void determineEnterpriseId() {
+        // Resolved once at login and carried by the session
+        Session session = mainFrame.getSession();
+        Integer entId = session != null ? session.getEnterpriseId() : null;
+        enterpriseId = entId != null ? entId : 0;
     }
 
     private void initComponents() {
@@ -136,8 +157,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
             wr.setStatus("New");
             wr.setMessage("Need delivery personnel for pending orders");
             try {
-                system.createWorkRequest(wr);
-                populateRequests();
+                system.createWorkRequest(mainFrame.getSession(), wr);
                 JOptionPane.showMessageDialog(this, "Delivery request sent to Quick Delivery Service!");
             } catch (IllegalStateException ise) {
                 // Unauthorized to create a request
@@ -293,18 +313,28 @@ public class EnterpriseAdminWorkArea extends JPanel {
 
         List<WorkRequest> requests;
         try {
-            requests = system.getWorkRequestsForEnterprise(enterpriseId);
+            requests = system.getWorkRequestsForEnterprise(mainFrame.getSession(), enterpriseId);
         } catch (IllegalStateException ise) {
             JOptionPane.showMessageDialog(mainFrame, "Unauthorized: " + ise.getMessage(), "Access Denied", JOptionPane.ERROR_MESSAGE);
             tblRequests.setModel(model);
             return;
         }
         for (WorkRequest r : requests) {
-            model.addRow(new Object[] { r.getId(), r.getType(), r.getSenderEnterpriseId(), r.getReceiverEnterpriseId(), r.getRelatedOrderId(), r.getStatus(), r.getCreatedAt() });
+            model.addRow(rowOf(r));
         }
+        requestsModel = model;
         tblRequests.setModel(model);
     }
 
+    private static Object[] rowOf(WorkRequest r) {
+        return new Object[] { r.getId(), r.getType(), r.getSenderEnterpriseId(), r.getReceiverEnterpriseId(), r.getRelatedOrderId(), r.getStatus(), r.getCreatedAt() };
+    }
+
+    // Patches the row of a changed request in place and puts new requests at the top
+    private void applyRequestEvent(WorkRequestEvent event) {
+        LiveUpdates.patchRow(requestsModel, rowOf(event.getRequest()), event.getKind() == WorkRequestEvent.Kind.CREATED);
+    }
+
     private void addOrganization() {
         String name = JOptionPane.showInputDialog(this, "Organization Name:");
         if (name == null || name.trim().isEmpty()) {
@@ -315,7 +345,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
         String type = (String) JOptionPane.showInputDialog(this, "Type:", "Type", JOptionPane.QUESTION_MESSAGE, null, types, types[0]);
         if (type == null) return;
         try {
-            system.createOrganization(name, type, enterpriseId);
+            system.createOrganization(mainFrame.getSession(), name, type, enterpriseId);
             populateOrganizations();
         } catch (IllegalStateException ise) {
             JOptionPane.showMessageDialog(mainFrame, "Unauthorized: " + ise.getMessage(), "Access Denied", JOptionPane.ERROR_MESSAGE);
@@ -338,7 +368,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
             o.setName(newName);
             o.setType(newType);
             o.setEnterpriseId(enterpriseId);
-            system.updateOrganization(o);
+            system.updateOrganization(mainFrame.getSession(), o);
             populateOrganizations();
         } else {
             JOptionPane.showMessageDialog(this, "Please select an organization to edit");
@@ -352,7 +382,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
             int confirm = JOptionPane.showConfirmDialog(this, "Delete Organization ID: " + id + "?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
                 try {
-                    system.deleteOrganization(id);
+                    system.deleteOrganization(mainFrame.getSession(), id);
                     populateOrganizations();
                     populateUsers();
                 } catch (IllegalStateException ise) {
@@ -371,8 +401,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
             return;
         }
         String trimmedUsername = username.trim();
-        boolean exists = system.getAllUsers().stream().anyMatch(u -> trimmedUsername.equalsIgnoreCase(u.getUsername() == null ? "" : u.getUsername().trim()));
-        if (exists) {
+        if (system.isUsernameTaken(trimmedUsername)) {
             JOptionPane.showMessageDialog(mainFrame, "Username already exists");
             return;
         }
@@ -408,7 +437,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
         u.setOrganizationId(orgId);
 
         try {
-            system.createUser(u);
+            system.createUser(mainFrame.getSession(), u);
             populateUsers();
         } catch (IllegalStateException | IllegalArgumentException ex) {
             JOptionPane.showMessageDialog(mainFrame, "Error creating user: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -444,7 +473,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
             u.setId(id);
             u.setUsername(username);
             // Prompt for new password — leaving blank keeps existing password
-            model.User existing = system.getAllUsers().stream().filter(x -> x.getId() == id).findFirst().orElse(null);
+            model.User existing = system.getUserById(id);
             if (existing == null) {
                 JOptionPane.showMessageDialog(this, "Existing user not found. The user may have been deleted.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
@@ -455,7 +484,8 @@ public class EnterpriseAdminWorkArea extends JPanel {
                 return;
             }
             if (newPassword.trim().isEmpty()) {
-                u.setPassword(existing.getPassword());
+                // No password on the update leaves the stored hash untouched
+                u.setPassword(null);
             } else {
                 u.setPassword(newPassword);
             }
@@ -465,7 +495,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
             u.setEmail(email);
             u.setOrganizationId(newOrgId);
             try {
-                system.updateUser(u);
+                system.updateUser(mainFrame.getSession(), u);
                 populateUsers();
             } catch (IllegalStateException ise) {
                 JOptionPane.showMessageDialog(mainFrame, "Unauthorized: " + ise.getMessage(), "Access Denied", JOptionPane.ERROR_MESSAGE);
@@ -482,7 +512,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
             int confirm = JOptionPane.showConfirmDialog(this, "Delete User ID: " + id + "?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
                 try {
-                    system.deleteUser(id);
+                    system.deleteUser(mainFrame.getSession(), id);
                     populateUsers();
                 } catch (IllegalStateException ise) {
                     JOptionPane.showMessageDialog(mainFrame, "Unauthorized: " + ise.getMessage(), "Access Denied", JOptionPane.ERROR_MESSAGE);
@@ -509,17 +539,14 @@ public class EnterpriseAdminWorkArea extends JPanel {
         String message = JOptionPane.showInputDialog(this, "Message:");
         Integer relatedOrderId = null;
         if ("DeliveryAssignment".equals(type) || "OrderRequest".equals(type)) {
-            // collect orders within this enterprise
-            List<Organization> orgs = system.getOrganizations(enterpriseId);
-            java.util.List<Integer> orderIds = new java.util.ArrayList<>();
-            for (Organization o : orgs) {
-                List<model.Order> orders = system.getOrdersForRestaurant(o.getId());
-                for (model.Order or : orders) orderIds.add(or.getId());
-            }
-            if (!orderIds.isEmpty()) {
-                String[] orderOptions = orderIds.stream().map(Object::toString).toArray(String[]::new);
+            // Most recent orders within this enterprise, fetched in one query
+            List<OrderSummary> orders = system.getOrderSummariesForEnterprise(enterpriseId, null, RELATED_ORDER_LIMIT);
+            if (!orders.isEmpty()) {
+                String[] orderOptions = orders.stream()
+                        .map(o -> o.getId() + ": " + o.getStatus() + " (" + o.getOrderDate() + ")")
+                        .toArray(String[]::new);
                 String selOrder = (String) JOptionPane.showInputDialog(this, "Related Order:", "Order", JOptionPane.QUESTION_MESSAGE, null, orderOptions, orderOptions[0]);
-                relatedOrderId = (selOrder == null) ? null : Integer.valueOf(selOrder);
+                relatedOrderId = (selOrder == null) ? null : Integer.valueOf(selOrder.split(":")[0].trim());
             }
         }
 
@@ -532,8 +559,7 @@ public class EnterpriseAdminWorkArea extends JPanel {
         wr.setStatus("New");
 
         try {
-            system.createWorkRequest(wr);
-            populateRequests();
+            system.createWorkRequest(mainFrame.getSession(), wr);
         } catch (IllegalStateException ise) {
             JOptionPane.showMessageDialog(mainFrame, "Unauthorized: " + ise.getMessage(), "Access Denied", JOptionPane.ERROR_MESSAGE);
         }
@@ -547,8 +573,8 @@ public class EnterpriseAdminWorkArea extends JPanel {
             String newStatus = (String) JOptionPane.showInputDialog(this, "Select status:", "Status", JOptionPane.QUESTION_MESSAGE, null, statuses, statuses[0]);
             if (newStatus == null) return;
             try {
-                system.updateWorkRequestStatus(id, newStatus);
-                populateRequests();
+                // The row is patched by the change's event
+                system.updateWorkRequestStatus(mainFrame.getSession(), id, newStatus);
             } catch (IllegalStateException ise) {
                 JOptionPane.showMessageDialog(mainFrame, "Unauthorized: " + ise.getMessage(), "Access Denied", JOptionPane.ERROR_MESSAGE);
             }
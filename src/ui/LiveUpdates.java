@@ -0,0 +1,54 @@
+package ui;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+
+import ecosystem.EcoSystem;
+import ecosystem.EventBus;
+import model.OrderEvent;
+import model.WorkRequestEvent;
+
+// Event subscriptions for the work areas: handled on the EDT, latest event per row only
+final class LiveUpdates {
+    // Rows with a pending update per panel before the oldest one is dropped
+    private static final int QUEUE_SIZE = 256;
+
+    private LiveUpdates() {
+    }
+
+    static EventBus.Subscription<OrderEvent> orders(EcoSystem system, Predicate<OrderEvent> filter, Consumer<OrderEvent> handler) {
+        return system.getEventBus().subscribeCoalescing(OrderEvent.class, filter, SwingUtilities::invokeLater,
+                QUEUE_SIZE, e -> e.getOrder().getId(), handler);
+    }
+
+    static EventBus.Subscription<WorkRequestEvent> workRequests(EcoSystem system, Predicate<WorkRequestEvent> filter,
+            Consumer<WorkRequestEvent> handler) {
+        return system.getEventBus().subscribeCoalescing(WorkRequestEvent.class, filter, SwingUtilities::invokeLater,
+                QUEUE_SIZE, e -> e.getRequest().getId(), handler);
+    }
+
+    // Overwrites the row with the id in its first column; if there is none, inserts the row at
+    // the top when insertIfMissing, as lists here are newest first
+    static void patchRow(DefaultTableModel model, Object[] values, boolean insertIfMissing) {
+        int row = findRow(model, (Integer) values[0]);
+        if (row >= 0) {
+            for (int column = 1; column < values.length; column++) {
+                model.setValueAt(values[column], row, column);
+            }
+        } else if (insertIfMissing) {
+            model.insertRow(0, values);
+        }
+    }
+
+    // Row whose first column holds the id, or -1
+    static int findRow(DefaultTableModel model, int id) {
+        for (int row = 0; row < model.getRowCount(); row++) {
+            Object value = model.getValueAt(row, 0);
+            if (value instanceof Integer && (Integer) value == id) return row;
+        }
+        return -1;
+    }
+}
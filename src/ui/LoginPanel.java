@@ -16,7 +16,10 @@ import javax.swing.JPasswordField;
 import javax.swing.JTextField;
 
 import ecosystem.EcoSystem;
+import ecosystem.Session;
 import model.User;
+import util.BackgroundTask;
+import util.PasswordHasher;
 
 public class LoginPanel extends JPanel {
     private static final Logger LOGGER = Logger.getLogger(LoginPanel.class.getName());
@@ -24,6 +27,7 @@ public class LoginPanel extends JPanel {
     private final EcoSystem system;
     private JTextField txtUsername;
     private JPasswordField txtPassword;
+    private JButton btnLogin;
 
     public LoginPanel(MainJFrame mainFrame, EcoSystem system) {
         this.mainFrame = mainFrame;
@@ -67,7 +71,7 @@ public class LoginPanel extends JPanel {
         gbc.gridy = 2;
         add(txtPassword, gbc);
 
-        JButton btnLogin = new JButton("Login");
+        btnLogin = new JButton("Login");
         btnLogin.setBackground(new Color(30, 144, 255)); // Dodger Blue
         btnLogin.setForeground(Color.WHITE);
         btnLogin.setFocusPainted(false);
@@ -118,8 +122,33 @@ public class LoginPanel extends JPanel {
             return;
         }
 
-        User user = system.login(username, password);
-        if (user != null) {
+        // BCrypt runs on the hashing pool; keep the EDT free while it does
+        btnLogin.setEnabled(false);
+        final String loginName = username;
+        final String loginPassword = password;
+        BackgroundTask.execute(
+            () -> system.login(loginName, loginPassword),
+            (session) -> {
+                btnLogin.setEnabled(true);
+                onLoginResult(session);
+            },
+            (error) -> {
+                btnLogin.setEnabled(true);
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof PasswordHasher.BusyException) {
+                    JOptionPane.showMessageDialog(this, cause.getMessage(), "Busy", JOptionPane.WARNING_MESSAGE);
+                } else {
+                    LOGGER.log(Level.SEVERE, "Login failed", cause);
+                    JOptionPane.showMessageDialog(this, "Login failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        );
+    }
+
+    private void onLoginResult(Session session) {
+        if (session != null) {
+            mainFrame.setSession(session);
+            User user = session.getUser();
             JOptionPane.showMessageDialog(this, "Welcome " + user.getName());
             // Navigate based on role
             switch (user.getRole()) {
@@ -1,6 +1,7 @@
 package ui;
 
 import ecosystem.EcoSystem;
+import ecosystem.Session;
 
 import javax.swing.*;
 import java.awt.*;
@@ -9,6 +10,8 @@ public class MainJFrame extends JFrame {
     private final EcoSystem system;
     private JPanel container;
     private CardLayout cardLayout;
+    // The user signed in at this window; other windows or nodes hold their own
+    private Session session;
 
     public MainJFrame() {
         system = EcoSystem.getInstance();
@@ -30,8 +33,17 @@ public class MainJFrame extends JFrame {
         cardLayout.show(container, "LoginPanel");
     }
 
+    public Session getSession() {
+        return session;
+    }
+
+    public void setSession(Session session) {
+        this.session = session;
+    }
+
     public void logout() {
-        system.logout();
+        system.logout(session);
+        session = null;
         container.removeAll();
         LoginPanel loginPanel = new LoginPanel(this, system);
         container.add("LoginPanel", loginPanel);
@@ -0,0 +1,355 @@
+package ui;
+
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model over a list too long to load at once. It knows the row count and loads the
+ * rows in fixed-size pages when the table first asks for a cell on them, that is when they
+ * scroll into view, plus the page after as a prefetch. Only the {@code maxPages} pages used
+ * most recently are kept, so memory follows what is on screen rather than the list's length.
+ * Sorting and filtering are done by the {@link PageSource}, in the database. A page next to
+ * one still loaded is read on from that page's edge row where the source can seek, so
+ * scrolling deep into the list does not make the database skip every row above it.
+ *
+ * <p>Pages load on a background thread; until its page arrives a row shows blank and
+ * {@link #getRow} returns null. Use it on the EDT only.
+ */
+public class PagedTableModel<T> extends AbstractTableModel {
+    private static final Logger LOGGER = Logger.getLogger(PagedTableModel.class.getName());
+    // After a failed load, pages are not asked for again for this long
+    private static final int RETRY_DELAY_MILLIS = 5_000;
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "table-page-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Counts and fetches rows for the current sort and filter; called off the EDT. */
+    public interface PageSource<T> {
+        int count(String filter) throws Exception;
+
+        // sortColumn is a column index of the table, or -1 for the list's natural order
+        List<T> fetch(String filter, int offset, int limit, int sortColumn, boolean ascending) throws Exception;
+
+        // The limit rows after anchor (before it unless forward), past the skip nearest to it, in
+        // sort order; null if the source cannot seek for this sort, and fetch is used instead
+        default List<T> fetchFrom(String filter, T anchor, boolean forward, int skip, int limit, int sortColumn,
+                boolean ascending) throws Exception {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    public interface ColumnReader<T> {
+        Object read(T row, int column);
+    }
+
+    private final String[] columns;
+    private final PageSource<T> source;
+    private final ColumnReader<T> reader;
+    private final int pageSize;
+    private final int maxPages;
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    private int rowCount;
+    // A count is on its way or has failed, so rowCount cannot be adjusted in place
+    private boolean counting;
+    // Bumped whenever sort, filter or data change; loads for an older generation are dropped
+    private int generation;
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private String filter;
+    private long retryAfter;
+
+    public PagedTableModel(String[] columns, PageSource<T> source, ColumnReader<T> reader, int pageSize, int maxPages) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive");
+        // The visible page and the one being prefetched must both fit
+        if (maxPages < 3) throw new IllegalArgumentException("At least 3 pages must be kept");
+        this.columns = columns.clone();
+        this.source = source;
+        this.reader = reader;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<>(maxPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > PagedTableModel.this.maxPages;
+            }
+        };
+        refresh();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T row = getRow(rowIndex);
+        return row == null ? null : reader.read(row, columnIndex);
+    }
+
+    // The row if its page is loaded, else null (and the page is requested)
+    public T getRow(int rowIndex) {
+        int page = rowIndex / pageSize;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+            return null;
+        }
+        request(page + 1);
+        int offset = rowIndex - page * pageSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    // Loads the page in the background unless it is loaded, loading or past the end
+    private void request(int page) {
+        if (page * pageSize >= rowCount || pages.containsKey(page) || loading.contains(page)) return;
+        if (System.currentTimeMillis() < retryAfter) return;
+        loading.add(page);
+        int requested = generation;
+        String f = filter;
+        int column = sortColumn;
+        boolean asc = ascending;
+        // Seek from the edge of the nearest loaded page when that passes over fewer rows than the offset
+        T anchor = null;
+        boolean forward = true;
+        int skip = page * pageSize;
+        for (Map.Entry<Integer, List<T>> entry : pages.entrySet()) {
+            int near = entry.getKey();
+            List<T> rows = entry.getValue();
+            int between = (Math.abs(near - page) - 1) * pageSize;
+            if (between >= skip) continue;
+            if (near < page && rows.size() == pageSize) {
+                anchor = rows.get(pageSize - 1);
+                forward = true;
+                skip = between;
+            } else if (near > page && !rows.isEmpty()) {
+                anchor = rows.get(0);
+                forward = false;
+                skip = between;
+            }
+        }
+        T from = anchor;
+        boolean fwd = forward;
+        int passed = skip;
+        LOADER.execute(() -> {
+            List<T> rows;
+            try {
+                List<T> sought = from == null ? null : source.fetchFrom(f, from, fwd, passed, pageSize, column, asc);
+                rows = sought != null ? sought : source.fetch(f, page * pageSize, pageSize, column, asc);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to load table page " + page, e);
+                SwingUtilities.invokeLater(() -> failed(requested, page));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> loaded(requested, page, rows));
+        });
+    }
+
+    private void loaded(int requested, int page, List<T> rows) {
+        if (requested != generation) return;
+        loading.remove(page);
+        // Copied so replaceRow can write to it whatever list the source returned
+        pages.put(page, new ArrayList<>(rows));
+        int first = page * pageSize;
+        int last = Math.min(first + pageSize, rowCount) - 1;
+        if (last >= first) fireTableRowsUpdated(first, last);
+    }
+
+    // page is -1 when the count failed
+    private void failed(int requested, int page) {
+        if (requested != generation) return;
+        loading.remove(page);
+        retryAfter = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+        // Once the delay is over, count again, or repaint so the rows on screen ask again
+        Timer retry = new Timer(RETRY_DELAY_MILLIS, e -> {
+            if (requested != generation) return;
+            if (page < 0) {
+                refresh();
+            } else if (rowCount > 0) {
+                fireTableRowsUpdated(0, rowCount - 1);
+            }
+        });
+        retry.setRepeats(false);
+        retry.start();
+    }
+
+    /**
+     * Drops every loaded page and recounts; the rows on screen reload as they are painted.
+     * The table keeps its selection unless the row count changes.
+     */
+    public void refresh() {
+        generation++;
+        pages.clear();
+        loading.clear();
+        retryAfter = 0;
+        counting = true;
+        int requested = generation;
+        String f = filter;
+        LOADER.execute(() -> {
+            int count;
+            try {
+                count = source.count(f);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to count table rows", e);
+                SwingUtilities.invokeLater(() -> failed(requested, -1));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> counted(requested, count));
+        });
+        if (rowCount > 0) fireTableRowsUpdated(0, rowCount - 1);
+    }
+
+    private void counted(int requested, int count) {
+        if (requested != generation) return;
+        counting = false;
+        if (count == rowCount) {
+            if (count > 0) fireTableRowsUpdated(0, count - 1);
+        } else {
+            rowCount = count;
+            fireTableDataChanged();
+        }
+    }
+
+    // Sorts on the server by the column (-1 for natural order) and reloads
+    public void setSort(int column, boolean ascending) {
+        this.sortColumn = column;
+        this.ascending = ascending;
+        refresh();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    // Filters on the server; null or blank for no filter
+    public void setFilter(String filter) {
+        this.filter = filter == null || filter.isBlank() ? null : filter.trim();
+        refresh();
+    }
+
+    /**
+     * Replaces the loaded row that matches with what update returns for it, without a reload.
+     * Returns false if no loaded row matches; the row then shows its new state when its page
+     * next loads. Only for changes that cannot move the row under the current sort and filter.
+     */
+    public boolean replaceRow(Predicate<? super T> matches, UnaryOperator<T> update) {
+        for (Map.Entry<Integer, List<T>> entry : pages.entrySet()) {
+            List<T> rows = entry.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (matches.test(rows.get(i))) {
+                    rows.set(i, update.apply(rows.get(i)));
+                    int index = entry.getKey() * pageSize + i;
+                    if (index < rowCount) fireTableRowsUpdated(index, index);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a row at the top without a recount, for a new row known to sort first under the
+     * current sort and filter, such as the newest order in a newest-first list. Loaded rows
+     * move down one; a page whose new first row was not loaded is dropped and reloads when shown.
+     */
+    public void insertFirst(T row) {
+        if (counting) {
+            refresh();
+            return;
+        }
+        // Loads on their way were asked for by offset before the insert
+        generation++;
+        loading.clear();
+        List<Integer> recent = new ArrayList<>(pages.keySet());
+        List<Integer> ascendingPages = new ArrayList<>(recent);
+        Collections.sort(ascendingPages);
+        Map<Integer, List<T>> shifted = new HashMap<>();
+        T carried = row;
+        int carriedTo = 0;
+        for (int page : ascendingPages) {
+            List<T> rows = pages.get(page);
+            // A full page's last row becomes the next page's first
+            T last = rows.size() == pageSize ? rows.get(pageSize - 1) : null;
+            if (carriedTo == page && carried != null) {
+                rows.add(0, carried);
+                if (rows.size() > pageSize) rows.remove(pageSize);
+                shifted.put(page, rows);
+            }
+            carried = last;
+            carriedTo = page + 1;
+        }
+        pages.clear();
+        for (int page : recent) {
+            if (shifted.containsKey(page)) pages.put(page, shifted.get(page));
+        }
+        rowCount++;
+        fireTableRowsInserted(0, 0);
+    }
+
+    // Whether a loaded row matches
+    public boolean containsRow(Predicate<? super T> matches) {
+        for (List<T> rows : pages.values()) {
+            for (T row : rows) {
+                if (matches.test(row)) return true;
+            }
+        }
+        return false;
+    }
+
+    // Pages held in memory
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    // Clicking a column header sorts by it, ascending first, then descending; only the given
+    // columns sort if any are given
+    public void sortOnHeaderClick(JTable table, int... sortableColumns) {
+        Set<Integer> sortable = new HashSet<>();
+        for (int column : sortableColumns) sortable.add(column);
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                if (column < 0 || !sortable.isEmpty() && !sortable.contains(column)) return;
+                setSort(column, column != sortColumn || !ascending);
+            }
+        });
+    }
+}
@@ -3,6 +3,7 @@ package ui;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -17,8 +18,11 @@ import javax.swing.JTextArea;
 import javax.swing.JTextField;
 
 import ecosystem.EcoSystem;
+import ecosystem.MenuCache;
 import model.Enterprise;
+import model.MenuItem;
 import model.Order;
+import model.OrderItem;
 import util.BackgroundTask;
 
 public class PlaceOrderPanel extends JPanel {
@@ -69,11 +73,8 @@ public class PlaceOrderPanel extends JPanel {
     private void populateRestaurants() {
         // For simplicity, we are listing Enterprises of type 'Restaurant'
         // In a real app, we might list Organizations or specific Restaurant objects
-        List<Enterprise> enterprises = system.getAllEnterprises();
-        for (Enterprise ent : enterprises) {
-            if ("Restaurant".equalsIgnoreCase(ent.getType())) {
-                cmbRestaurants.addItem(ent.getName() + " (ID: " + ent.getId() + ")");
-            }
+        for (Enterprise ent : system.getEnterprisesByType("Restaurant")) {
+            cmbRestaurants.addItem(ent.getName() + " (ID: " + ent.getId() + ")");
         }
     }
 
@@ -111,71 +112,60 @@ public class PlaceOrderPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Invalid restaurant ID", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
+
+        // Collect the basket before anything is written so the order and its items are stored together
+        List<OrderItem> items = new ArrayList<>();
+        MenuCache.RestaurantMenu menu = system.getRestaurantMenu(restaurantId);
+        if (!menu.getItems().isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Available Menu Items:\n");
+            for (MenuItem m2 : menu.getItems()) {
+                sb.append(m2.getId()).append(": ").append(m2.getName()).append(" (Price: ").append(m2.getPrice()).append(")\n");
+            }
+            sb.append("\nEnter items as id:qty separated by commas (e.g. 1:2,2:1). Leave blank if none.");
+            String inputItems = JOptionPane.showInputDialog(this, sb.toString());
+            if (inputItems == null) return;
+            if (!inputItems.trim().isEmpty()) {
+                for (String p : inputItems.split(",")) {
+                    String[] kv = p.split(":");
+                    if (kv.length == 2) {
+                        try {
+                            int menuItemId = Integer.parseInt(kv[0].trim());
+                            int qty = Integer.parseInt(kv[1].trim());
+                            MenuItem selected = menu.getItem(menuItemId);
+                            if (selected != null && qty > 0) {
+                                OrderItem oi = new OrderItem();
+                                oi.setMenuItemName(selected.getName());
+                                oi.setPrice(selected.getPrice());
+                                oi.setQuantity(qty);
+                                items.add(oi);
+                            }
+                        } catch (NumberFormatException nfe) {
+                            // ignore malformed entries
+                        }
+                    }
+                }
+            }
+        }
+
         JButton source = (JButton) e.getSource();
         source.setEnabled(false);
         source.setText("Processing...");
 
         Order order = new Order();
-        order.setCustomerId(system.getCurrentUser().getId());
+        order.setCustomerId(mainFrame.getSession().getUser().getId());
         order.setRestaurantId(restaurantId);
         order.setStatus("Placed");
         order.setDeliveryAddress(address);
         order.setComment(comment);
 
         BackgroundTask.execute(
-            () -> { system.placeOrder(order); return order.getId(); },
-            (orderId) -> {
+            () -> system.placeOrderWithItems(order, items),
+            (receipt) -> {
                 source.setEnabled(true);
                 source.setText("Place Order");
-                // Ask user if they want to add items only after the order is successfully created
-                java.util.List<model.MenuItem> menuAfter = system.getMenu(restaurantId);
-                if (menuAfter != null && !menuAfter.isEmpty()) {
-                    StringBuilder sb = new StringBuilder();
-                    sb.append("Available Menu Items:\n");
-                    for (model.MenuItem m2 : menuAfter) {
-                        sb.append(m2.getId()).append(": ").append(m2.getName()).append(" (Price: ").append(m2.getPrice()).append(")\n");
-                    }
-                    sb.append("\nEnter items as id:qty separated by commas (e.g. 1:2,2:1). Leave blank if none.");
-                    String inputItems = JOptionPane.showInputDialog(this, sb.toString());
-                    if (inputItems != null && !inputItems.trim().isEmpty()) {
-                        String[] parts = inputItems.split(",");
-                        // add order items in a background task so UI doesn't freeze
-                        BackgroundTask.execute(() -> {
-                                for (String p : parts) {
-                                    String[] kv = p.split(":");
-                                    if (kv.length == 2) {
-                                        try {
-                                            int menuItemId = Integer.parseInt(kv[0].trim());
-                                            int qty = Integer.parseInt(kv[1].trim());
-                                            model.MenuItem selected = null;
-                                            for (model.MenuItem m3 : menuAfter) {
-                                                if (m3.getId() == menuItemId) { selected = m3; break; }
-                                            }
-                                            if (selected != null) {
-                                                model.OrderItem oi = new model.OrderItem();
-                                                oi.setOrderId(orderId);
-                                                oi.setMenuItemName(selected.getName());
-                                                oi.setPrice(selected.getPrice());
-                                                oi.setQuantity(qty);
-                                                system.createOrderItem(oi);
-                                            }
-                                        } catch (NumberFormatException nfe) {
-                                            // ignore malformed entries
-                                        }
-                                    }
-                                }
-                                return true;
-                            },
-                            (r) -> {},
-                            (err) -> {
-                                JOptionPane.showMessageDialog(this,
-                                    "Failed to add some order items: " + err.getMessage(),
-                                    "Warning", JOptionPane.WARNING_MESSAGE);
-                            }
-                        );
-                    }
-                }
-                JOptionPane.showMessageDialog(this, "Order placed successfully! Order ID: " + orderId);
+                JOptionPane.showMessageDialog(this, "Order placed successfully! Order ID: " + receipt.getOrderId()
+                        + "\nItems: " + receipt.getItemCount() + ", Total: $" + receipt.getTotal());
                 mainFrame.navigateTo(new CustomerWorkArea(mainFrame, system), "Customer");
             },
             (error) -> {
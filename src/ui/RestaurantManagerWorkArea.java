@@ -2,9 +2,12 @@ package ui;
 
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -14,15 +17,32 @@ import javax.swing.JTable;
 import javax.swing.table.DefaultTableModel;
 
 import ecosystem.EcoSystem;
+import ecosystem.EventBus;
 import model.MenuItem;
 import model.Order;
+import model.OrderEvent;
+import model.OrderStatus;
 import model.User;
 
 public class RestaurantManagerWorkArea extends JPanel {
+    // Orders are read a page at a time as the table scrolls, sorted and filtered in the database
+    private static final String[] ORDER_COLUMNS = { "Order ID", "Customer ID", "Status", "Delivery Man", "Date" };
+    // The columns the list sorts by, the ones OrderDAO has indexes for
+    private static final int ID_COLUMN = 0;
+    private static final int DATE_COLUMN = 4;
+    private static final int PAGE_SIZE = 50;
+    private static final int PAGES_KEPT = 6;
+    private static final String ANY_DRIVER = "Next available driver (delivery queue)";
+    private static final String ALL_STATUSES = "All";
     private final MainJFrame mainFrame;
     private final EcoSystem system;
     private JTable tblOrders;
     private JTable tblMenu;
+    private PagedTableModel<Order> ordersModel;
+    private JComboBox<String> cmbStatus;
+    private EventBus.Subscription<OrderEvent> orderUpdates;
+    // Orders already added for a PLACED event; the change feed publishes this node's new orders again
+    private final Set<Integer> placedOrderIds = new HashSet<>();
 
     public RestaurantManagerWorkArea(MainJFrame mainFrame, EcoSystem system) {
         this.mainFrame = mainFrame;
@@ -32,6 +52,25 @@ public class RestaurantManagerWorkArea extends JPanel {
         populateMenu();
     }
 
+    // Rows follow order changes while the panel is shown
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (orderUpdates == null) {
+            orderUpdates = LiveUpdates.orders(system,
+                    OrderEvent.forRestaurant(mainFrame.getSession().getUser().getOrganizationId()), this::applyOrderEvent);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (orderUpdates != null) {
+            orderUpdates.close();
+            orderUpdates = null;
+        }
+        super.removeNotify();
+    }
+
     private void initComponents() {
         setLayout(new BorderLayout());
 
@@ -49,9 +88,24 @@ public class RestaurantManagerWorkArea extends JPanel {
         tblOrders = new JTable();
         ordersPanel.add(new JScrollPane(tblOrders), BorderLayout.CENTER);
 
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Status:"));
+        cmbStatus = new JComboBox<>();
+        cmbStatus.addItem(ALL_STATUSES);
+        for (OrderStatus status : OrderStatus.values()) cmbStatus.addItem(status.getLabel());
+        cmbStatus.addActionListener(e -> {
+            String status = (String) cmbStatus.getSelectedItem();
+            ordersModel.setFilter(ALL_STATUSES.equals(status) ? null : status);
+        });
+        filterPanel.add(cmbStatus);
+        ordersPanel.add(filterPanel, BorderLayout.NORTH);
+
         JPanel actionPanel = new JPanel();
         JButton btnAccept = new JButton("Accept Order");
         btnAccept.addActionListener(e -> updateStatus("Accepted"));
+
+        JButton btnCooking = new JButton("Start Cooking");
+        btnCooking.addActionListener(e -> updateStatus("Cooking"));
         
         JButton btnReady = new JButton("Ready for Pickup");
         btnReady.addActionListener(e -> assignToDelivery());
@@ -60,6 +114,7 @@ public class RestaurantManagerWorkArea extends JPanel {
         btnViewDetails.addActionListener(e -> viewOrderDetails());
 
         actionPanel.add(btnAccept);
+        actionPanel.add(btnCooking);
         actionPanel.add(btnReady);
         actionPanel.add(btnViewDetails);
         ordersPanel.add(actionPanel, BorderLayout.SOUTH);
@@ -85,7 +140,7 @@ public class RestaurantManagerWorkArea extends JPanel {
                 item.setName(name);
                 item.setPrice(price);
                 item.setDescription(desc);
-                item.setRestaurantId(system.getCurrentUser().getOrganizationId());
+                item.setRestaurantId(mainFrame.getSession().getUser().getOrganizationId());
                 system.addMenuItem(item);
                 populateMenu();
             } catch (NumberFormatException nfe) {
@@ -109,27 +164,86 @@ public class RestaurantManagerWorkArea extends JPanel {
     }
 
     private void populateOrders() {
-        DefaultTableModel model = new DefaultTableModel();
-        model.addColumn("Order ID");
-        model.addColumn("Customer ID");
-        model.addColumn("Status");
-        model.addColumn("Delivery Man");
-        model.addColumn("Date");
-
-        int restaurantId = system.getCurrentUser().getOrganizationId();
-        List<Order> orders = system.getOrdersForRestaurant(restaurantId);
-        
-        for (Order o : orders) {
-            String deliveryMan = o.getDeliveryManId() > 0 ? "Assigned (#" + o.getDeliveryManId() + ")" : "Not Assigned";
-            model.addRow(new Object[] { 
-                o.getId(), 
-                o.getCustomerId(), 
-                o.getStatus(), 
-                deliveryMan,
-                o.getOrderDate() 
+        if (ordersModel != null) {
+            ordersModel.refresh();
+            return;
+        }
+        int restaurantId = mainFrame.getSession().getUser().getOrganizationId();
+        ordersModel = new PagedTableModel<>(ORDER_COLUMNS, new PagedTableModel.PageSource<Order>() {
+            @Override
+            public int count(String status) {
+                return system.getOrderCountForRestaurant(restaurantId, status);
+            }
+
+            // Newest first unless a column header was clicked; items come with the page so the
+            // details view needs no query per order
+            @Override
+            public List<Order> fetch(String status, int offset, int limit, int sortColumn, boolean ascending) {
+                return system.getOrdersPageForRestaurant(restaurantId, status, offset, limit, sortField(sortColumn),
+                        ascending);
+            }
+
+            @Override
+            public List<Order> fetchFrom(String status, Order anchor, boolean forward, int skip, int limit,
+                    int sortColumn, boolean ascending) {
+                if (sortColumn != ID_COLUMN && anchor.getOrderDate() == null) return null;
+                return system.getOrdersPageForRestaurant(restaurantId, status, anchor, forward, skip, limit,
+                        sortField(sortColumn), ascending);
+            }
+        }, (o, column) -> switch (column) {
+            case 0 -> o.getId();
+            case 1 -> o.getCustomerId();
+            case 2 -> o.getStatus();
+            case 3 -> o.getDeliveryManId() > 0 ? "Assigned (#" + o.getDeliveryManId() + ")" : "Not Assigned";
+            default -> o.getOrderDate();
+        }, PAGE_SIZE, PAGES_KEPT);
+        tblOrders.setModel(ordersModel);
+        ordersModel.sortOnHeaderClick(tblOrders, ID_COLUMN, DATE_COLUMN);
+    }
+
+    private static String sortField(int sortColumn) {
+        return sortColumn < 0 ? null : sortColumn == ID_COLUMN ? "id" : "order_date";
+    }
+
+    // A new order goes on top of a newest-first list, counted there rather than recounted. A
+    // change while filtered can move the order in or out of the list, so it recounts and reloads
+    // what is shown; other changes patch the row if it is loaded, keeping the items loaded with
+    // its page. Repeats of what a row already shows are dropped.
+    private void applyOrderEvent(OrderEvent event) {
+        Order order = event.getOrder();
+        Object status = cmbStatus.getSelectedItem();
+        boolean filtered = !ALL_STATUSES.equals(status);
+        if (event.getKind() == OrderEvent.Kind.PLACED && placedOrderIds.add(order.getId())
+                && !ordersModel.containsRow(o -> o.getId() == order.getId())) {
+            if (filtered && !status.equals(order.getStatus())) return;
+            // Only the id and date sort, so any descending sort is newest first too
+            if (ordersModel.getSortColumn() < 0 || !ordersModel.isAscending()) {
+                ordersModel.insertFirst(copyOf(order));
+            } else {
+                ordersModel.refresh();
+            }
+            return;
+        }
+        if (ordersModel.containsRow(o -> o.getId() == order.getId() && o.getVersion() >= order.getVersion())) return;
+        if (filtered) {
+            ordersModel.refresh();
+        } else {
+            ordersModel.replaceRow(o -> o.getId() == order.getId() && o.getVersion() < order.getVersion(), shown -> {
+                shown.setStatus(order.getStatus());
+                shown.setDeliveryManId(order.getDeliveryManId());
+                shown.setVersion(order.getVersion());
+                return shown;
             });
         }
-        tblOrders.setModel(model);
+    }
+
+    // Event orders are shared between subscribers and the row is patched in place later
+    private static Order copyOf(Order order) {
+        Order copy = new Order(order.getId(), order.getCustomerId(), order.getRestaurantId(), order.getDeliveryManId(),
+                order.getStatus(), order.getOrderDate(), order.getDeliveryAddress(), order.getComment());
+        copy.setVersion(order.getVersion());
+        copy.setItems(order.getItems());
+        return copy;
     }
 
     private void populateMenu() {
@@ -139,7 +253,7 @@ public class RestaurantManagerWorkArea extends JPanel {
         model.addColumn("Price");
         model.addColumn("Description");
 
-        int restaurantId = system.getCurrentUser().getOrganizationId();
+        int restaurantId = mainFrame.getSession().getUser().getOrganizationId();
         java.util.List<MenuItem> items = system.getMenu(restaurantId);
         for (MenuItem item : items) {
             model.addRow(new Object[] { item.getId(), item.getName(), item.getPrice(), item.getDescription() });
@@ -150,11 +264,15 @@ public class RestaurantManagerWorkArea extends JPanel {
     private void assignToDelivery() {
         int selectedRow = tblOrders.getSelectedRow();
         if (selectedRow >= 0) {
-            int orderId = (int) tblOrders.getValueAt(selectedRow, 0);
-            String currentStatus = (String) tblOrders.getValueAt(selectedRow, 2);
+            Order order = ordersModel.getRow(selectedRow);
+            if (order == null) {
+                JOptionPane.showMessageDialog(this, "The order list is still loading");
+                return;
+            }
+            OrderStatus currentStatus = OrderStatus.fromLabel(order.getStatus());
             
             // Check if order is in correct status
-            if (!"Accepted".equals(currentStatus)) {
+            if (currentStatus == null || !currentStatus.canTransitionTo(OrderStatus.READY_FOR_PICKUP)) {
                 JOptionPane.showMessageDialog(this, 
                     "Please accept the order first before marking it ready for pickup", 
                     "Order Not Accepted", 
@@ -176,9 +294,10 @@ public class RestaurantManagerWorkArea extends JPanel {
                 return;
             }
             
-            // Let manager choose a delivery person
-            String[] deliveryOptions = deliveryPersonnel.stream()
-                .map(u -> u.getName() + " (ID: " + u.getId() + ")")
+            // Let manager choose a delivery person, or leave the order for the first driver to claim it
+            String[] deliveryOptions = java.util.stream.Stream.concat(
+                    java.util.stream.Stream.of(ANY_DRIVER),
+                    deliveryPersonnel.stream().map(u -> u.getName() + " (ID: " + u.getId() + ")"))
                 .toArray(String[]::new);
             
             String selected = (String) JOptionPane.showInputDialog(
@@ -191,7 +310,14 @@ public class RestaurantManagerWorkArea extends JPanel {
                 deliveryOptions[0]
             );
             
-            if (selected != null) {
+            if (ANY_DRIVER.equals(selected)) {
+                if (changeStatus(order, "ReadyForPickup", 0)) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Order is waiting in the delivery queue for the next driver", 
+                        "Success", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                }
+            } else if (selected != null) {
                 // Extract delivery person ID from selection
                 int deliveryManId = -1;
                 for (User u : deliveryPersonnel) {
@@ -201,14 +327,11 @@ public class RestaurantManagerWorkArea extends JPanel {
                     }
                 }
                 
-                if (deliveryManId > 0) {
-                    // Update order status and assign delivery person
-                    system.updateOrderStatus(orderId, "ReadyForPickup", deliveryManId);
+                if (deliveryManId > 0 && changeStatus(order, "ReadyForPickup", deliveryManId)) {
                     JOptionPane.showMessageDialog(this, 
                         "Order assigned to delivery person successfully!", 
                         "Success", 
                         JOptionPane.INFORMATION_MESSAGE);
-                    populateOrders();
                 }
             }
         } else {
@@ -219,16 +342,20 @@ public class RestaurantManagerWorkArea extends JPanel {
     private void viewOrderDetails() {
         int selectedRow = tblOrders.getSelectedRow();
         if (selectedRow >= 0) {
-            int orderId = (int) tblOrders.getValueAt(selectedRow, 0);
+            Order order = ordersModel.getRow(selectedRow);
+            if (order == null) {
+                JOptionPane.showMessageDialog(this, "The order list is still loading");
+                return;
+            }
             
-            // Get order items
-            List<model.OrderItem> items = system.getOrderItems(orderId);
+            // Items were loaded with the page; fall back to a query only if that failed
+            List<model.OrderItem> items = order.getItems() != null ? order.getItems() : system.getOrderItems(order.getId());
             
             StringBuilder details = new StringBuilder();
-            details.append("Order ID: ").append(orderId).append("\n");
-            details.append("Customer ID: ").append(tblOrders.getValueAt(selectedRow, 1)).append("\n");
-            details.append("Status: ").append(tblOrders.getValueAt(selectedRow, 2)).append("\n");
-            details.append("Date: ").append(tblOrders.getValueAt(selectedRow, 4)).append("\n\n");
+            details.append("Order ID: ").append(order.getId()).append("\n");
+            details.append("Customer ID: ").append(order.getCustomerId()).append("\n");
+            details.append("Status: ").append(order.getStatus()).append("\n");
+            details.append("Date: ").append(order.getOrderDate()).append("\n\n");
             
             if (items.isEmpty()) {
                 details.append("No items in this order");
@@ -284,7 +411,7 @@ public class RestaurantManagerWorkArea extends JPanel {
                 item.setName(newName);
                 item.setPrice(newPrice);
                 item.setDescription(newDesc);
-                item.setRestaurantId(system.getCurrentUser().getOrganizationId());
+                item.setRestaurantId(mainFrame.getSession().getUser().getOrganizationId());
                 system.updateMenuItem(item);
                 populateMenu();
             } catch (NumberFormatException nfe) {
@@ -298,11 +425,34 @@ public class RestaurantManagerWorkArea extends JPanel {
     private void updateStatus(String status) {
         int selectedRow = tblOrders.getSelectedRow();
         if (selectedRow >= 0) {
-            int orderId = (int) tblOrders.getValueAt(selectedRow, 0);
-            system.updateOrderStatus(orderId, status, 0);
-            populateOrders();
+            Order order = ordersModel.getRow(selectedRow);
+            if (order == null) {
+                JOptionPane.showMessageDialog(this, "The order list is still loading");
+                return;
+            }
+            changeStatus(order, status, 0);
         } else {
             JOptionPane.showMessageDialog(this, "Please select an order");
         }
     }
+
+    // Applies the change only if the order still looks as it did when the table was loaded.
+    // The row is patched by the change's event; the table is reloaded only when the change
+    // lost to someone else's. Returns whether the change was applied.
+    private boolean changeStatus(Order order, String status, int deliveryManId) {
+        boolean applied = false;
+        try {
+            applied = system.updateOrderStatus(order.getId(), order.getStatus(), order.getVersion(), status, deliveryManId);
+            if (!applied) {
+                JOptionPane.showMessageDialog(this,
+                    "Order " + order.getId() + " was changed by someone else. The list has been refreshed.",
+                    "Order Changed",
+                    JOptionPane.WARNING_MESSAGE);
+                populateOrders();
+            }
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Invalid Status Change", JOptionPane.WARNING_MESSAGE);
+        }
+        return applied;
+    }
 }
\ No newline at end of file
@@ -24,10 +24,17 @@ public class SystemAdminWorkArea extends JPanel {
     private final EcoSystem system;
     private JTable tblEnterprises;
     private JTable tblUsers;
+    private PagedTableModel<model.User> usersModel;
     private JTable tblOrganizations;
     private JTextField txtName;
     private JComboBox<String> cmbType;
 
+    // Users are read a page at a time, sorted and searched in the database
+    private static final String[] USER_COLUMNS = { "ID", "Username", "Name", "Role", "Phone", "Email", "Org ID" };
+    private static final String[] USER_SORT_FIELDS = { "id", "username", "name", "role", "phone", "email", "organization_id" };
+    private static final int USER_PAGE_SIZE = 100;
+    private static final int USER_PAGES_KEPT = 8;
+
     public SystemAdminWorkArea(MainJFrame mainFrame, EcoSystem system) {
         this.mainFrame = mainFrame;
         this.system = system;
@@ -93,6 +100,15 @@ public class SystemAdminWorkArea extends JPanel {
         JPanel usersPanel = new JPanel(new BorderLayout());
         tblUsers = new JTable();
         usersPanel.add(new JScrollPane(tblUsers), BorderLayout.CENTER);
+        JPanel usersSearch = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        usersSearch.add(new JLabel("Search:"));
+        JTextField txtUserSearch = new JTextField(20);
+        txtUserSearch.addActionListener(e -> usersModel.setFilter(txtUserSearch.getText()));
+        usersSearch.add(txtUserSearch);
+        JButton btnSearchUsers = new JButton("Search");
+        btnSearchUsers.addActionListener(e -> usersModel.setFilter(txtUserSearch.getText()));
+        usersSearch.add(btnSearchUsers);
+        usersPanel.add(usersSearch, BorderLayout.NORTH);
         JPanel usersAction = new JPanel();
         JButton btnEditUser = new JButton("Edit User");
         btnEditUser.addActionListener(e -> editSelectedUser());
@@ -154,29 +170,46 @@ public class SystemAdminWorkArea extends JPanel {
     }
 
     private void populateUsers() {
-        DefaultTableModel model = new DefaultTableModel();
-        model.addColumn("ID");
-        model.addColumn("Username");
-        model.addColumn("Name");
-        model.addColumn("Role");
-        model.addColumn("Phone");
-        model.addColumn("Email");
-        model.addColumn("Org ID");
-
-        List<model.User> users = system.getAllUsers();
-        for (model.User u : users) {
-            model.addRow(new Object[] { u.getId(), u.getUsername(), u.getName(), u.getRole(), u.getPhone(), u.getEmail(), u.getOrganizationId() });
+        if (usersModel != null) {
+            usersModel.refresh();
+            return;
         }
-        tblUsers.setModel(model);
+        usersModel = new PagedTableModel<>(USER_COLUMNS, new PagedTableModel.PageSource<model.User>() {
+            @Override
+            public int count(String search) {
+                return system.getUserCount(search);
+            }
+
+            @Override
+            public List<model.User> fetch(String search, int offset, int limit, int sortColumn, boolean ascending) {
+                String sortField = sortColumn < 0 ? null : USER_SORT_FIELDS[sortColumn];
+                return system.getUsersPage(search, offset, limit, sortField, ascending);
+            }
+        }, (u, column) -> switch (column) {
+            case 0 -> u.getId();
+            case 1 -> u.getUsername();
+            case 2 -> u.getName();
+            case 3 -> u.getRole();
+            case 4 -> u.getPhone();
+            case 5 -> u.getEmail();
+            default -> u.getOrganizationId();
+        }, USER_PAGE_SIZE, USER_PAGES_KEPT);
+        tblUsers.setModel(usersModel);
+        usersModel.sortOnHeaderClick(tblUsers);
     }
 
     private void deleteSelectedUser() {
         int selectedRow = tblUsers.getSelectedRow();
         if (selectedRow >= 0) {
-            int id = (int) tblUsers.getValueAt(selectedRow, 0);
+            model.User user = usersModel.getRow(selectedRow);
+            if (user == null) {
+                JOptionPane.showMessageDialog(this, "The user list is still loading");
+                return;
+            }
+            int id = user.getId();
             int confirm = JOptionPane.showConfirmDialog(this, "Delete User ID: " + id + "?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
-                system.deleteUser(id);
+                system.deleteUser(mainFrame.getSession(), id);
                 populateUsers();
             }
         } else {
@@ -204,7 +237,7 @@ public class SystemAdminWorkArea extends JPanel {
             int id = (int) tblOrganizations.getValueAt(selectedRow, 0);
             int confirm = JOptionPane.showConfirmDialog(this, "Delete Organization ID: " + id + "?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
-                system.deleteOrganization(id);
+                system.deleteOrganization(mainFrame.getSession(), id);
                 populateOrganizations();
             }
         } else {
@@ -235,13 +268,18 @@ public class SystemAdminWorkArea extends JPanel {
     private void editSelectedUser() {
         int selectedRow = tblUsers.getSelectedRow();
         if (selectedRow >= 0) {
-            int id = (int) tblUsers.getValueAt(selectedRow, 0);
-            String username = (String) tblUsers.getValueAt(selectedRow, 1);
-            String name = (String) tblUsers.getValueAt(selectedRow, 2);
-            String role = (String) tblUsers.getValueAt(selectedRow, 3);
-            String phone = (String) tblUsers.getValueAt(selectedRow, 4);
-            String email = (String) tblUsers.getValueAt(selectedRow, 5);
-            Integer orgId = (Integer) tblUsers.getValueAt(selectedRow, 6);
+            model.User user = usersModel.getRow(selectedRow);
+            if (user == null) {
+                JOptionPane.showMessageDialog(this, "The user list is still loading");
+                return;
+            }
+            int id = user.getId();
+            String username = user.getUsername();
+            String name = user.getName();
+            String role = user.getRole();
+            String phone = user.getPhone();
+            String email = user.getEmail();
+            int orgId = user.getOrganizationId();
 
             String newName = JOptionPane.showInputDialog(this, "Enter new name:", name);
             if (newName == null || newName.trim().isEmpty()) return;
@@ -252,14 +290,14 @@ public class SystemAdminWorkArea extends JPanel {
             model.User u = new model.User();
             u.setId(id);
             u.setUsername(username);
-            u.setPassword("password"); // leave default; or prompt for new
+            u.setPassword(null); // keeps the stored password
             u.setName(newName);
             u.setRole(newRole);
             u.setPhone(phone);
             u.setEmail(email);
-            if (orgId != null && orgId > 0) u.setOrganizationId(orgId);
+            if (orgId > 0) u.setOrganizationId(orgId);
 
-            system.updateUser(u);
+            system.updateUser(mainFrame.getSession(), u);
             populateUsers();
         } else {
             JOptionPane.showMessageDialog(this, "Please select a user to edit");
@@ -285,7 +323,7 @@ public class SystemAdminWorkArea extends JPanel {
             o.setName(newName);
             o.setType(newType);
             o.setEnterpriseId(enterpriseId);
-            system.updateOrganization(o);
+            system.updateOrganization(mainFrame.getSession(), o);
             populateOrganizations();
         } else {
             JOptionPane.showMessageDialog(this, "Please select an organization to edit");
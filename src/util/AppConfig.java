@@ -0,0 +1,83 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Application settings resolved once per JVM.
+ * A key such as {@code db.pool.maxSize} is looked up in db.properties, then as a
+ * system property, then as the environment variable {@code DB_POOL_MAXSIZE};
+ * later sources win, matching how the database URL has always been resolved.
+ */
+public final class AppConfig {
+    private static final Logger LOGGER = Logger.getLogger(AppConfig.class.getName());
+    private static final Properties FILE_PROPERTIES = loadFileProperties();
+
+    private AppConfig() {}
+
+    private static Properties loadFileProperties() {
+        Properties props = new Properties();
+        try (InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
+            if (is != null) {
+                props.load(is);
+            } else {
+                System.out.println("db.properties not found in resources; using default config.");
+            }
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Unable to load db.properties, using default values.", ioe);
+        }
+        return props;
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = FILE_PROPERTIES.getProperty(key, defaultValue);
+        String sysValue = System.getProperty(key);
+        if (sysValue != null && !sysValue.isEmpty()) value = sysValue;
+        String envValue = System.getenv(key.replace('.', '_').toUpperCase(Locale.ROOT));
+        if (envValue != null && !envValue.isEmpty()) value = envValue;
+        return value;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Ignoring non-numeric value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Ignoring non-numeric value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        String value = get(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Ignoring non-numeric value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        if (value == null) return defaultValue;
+        return value.equals("1") || value.equalsIgnoreCase("true");
+    }
+}
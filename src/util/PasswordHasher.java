@@ -0,0 +1,134 @@
+package util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * Runs BCrypt on a small dedicated pool so a burst of logins cannot occupy every core.
+ * The queue is bounded: once it is full new work fails fast with {@link BusyException}
+ * instead of piling up. The BCrypt cost is calibrated once at startup so a hash takes
+ * about {@code auth.hash.targetMs}; stored hashes below that cost report
+ * {@link #needsRehash}.
+ *
+ * <p>Settings: {@code auth.hash.threads} (default half the cores), {@code auth.hash.queueLimit}
+ * (default 64), {@code auth.hash.targetMs} (default 250), {@code auth.hash.minCost} /
+ * {@code auth.hash.maxCost} (default 12 / 14). The floor of 12 is the cost hashes were always made with, so a
+ * slow host never makes new hashes weaker than that.
+ */
+public final class PasswordHasher {
+    private static final Logger LOGGER = Logger.getLogger(PasswordHasher.class.getName());
+
+    public static class BusyException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public BusyException() {
+            super("Too many sign-ins in progress, please try again in a moment");
+        }
+    }
+
+    private static class Holder {
+        static final PasswordHasher INSTANCE = new PasswordHasher();
+    }
+
+    public static PasswordHasher getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final int targetCost;
+
+    private PasswordHasher() {
+        int threads = AppConfig.getInt("auth.hash.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        int queueLimit = AppConfig.getInt("auth.hash.queueLimit", 64);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueLimit), factory, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        targetCost = calibrate(AppConfig.getLong("auth.hash.targetMs", 250),
+                AppConfig.getInt("auth.hash.minCost", 12),
+                AppConfig.getInt("auth.hash.maxCost", 14));
+    }
+
+    // Each extra cost step doubles the work, so one timed hash at the minimum cost is enough to extrapolate
+    private static int calibrate(long targetMs, int minCost, int maxCost) {
+        String salt = BCrypt.gensalt(minCost);
+        BCrypt.hashpw("calibration", salt); // warm up the JIT before timing
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", salt);
+        double ms = Math.max(0.1, (System.nanoTime() - start) / 1_000_000.0);
+        int cost = minCost;
+        while (cost < maxCost && ms * 2 <= targetMs) {
+            ms *= 2;
+            cost++;
+        }
+        LOGGER.info("BCrypt cost " + cost + " (about " + Math.round(ms) + " ms per hash, target " + targetMs + " ms)");
+        return cost;
+    }
+
+    public int getTargetCost() {
+        return targetCost;
+    }
+
+    public static boolean isHash(String stored) {
+        return stored != null && (stored.startsWith("$2a$") || stored.startsWith("$2b$") || stored.startsWith("$2y$"));
+    }
+
+    // True for plain-text passwords and for hashes made with a lower cost than the calibrated one
+    public boolean needsRehash(String stored) {
+        if (!isHash(stored)) return true;
+        try {
+            return Integer.parseInt(stored.substring(4, 6)) < targetCost;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    public CompletableFuture<Boolean> verifyAsync(String password, String storedHash) {
+        return submit(() -> BCrypt.checkpw(password, storedHash));
+    }
+
+    public CompletableFuture<String> hashAsync(String password) {
+        return submit(() -> BCrypt.hashpw(password, BCrypt.gensalt(targetCost)));
+    }
+
+    // Blocks the caller until the hash is ready; throws BusyException when the queue is full
+    public String hash(String password) {
+        try {
+            return hashAsync(password).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    public int getQueuedTasks() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveTasks() {
+        return executor.getActiveCount();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new BusyException());
+        }
+    }
+}
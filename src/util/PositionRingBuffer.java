@@ -0,0 +1,98 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of (id, latitude, longitude, time) records for many producers and a
+ * single consumer. Records live in parallel primitive arrays, so offering one allocates
+ * nothing. A producer claims a slot with one compare-and-set on the tail, writes the fields
+ * and publishes the slot by advancing its sequence number; the consumer reads a slot only once
+ * it is published and hands it back by advancing the sequence a lap ahead. {@link #offer}
+ * returns false instead of waiting when the buffer is full.
+ */
+public final class PositionRingBuffer {
+
+    @FunctionalInterface
+    public interface Sink {
+        void accept(int id, double latitude, double longitude, long time);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final int[] ids;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final long[] times;
+    // Slot i is free for the producer at position p when sequences[i] == p, and readable by
+    // the consumer at position p when sequences[i] == p + 1
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Written by the consumer only; volatile so size() can be read anywhere
+    private volatile long head;
+
+    public PositionRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two of at least 2");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.ids = new int[capacity];
+        this.latitudes = new double[capacity];
+        this.longitudes = new double[capacity];
+        this.times = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+    }
+
+    // Any thread; false if the buffer is full
+    public boolean offer(int id, double latitude, double longitude, long time) {
+        long pos = tail.get();
+        while (true) {
+            int slot = (int) pos & mask;
+            long lag = sequences.getAcquire(slot) - pos;
+            if (lag == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    ids[slot] = id;
+                    latitudes[slot] = latitude;
+                    longitudes[slot] = longitude;
+                    times[slot] = time;
+                    sequences.setRelease(slot, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (lag < 0) {
+                // The consumer has not freed this slot from the previous lap
+                return false;
+            } else {
+                // Another producer took the slot; catch up
+                pos = tail.get();
+            }
+        }
+    }
+
+    // Consumer thread only: passes up to max records to the sink in order, returns how many
+    public int drain(Sink sink, int max) {
+        long pos = head;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) pos & mask;
+            if (sequences.getAcquire(slot) != pos + 1) break;
+            sink.accept(ids[slot], latitudes[slot], longitudes[slot], times[slot]);
+            sequences.setRelease(slot, pos + capacity);
+            pos++;
+            drained++;
+        }
+        head = pos;
+        return drained;
+    }
+
+    // Records waiting for the consumer; approximate while producers are active
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
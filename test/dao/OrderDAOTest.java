@@ -0,0 +1,147 @@
+package dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import database.TestDatabase;
+import model.Order;
+import model.OrderStatus;
+
+// Runs against MySQL; skipped without Docker or -Dtest.db.url (see TestDatabase)
+public class OrderDAOTest {
+    private static final String PLACED = OrderStatus.PLACED.getLabel();
+    private static final String ACCEPTED = OrderStatus.ACCEPTED.getLabel();
+    private static final int UPDATERS = 8;
+
+    private final OrderDAO orderDAO = new OrderDAO();
+    private ExecutorService pool;
+    private int restaurantId;
+    private int customerId;
+    private int driverId;
+
+    @Before
+    public void setUp() throws Exception {
+        TestDatabase.start();
+        TestDatabase.clear();
+        restaurantId = TestDatabase.createRestaurant("Test Kitchen");
+        customerId = TestDatabase.createUser("customer", "Customer");
+        driverId = TestDatabase.createUser("driver", "DeliveryMan");
+        pool = Executors.newFixedThreadPool(UPDATERS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void exactlyOneRacingUpdaterWins() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            int orderId = placeOrder();
+            // Every updater read the order at (Placed, 0) and starts its update at the same moment
+            CyclicBarrier start = new CyclicBarrier(UPDATERS);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < UPDATERS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return orderDAO.updateOrderStatus(orderId, PLACED, 0, ACCEPTED, 0);
+                }));
+            }
+            int wins = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) wins++;
+            }
+            assertEquals("round " + round, 1, wins);
+
+            Order order = orderDAO.getOrderById(orderId);
+            assertEquals(ACCEPTED, order.getStatus());
+            assertEquals(1, order.getVersion());
+            assertEquals(1, acceptedEntries(orderId));
+        }
+    }
+
+    @Test
+    public void lateAcceptCannotOverwriteDelivered() throws Exception {
+        int orderId = placeOrder();
+        assertTrue(orderDAO.updateOrderStatus(orderId, PLACED, 0, ACCEPTED, 0));
+        assertTrue(orderDAO.updateOrderStatus(orderId, ACCEPTED, 1, OrderStatus.READY_FOR_PICKUP.getLabel(), 0));
+        assertTrue(orderDAO.updateOrderStatus(orderId, OrderStatus.READY_FOR_PICKUP.getLabel(), 2,
+                OrderStatus.OUT_FOR_DELIVERY.getLabel(), driverId));
+        assertTrue(orderDAO.updateOrderStatus(orderId, OrderStatus.OUT_FOR_DELIVERY.getLabel(), 3,
+                OrderStatus.DELIVERED.getLabel(), 0));
+
+        // An Accept from a screen that loaded the order while it was still Placed
+        assertFalse(orderDAO.updateOrderStatus(orderId, PLACED, 0, ACCEPTED, 0));
+
+        Order order = orderDAO.getOrderById(orderId);
+        assertEquals(OrderStatus.DELIVERED.getLabel(), order.getStatus());
+        assertEquals(4, order.getVersion());
+        assertEquals(driverId, order.getDeliveryManId());
+        assertEquals(1, acceptedEntries(orderId));
+    }
+
+    @Test
+    public void seekingFromAShownRowReadsTheSamePageAsTheOffset() throws Exception {
+        // Several orders per second, so the date sort has ties for the id to break
+        for (int i = 0; i < 130; i++) {
+            TestDatabase.insert("INSERT INTO orders (customer_id, restaurant_id, status, order_date, delivery_address)"
+                    + " VALUES (?, ?, ?, TIMESTAMPADD(SECOND, ?, '2026-01-01'), 'Boston')",
+                    customerId, restaurantId, i % 3 == 0 ? ACCEPTED : PLACED, (i * 7) % 50);
+        }
+        for (String status : new String[] { null, PLACED }) {
+            for (String sortField : new String[] { null, "id", "order_date" }) {
+                for (boolean ascending : new boolean[] { true, false }) {
+                    String sort = status + " " + sortField + " " + ascending;
+                    List<Order> all = orderDAO.loadOrdersPageByRestaurant(restaurantId, status, 0, 500, sortField, ascending);
+                    Order anchor = all.get(19);
+                    // Rows 30-39: ten past the anchor going on, and the ten before row 50 going back
+                    assertEquals(sort, ids(all.subList(30, 40)), ids(orderDAO.loadOrdersPageByRestaurant(
+                            restaurantId, status, anchor, true, 10, 10, sortField, ascending)));
+                    assertEquals(sort, ids(all.subList(30, 40)), ids(orderDAO.loadOrdersPageByRestaurant(
+                            restaurantId, status, all.get(50), false, 10, 10, sortField, ascending)));
+                    assertEquals(sort, ids(all.subList(30, 40)), ids(orderDAO.loadOrdersPageByRestaurant(
+                            restaurantId, status, 30, 10, sortField, ascending)));
+                }
+            }
+        }
+    }
+
+    private static List<Integer> ids(List<Order> orders) {
+        List<Integer> ids = new ArrayList<>();
+        for (Order order : orders) ids.add(order.getId());
+        return ids;
+    }
+
+    private int placeOrder() {
+        Order order = new Order();
+        order.setCustomerId(customerId);
+        order.setRestaurantId(restaurantId);
+        order.setStatus(PLACED);
+        order.setDeliveryAddress("Boston");
+        orderDAO.createOrder(order);
+        assertTrue(order.getId() > 0);
+        return order.getId();
+    }
+
+    // Status history rows recording the move to Accepted
+    private static int acceptedEntries(int orderId) throws Exception {
+        return TestDatabase.queryInt("SELECT COUNT(*) FROM order_status_history WHERE order_id = ? AND status = ?",
+                orderId, ACCEPTED);
+    }
+}
@@ -0,0 +1,137 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import database.MySQLConnection;
+import model.Order;
+import model.User;
+
+/**
+ * Compares {@code SELECT *} with label-based mapping against the DAOs' column projections
+ * with index-based mappers, on the orders and users tables of the configured database.
+ * For each variant it reports the bytes the client received (the session's {@code Bytes_sent})
+ * and the mapping time, both per 10,000 rows. Not a unit test: run it by hand against a copy
+ * of real data, after {@code mvn test-compile}:
+ *
+ * <pre>java -cp "lib/*:target/classes:target/test-classes" dao.ProjectionBenchmark [rows] [iterations]</pre>
+ */
+public final class ProjectionBenchmark {
+    private static final Logger LOGGER = Logger.getLogger(ProjectionBenchmark.class.getName());
+    private static final int PER_ROWS = 10_000;
+
+    @FunctionalInterface
+    private interface RowMapper {
+        Object map(ResultSet rs) throws SQLException;
+    }
+
+    private ProjectionBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : PER_ROWS;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        try (Connection conn = MySQLConnection.getDataSource().getConnection()) {
+            long overhead = statusQueryOverhead(conn);
+            System.out.printf("%-28s %8s %16s %16s%n", "variant", "rows", "bytes/10k rows", "map ms/10k rows");
+
+            run(conn, "orders SELECT * by label", "SELECT * FROM orders ORDER BY id LIMIT ?",
+                    ProjectionBenchmark::mapOrderByLabel, rows, iterations, overhead);
+            run(conn, "orders list by index", "SELECT " + OrderDAO.LIST_COLUMNS + " FROM orders ORDER BY id LIMIT ?",
+                    OrderDAO::mapOrderListRow, rows, iterations, overhead);
+            run(conn, "orders full by index", "SELECT " + OrderDAO.COLUMNS + " FROM orders ORDER BY id LIMIT ?",
+                    OrderDAO::mapOrder, rows, iterations, overhead);
+
+            run(conn, "users SELECT * by label", "SELECT * FROM users ORDER BY id LIMIT ?",
+                    ProjectionBenchmark::mapUserByLabel, rows, iterations, overhead);
+            run(conn, "users public by index", "SELECT " + UserDAO.PUBLIC_COLUMNS + " FROM users ORDER BY id LIMIT ?",
+                    UserDAO::mapPublicUser, rows, iterations, overhead);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Projection benchmark failed", e);
+            System.exit(1);
+        } finally {
+            MySQLConnection.shutdown();
+        }
+    }
+
+    // The first iteration warms the statement cache and the JIT and is not counted
+    private static void run(Connection conn, String name, String query, RowMapper mapper,
+            int rows, int iterations, long overhead) throws SQLException {
+        long bytes = 0;
+        long mapNanos = 0;
+        long rowsRead = 0;
+        for (int it = 0; it <= iterations; it++) {
+            long before = bytesReceived(conn);
+            long nanos = 0;
+            int count = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, rows);
+                // Connector/J buffers the whole result in executeQuery, so the loop below times mapping only
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        long start = System.nanoTime();
+                        mapper.map(rs);
+                        nanos += System.nanoTime() - start;
+                        count++;
+                    }
+                }
+            }
+            long sent = bytesReceived(conn) - before - overhead;
+            if (it == 0) continue;
+            bytes += sent;
+            mapNanos += nanos;
+            rowsRead += count;
+        }
+        if (rowsRead == 0) {
+            System.out.printf("%-28s %8d %16s %16s%n", name, 0, "-", "-");
+            return;
+        }
+        System.out.printf("%-28s %8d %16d %16.3f%n", name, rowsRead / iterations,
+                bytes * PER_ROWS / rowsRead, mapNanos / 1e6 * PER_ROWS / rowsRead);
+    }
+
+    // The server's Bytes_sent for this session: the result-set bytes the client received
+    private static long bytesReceived(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW SESSION STATUS LIKE 'Bytes_sent'")) {
+            return rs.next() ? rs.getLong(2) : 0;
+        }
+    }
+
+    // What one status query itself adds to the counter, subtracted from every measurement
+    private static long statusQueryOverhead(Connection conn) throws SQLException {
+        long first = bytesReceived(conn);
+        long second = bytesReceived(conn);
+        return second - first;
+    }
+
+    // The label-based mappers the DAOs used before they switched to projections
+    private static Order mapOrderByLabel(ResultSet rs) throws SQLException {
+        return new Order(
+                rs.getInt("id"),
+                rs.getInt("customer_id"),
+                rs.getInt("restaurant_id"),
+                rs.getInt("delivery_man_id"),
+                rs.getString("status"),
+                rs.getTimestamp("order_date"),
+                rs.getString("delivery_address"),
+                rs.getString("comment"));
+    }
+
+    private static User mapUserByLabel(ResultSet rs) throws SQLException {
+        return new User(
+                rs.getInt("id"),
+                rs.getString("username"),
+                rs.getString("password"),
+                rs.getString("role"),
+                rs.getString("name"),
+                rs.getString("phone"),
+                rs.getString("email"),
+                rs.getInt("organization_id"));
+    }
+}
@@ -0,0 +1,105 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Assume;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MySQLContainer;
+
+/**
+ * A migrated MySQL 8 database for tests that need real row locking. By default it is a
+ * throwaway container, started once per JVM; {@code -Dtest.db.url} (with {@code test.db.user}
+ * and {@code test.db.password}) points the tests at an existing, disposable database instead.
+ * Tests are skipped when neither is available. Every table the tests write to is emptied by
+ * {@link #clear}.
+ */
+public final class TestDatabase {
+    private static MySQLContainer<?> container;
+    private static boolean ready;
+
+    private TestDatabase() {}
+
+    // Points MySQLConnection at the test database and migrates it; skips the test if there is none
+    public static synchronized void start() throws SQLException {
+        if (ready) return;
+        String url = System.getProperty("test.db.url");
+        String user = System.getProperty("test.db.user", "root");
+        String password = System.getProperty("test.db.password", "");
+        if (url == null) {
+            Assume.assumeTrue("Docker is not available", DockerClientFactory.instance().isDockerAvailable());
+            container = new MySQLContainer<>("mysql:8.0")
+                    .withUrlParam("serverTimezone", "UTC")
+                    .withUrlParam("useServerPrepStmts", "true")
+                    .withUrlParam("rewriteBatchedStatements", "true");
+            container.start();
+            url = container.getJdbcUrl();
+            user = container.getUsername();
+            password = container.getPassword();
+        }
+        System.setProperty("db.url", url);
+        System.setProperty("db.user", user);
+        System.setProperty("db.password", password);
+        System.setProperty("db.pool.maxSize", "20");
+        MySQLConnection.shutdown();
+        new SchemaMigrator(MySQLConnection.getDataSource(), Migrations.all(), 60).migrate();
+        ready = true;
+    }
+
+    // Empties the tables tests fill, children first
+    public static void clear() throws SQLException {
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String table : new String[] { "change_log", "order_status_history", "trip_stops", "trips",
+                    "order_items", "orders", "users", "organizations", "enterprises" }) {
+                stmt.executeUpdate("DELETE FROM " + table);
+            }
+        }
+    }
+
+    // Runs an INSERT and returns its generated id
+    public static int insert(String sql, Object... params) throws SQLException {
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < params.length; i++) stmt.setObject(i + 1, params[i]);
+            stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    public static int update(String sql, Object... params) throws SQLException {
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) stmt.setObject(i + 1, params[i]);
+            return stmt.executeUpdate();
+        }
+    }
+
+    // The first column of the first row, e.g. of a COUNT(*)
+    public static int queryInt(String sql, Object... params) throws SQLException {
+        try (Connection conn = MySQLConnection.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) stmt.setObject(i + 1, params[i]);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    // A restaurant under a new Restaurant enterprise; returns the restaurant's organization id
+    public static int createRestaurant(String name) throws SQLException {
+        int enterpriseId = insert("INSERT INTO enterprises (name, type) VALUES (?, 'Restaurant')", name);
+        return insert("INSERT INTO organizations (name, type, enterprise_id) VALUES (?, 'Restaurant', ?)", name, enterpriseId);
+    }
+
+    public static int createUser(String username, String role) throws SQLException {
+        return insert("INSERT INTO users (username, password, role, name) VALUES (?, 'x', ?, ?)", username, role, username);
+    }
+}
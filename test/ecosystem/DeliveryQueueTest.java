@@ -0,0 +1,124 @@
+package ecosystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.OrderDAO;
+import dao.TripDAO;
+import database.TestDatabase;
+import model.Order;
+import model.OrderStatus;
+
+// Runs against MySQL 8 (claims use FOR UPDATE OF ... SKIP LOCKED); skipped without Docker or -Dtest.db.url
+public class DeliveryQueueTest {
+    private static final int DRIVERS = 8;
+    private static final int ORDERS = 300;
+
+    private final OrderDAO orderDAO = new OrderDAO();
+    private ExecutorService pool;
+    private int restaurantId;
+    private int customerId;
+    private final List<Integer> driverIds = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        TestDatabase.start();
+        TestDatabase.clear();
+        restaurantId = TestDatabase.createRestaurant("Test Kitchen");
+        customerId = TestDatabase.createUser("customer", "Customer");
+        driverIds.clear();
+        for (int i = 0; i < DRIVERS; i++) driverIds.add(TestDatabase.createUser("driver" + i, "DeliveryMan"));
+        pool = Executors.newFixedThreadPool(DRIVERS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void concurrentClaimsAreDisjoint() throws Exception {
+        for (int i = 0; i < ORDERS; i++) readyOrder();
+        // No per-driver cap in the way, so the drivers drain the whole queue between them
+        DeliveryQueue queue = new DeliveryQueue(orderDAO, new TripDAO(), 300, ORDERS, 120, 3600);
+        CyclicBarrier start = new CyclicBarrier(DRIVERS);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        for (int driverId : driverIds) {
+            results.add(pool.submit(() -> {
+                start.await();
+                List<Integer> mine = new ArrayList<>();
+                List<Order> claimed;
+                while (!(claimed = queue.claimNext(driverId, null, 3)).isEmpty()) {
+                    for (Order order : claimed) mine.add(order.getId());
+                }
+                return mine;
+            }));
+        }
+
+        Map<Integer, Integer> claimer = new HashMap<>();
+        for (int d = 0; d < DRIVERS; d++) {
+            for (int orderId : results.get(d).get(60, TimeUnit.SECONDS)) {
+                Integer previous = claimer.put(orderId, driverIds.get(d));
+                assertTrue("order " + orderId + " claimed twice", previous == null);
+            }
+        }
+        assertEquals(ORDERS, claimer.size());
+        // The database agrees with what each driver was told
+        for (Map.Entry<Integer, Integer> entry : claimer.entrySet()) {
+            assertEquals(entry.getValue().intValue(),
+                    TestDatabase.queryInt("SELECT claimed_by FROM orders WHERE id = ?", entry.getKey()));
+        }
+    }
+
+    @Test
+    public void expiredClaimsReturnToTheQueue() throws Exception {
+        Set<Integer> orderIds = new HashSet<>();
+        for (int i = 0; i < 3; i++) orderIds.add(readyOrder());
+        DeliveryQueue queue = new DeliveryQueue(orderDAO, new TripDAO(), 1, 5, 120, 3600);
+        int first = driverIds.get(0);
+        int second = driverIds.get(1);
+
+        assertEquals(orderIds, ids(queue.claimNext(first, null, 5)));
+        assertTrue(queue.claimNext(second, null, 5).isEmpty());
+
+        Thread.sleep(1_500);
+        assertTrue(queue.getClaims(first).isEmpty());
+        assertEquals(orderIds, ids(queue.claimNext(second, null, 5)));
+
+        // Once the second lease runs out too, the reaper clears the claim columns
+        Thread.sleep(1_500);
+        queue.reapExpiredClaims();
+        assertEquals(0, TestDatabase.queryInt("SELECT COUNT(*) FROM orders WHERE claimed_by IS NOT NULL"));
+        assertEquals(orderIds, ids(queue.claimNext(first, null, 5)));
+    }
+
+    private int readyOrder() throws Exception {
+        return TestDatabase.insert("INSERT INTO orders (customer_id, restaurant_id, status, delivery_address)"
+                + " VALUES (?, ?, ?, 'Boston')", customerId, restaurantId, OrderStatus.READY_FOR_PICKUP.getLabel());
+    }
+
+    private static Set<Integer> ids(List<Order> orders) {
+        Set<Integer> ids = new HashSet<>();
+        for (Order order : orders) ids.add(order.getId());
+        return ids;
+    }
+}
@@ -0,0 +1,148 @@
+package ecosystem;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import org.junit.Test;
+
+import model.GeoPoint;
+
+// Every query is checked against a brute-force scan of all drivers
+public class DriverLocatorTest {
+    private static final long SEED = 20240617L;
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void matchesBruteForceInACity() {
+        check(1.0, new Random(SEED), 2_000, 42.25, 42.45, -71.20, -70.95);
+    }
+
+    @Test
+    public void matchesBruteForceAtHighLatitude() {
+        check(1.0, new Random(SEED), 1_000, 78.0, 80.0, 15.0, 20.0);
+        check(1.0, new Random(SEED), 500, -80.0, -77.0, 160.0, 170.0);
+    }
+
+    // Drivers all round the pole, where a few km of latitude spans every longitude. Searches
+    // there visit every column of the occupied rows, so larger cells keep this quick
+    @Test
+    public void matchesBruteForceAroundThePole() {
+        check(5.0, new Random(SEED), 500, 89.5, 90.0, -180.0, 180.0);
+        check(10.0, new Random(SEED), 500, -90.0, -89.0, -180.0, 180.0);
+    }
+
+    // Drivers either side of ±180 longitude are neighbours
+    @Test
+    public void matchesBruteForceAcrossTheAntimeridian() {
+        check(1.0, new Random(SEED), 1_000, -17.5, -16.5, 179.5, 180.0, -180.0, -179.5);
+        check(1.0, new Random(SEED), 1_000, 64.5, 65.5, 179.0, 180.0, -180.0, -179.0);
+    }
+
+    // Sparse drivers all over the world, so searches cover many rings before they can stop
+    @Test
+    public void matchesBruteForceWorldwide() {
+        check(100.0, new Random(SEED), 1_000, -90.0, 90.0, -180.0, 180.0);
+    }
+
+    @Test
+    public void forgetsRemovedAndMovedDrivers() {
+        DriverLocator locator = new DriverLocator(1.0);
+        locator.update(1, 42.35, -71.06);
+        locator.update(2, 42.36, -71.06);
+        locator.update(3, 42.37, -71.06);
+        locator.remove(2);
+        locator.update(3, 10.0, 10.0);
+        GeoPoint here = new GeoPoint(42.35, -71.06);
+        List<DriverLocator.Neighbor> found = locator.nearest(here, 3, null);
+        assertEquals(2, found.size());
+        assertEquals(1, found.get(0).getDriverId());
+        assertEquals(3, found.get(1).getDriverId());
+        assertEquals(1, locator.withinRadius(here, 50, null).size());
+        assertEquals(2, locator.size());
+    }
+
+    // ranges: one or more (latMin, latMax, lngMin, lngMax) boxes the drivers are spread over;
+    // a trailing (lngMin, lngMax) pair adds a second longitude band for the same latitudes
+    private static void check(double cellKm, Random random, int drivers, double... ranges) {
+        double latMin = ranges[0], latMax = ranges[1];
+        double[][] lngBands = ranges.length == 6
+                ? new double[][] { { ranges[2], ranges[3] }, { ranges[4], ranges[5] } }
+                : new double[][] { { ranges[2], ranges[3] } };
+        DriverLocator locator = new DriverLocator(cellKm);
+        double[][] positions = new double[drivers][];
+        for (int id = 0; id < drivers; id++) {
+            positions[id] = randomPoint(random, latMin, latMax, lngBands);
+            locator.update(id, positions[id][0], positions[id][1]);
+        }
+        // Move some drivers so cells are emptied and refilled
+        for (int i = 0; i < drivers / 4; i++) {
+            int id = random.nextInt(drivers);
+            positions[id] = randomPoint(random, latMin, latMax, lngBands);
+            locator.update(id, positions[id][0], positions[id][1]);
+        }
+        IntPredicate even = id -> id % 2 == 0;
+        for (int q = 0; q < 200; q++) {
+            // Queries inside the area, at its edges and a little outside it
+            double[] p = randomPoint(random, latMin, latMax, lngBands);
+            double lat = Math.max(-90, Math.min(90, p[0] + (random.nextDouble() - 0.5) * 0.2));
+            double lng = p[1] + (random.nextDouble() - 0.5) * 0.2;
+            if (lng > 180) lng -= 360;
+            if (lng < -180) lng += 360;
+            GeoPoint point = new GeoPoint(lat, lng);
+            int k = 1 + random.nextInt(8);
+            assertNearest(positions, point, k, null, locator.nearest(point, k, null));
+            assertNearest(positions, point, k, even, locator.nearest(point, k, even));
+            double radius = cellKm * (0.5 + random.nextDouble() * 5);
+            assertWithin(positions, point, radius, null, locator.withinRadius(point, radius, null));
+            assertWithin(positions, point, radius, even, locator.withinRadius(point, radius, even));
+        }
+    }
+
+    private static double[] randomPoint(Random random, double latMin, double latMax, double[][] lngBands) {
+        double[] band = lngBands[random.nextInt(lngBands.length)];
+        return new double[] {
+            latMin + random.nextDouble() * (latMax - latMin),
+            band[0] + random.nextDouble() * (band[1] - band[0])
+        };
+    }
+
+    private static List<DriverLocator.Neighbor> bruteForce(double[][] positions, GeoPoint point, IntPredicate filter) {
+        List<DriverLocator.Neighbor> all = new ArrayList<>();
+        for (int id = 0; id < positions.length; id++) {
+            if (filter != null && !filter.test(id)) continue;
+            all.add(new DriverLocator.Neighbor(id, GeoPoint.distanceKm(point.getLatitude(), point.getLongitude(),
+                    positions[id][0], positions[id][1])));
+        }
+        all.sort(Comparator.comparingDouble(DriverLocator.Neighbor::getDistanceKm));
+        return all;
+    }
+
+    // Compared by distance, as drivers at the same distance may come in either order
+    private static void assertNearest(double[][] positions, GeoPoint point, int k, IntPredicate filter,
+            List<DriverLocator.Neighbor> actual) {
+        List<DriverLocator.Neighbor> expected = bruteForce(positions, point, filter);
+        expected = expected.subList(0, Math.min(k, expected.size()));
+        assertEquals("nearest " + k + " to " + point, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("nearest " + k + " to " + point + ", #" + i,
+                    expected.get(i).getDistanceKm(), actual.get(i).getDistanceKm(), EPSILON);
+        }
+    }
+
+    private static void assertWithin(double[][] positions, GeoPoint point, double radiusKm, IntPredicate filter,
+            List<DriverLocator.Neighbor> actual) {
+        List<DriverLocator.Neighbor> expected = new ArrayList<>();
+        for (DriverLocator.Neighbor n : bruteForce(positions, point, filter)) {
+            if (n.getDistanceKm() <= radiusKm) expected.add(n);
+        }
+        assertEquals("within " + radiusKm + " km of " + point, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getDistanceKm(), actual.get(i).getDistanceKm(), EPSILON);
+        }
+    }
+}
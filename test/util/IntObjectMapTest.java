@@ -0,0 +1,106 @@
+package util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntObjectMapTest {
+    private static final long SEED = 20240617L;
+
+    @Test
+    public void matchesHashMapOnRandomKeys() {
+        Random random = new Random(SEED);
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i++) keys.add(random.nextInt());
+        keys.add(0);
+        keys.add(Integer.MIN_VALUE);
+        keys.add(Integer.MAX_VALUE);
+        keys.add(-1);
+        runAgainstHashMap(keys, random, 200_000);
+    }
+
+    @Test
+    public void matchesHashMapOnSequentialIds() {
+        Random random = new Random(SEED);
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 1; i <= 300; i++) keys.add(i);
+        runAgainstHashMap(keys, random, 200_000);
+    }
+
+    // Keys that all hash to the last slot of every table up to 1024 slots, so each probe chain
+    // is one long cluster that wraps round to slot 0 and back-shifts across the wrap on delete
+    @Test
+    public void matchesHashMapWhenAllKeysCollideAtTheEndOfTheTable() {
+        runAgainstHashMap(collidingKeys(1023, 120), new Random(SEED), 100_000);
+    }
+
+    // A cluster at slot 0 mixed with one at the last slot, so the two chains run into each other
+    @Test
+    public void matchesHashMapWithClustersMeetingAcrossTheWrap() {
+        List<Integer> keys = collidingKeys(0, 60);
+        keys.addAll(collidingKeys(1023, 60));
+        runAgainstHashMap(keys, new Random(SEED + 1), 100_000);
+    }
+
+    @Test
+    public void removingEverythingLeavesAnEmptyMapThatStillWorks() {
+        IntObjectMap<String> map = new IntObjectMap<>(4);
+        List<Integer> keys = collidingKeys(1023, 50);
+        for (int key : keys) map.put(key, "v" + key);
+        assertEquals(keys.size(), map.size());
+        for (int key : keys) assertEquals("v" + key, map.remove(key));
+        assertTrue(map.isEmpty());
+        for (int key : keys) assertEquals(null, map.get(key));
+        for (int key : keys) map.put(key, "w" + key);
+        for (int key : keys) assertEquals("w" + key, map.get(key));
+    }
+
+    private static void runAgainstHashMap(List<Integer> keys, Random random, int operations) {
+        IntObjectMap<Integer> map = new IntObjectMap<>(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int op = 0; op < operations; op++) {
+            int key = keys.get(random.nextInt(keys.size()));
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertEquals("put " + key, expected.put(key, op), map.put(key, op));
+                case 2 -> assertEquals("remove " + key, expected.remove(key), map.remove(key));
+                default -> {
+                    assertEquals("get " + key, expected.get(key), map.get(key));
+                    assertEquals("containsKey " + key, expected.containsKey(key), map.containsKey(key));
+                }
+            }
+            assertEquals(expected.size(), map.size());
+            // Every so often, empty the map in bursts so removal runs on long chains too
+            if (op % 20_000 == 19_999) {
+                for (int k : keys) assertEquals(expected.remove(k), map.remove(k));
+            }
+            if (op % 1_000 == 0) assertSameContents(expected, map);
+        }
+        assertSameContents(expected, map);
+        map.clear();
+        assertTrue(map.isEmpty());
+        for (int key : keys) assertEquals(null, map.get(key));
+    }
+
+    private static void assertSameContents(Map<Integer, Integer> expected, IntObjectMap<Integer> map) {
+        for (int key : expected.keySet()) assertEquals(expected.get(key), map.get(key));
+        Map<Integer, Integer> visited = new HashMap<>();
+        map.forEach((key, value) -> assertEquals("visited twice: " + key, null, visited.put(key, value)));
+        assertEquals(expected, visited);
+    }
+
+    // Keys whose top ten bits of the map's Fibonacci hash equal slot
+    private static List<Integer> collidingKeys(int slot, int count) {
+        List<Integer> keys = new ArrayList<>();
+        for (int key = 1; keys.size() < count; key++) {
+            if ((key * 0x9E3779B9) >>> 22 == slot) keys.add(key);
+        }
+        return keys;
+    }
+}
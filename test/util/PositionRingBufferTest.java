@@ -0,0 +1,135 @@
+package util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class PositionRingBufferTest {
+    private static final int PRODUCERS = 4;
+
+    @Test
+    public void offerFailsExactlyWhenFull() {
+        PositionRingBuffer buffer = new PositionRingBuffer(8);
+        // Several laps, so the check also holds once slots have been reused
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 8; i++) assertTrue(buffer.offer(i, i, -i, i));
+            assertEquals(8, buffer.size());
+            assertFalse(buffer.offer(99, 0, 0, 0));
+
+            List<Integer> drained = new ArrayList<>();
+            assertEquals(3, buffer.drain((id, lat, lng, time) -> drained.add(id), 3));
+            assertEquals(List.of(0, 1, 2), drained);
+            for (int i = 0; i < 3; i++) assertTrue(buffer.offer(8 + i, 0, 0, 0));
+            assertFalse(buffer.offer(99, 0, 0, 0));
+
+            drained.clear();
+            assertEquals(8, buffer.drain((id, lat, lng, time) -> drained.add(id), 100));
+            assertEquals(List.of(3, 4, 5, 6, 7, 8, 9, 10), drained);
+            assertEquals(0, buffer.size());
+            assertEquals(0, buffer.drain((id, lat, lng, time) -> drained.add(id), 100));
+        }
+    }
+
+    // With nothing draining, concurrent producers fill it to exactly its capacity
+    @Test
+    public void concurrentProducersFillItExactly() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            PositionRingBuffer buffer = new PositionRingBuffer(1024);
+            AtomicInteger accepted = new AtomicInteger();
+            runProducers(producer -> {
+                for (int seq = 0; ; seq++) {
+                    if (!buffer.offer(producer, seq, -seq, time(producer, seq))) return;
+                    accepted.incrementAndGet();
+                }
+            });
+            assertEquals(1024, accepted.get());
+            assertFalse(buffer.offer(99, 0, 0, 0));
+            boolean[][] seen = new boolean[PRODUCERS][1024];
+            int drained = buffer.drain((id, lat, lng, time) -> {
+                int seq = (int) lat;
+                assertRecord(id, seq, lng, time);
+                assertFalse("duplicate", seen[id][seq]);
+                seen[id][seq] = true;
+            }, 2048);
+            assertEquals(1024, drained);
+        }
+    }
+
+    // Producers retry when it is full; the consumer must see every record once, each producer's in order
+    @Test
+    public void deliversEveryRecordOnceInProducerOrder() throws Exception {
+        int perProducer = 200_000;
+        PositionRingBuffer buffer = new PositionRingBuffer(256);
+        AtomicBoolean producing = new AtomicBoolean(true);
+        int[] next = new int[PRODUCERS];
+        AtomicInteger received = new AtomicInteger();
+        Thread consumer = new Thread(() -> {
+            PositionRingBuffer.Sink sink = (id, lat, lng, time) -> {
+                int seq = (int) lat;
+                assertRecord(id, seq, lng, time);
+                assertEquals("producer " + id, next[id], seq);
+                next[id]++;
+                received.incrementAndGet();
+            };
+            while (producing.get() || buffer.size() > 0) {
+                if (buffer.drain(sink, 64) == 0) Thread.yield();
+            }
+            buffer.drain(sink, Integer.MAX_VALUE);
+        });
+        List<Throwable> failures = new ArrayList<>();
+        consumer.setUncaughtExceptionHandler((t, e) -> failures.add(e));
+        consumer.start();
+        runProducers(producer -> {
+            for (int seq = 0; seq < perProducer; seq++) {
+                while (!buffer.offer(producer, seq, -seq, time(producer, seq))) Thread.yield();
+            }
+        });
+        producing.set(false);
+        consumer.join(60_000);
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(PRODUCERS * perProducer, received.get());
+        for (int producer = 0; producer < PRODUCERS; producer++) assertEquals(perProducer, next[producer]);
+    }
+
+    private interface Producer {
+        void run(int producer);
+    }
+
+    private static void runProducers(Producer body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                body.run(producer);
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) t.join();
+    }
+
+    private static long time(int producer, int seq) {
+        return producer * 1_000_000_000L + seq;
+    }
+
+    // All four fields come from the same offer
+    private static void assertRecord(int id, int seq, double lng, long time) {
+        assertEquals(-seq, lng, 0.0);
+        assertEquals(time(id, seq), time);
+    }
+}